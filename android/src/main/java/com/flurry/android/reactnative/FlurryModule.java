@@ -17,18 +17,19 @@
 package com.flurry.android.reactnative;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.TextUtils;
 import android.util.Log;
 
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.Callback;
+import com.facebook.react.bridge.LifecycleEventListener;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
-import com.facebook.react.bridge.ReadableMapKeySetIterator;
 import com.facebook.react.bridge.ReadableType;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
@@ -47,27 +48,204 @@ import com.flurry.android.marketing.FlurryMarketingOptions;
 import com.flurry.android.marketing.messaging.FlurryMessagingListener;
 import com.flurry.android.marketing.messaging.notification.FlurryMessage;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-
-public class FlurryModule extends ReactContextBaseJavaModule {
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class FlurryModule extends ReactNativeFlurrySpec implements LifecycleEventListener {
     private static final String TAG = "FlurryModule";
 
-    private static final String REACT_CLASS = "ReactNativeFlurry";
+    static final String REACT_CLASS = "ReactNativeFlurry";
     private static final String FLURRY_CONFIG_EVENT = "FlurryConfigEvent";
     private static final String FLURRY_MESSAGING_EVENT = "FlurryMessagingEvent";
 
+    // Overflow policies of the dispatch lanes, see Builder.withOverflowPolicy.
+    public static final int OVERFLOW_BLOCK = ReactNativeFlurryDispatcher.OVERFLOW_BLOCK;
+    public static final int OVERFLOW_DROP_NEWEST = ReactNativeFlurryDispatcher.OVERFLOW_DROP_NEWEST;
+    public static final int OVERFLOW_DROP_OLDEST = ReactNativeFlurryDispatcher.OVERFLOW_DROP_OLDEST;
+    public static final int OVERFLOW_COALESCE = ReactNativeFlurryDispatcher.OVERFLOW_COALESCE;
+
+    private static final String BATCH_EVENT_ID = "eventId";
+    private static final String BATCH_PARAMETERS = "parameters";
+    private static final String BATCH_TIMED = "timed";
+    private static final String BATCH_TIMED_ID = "timedId";
+
+    // Flurry accepts up to 10 parameters per event, a map of this capacity holds them without rehashing.
+    private static final int PARAMS_CAPACITY = 16;
+
     private static final String ORIGIN_NAME = "react-native-flurry-sdk";
     private static final String ORIGIN_VERSION = "8.3.0";
 
     private FlurryAgent.Builder mFlurryAgentBuilder;
 
-    private static FlurryPerformance.ResourceLogger sFlurryPerformanceResourceLogger = null;
+    private static int sDispatchQueueCapacity = ReactNativeFlurryDispatcher.DEFAULT_CAPACITY;
+    private static int sOverflowPolicy = OVERFLOW_BLOCK;
+    private static long sOverflowBlockTimeoutMillis = 0;
+    private static volatile ReactNativeFlurryDispatcher sDispatcher = null;
+    private static final ReactNativeFlurryPreInitBuffer sPreInitBuffer =
+            new ReactNativeFlurryPreInitBuffer(ReactNativeFlurryPreInitBuffer.DEFAULT_CAPACITY);
+    private static final AtomicReferenceArray<ReactNativeFlurryEventSchema> sEventSchemas =
+            new AtomicReferenceArray<>(ReactNativeFlurryEventSchema.MAX_SCHEMAS);
+    private static final ReactNativeFlurryEventAggregator sEventAggregator =
+            new ReactNativeFlurryEventAggregator((eventId, params) -> {
+                final long recordId = journalEvent(eventId, params);
+                dispatchJournaled(recordId, () -> FlurryAgent.logEvent(eventId, params));
+            });
+    private static final ReactNativeFlurryTimedEvents sTimedEvents =
+            new ReactNativeFlurryTimedEvents((eventId, timedId) -> dispatchAfterStart(() -> {
+                if (timedId != null) {
+                    FlurryAgent.endTimedEvent(eventId, timedId);
+                } else {
+                    FlurryAgent.endTimedEvent(eventId);
+                }
+            }));
+    private static final ReactNativeFlurryEventThrottle sEventThrottle = new ReactNativeFlurryEventThrottle();
+    private static final ReactNativeFlurryBridgeMetrics sBridgeMetrics = new ReactNativeFlurryBridgeMetrics();
+
+    // Bridge method indexes into sBridgeMetrics, registered once so recording a call needs no lookup.
+    private static final int METHOD_INIT_BUILDER = sBridgeMetrics.register("initBuilder");
+    private static final int METHOD_BUILD = sBridgeMetrics.register("build");
+    private static final int METHOD_BUILD_ASYNC = sBridgeMetrics.register("buildAsync");
+    private static final int METHOD_WITH_APP_VERSION = sBridgeMetrics.register("withAppVersion");
+    private static final int METHOD_WITH_CRASH_REPORTING = sBridgeMetrics.register("withCrashReporting");
+    private static final int METHOD_WITH_CONTINUE_SESSION_MILLIS = sBridgeMetrics.register("withContinueSessionMillis");
+    private static final int METHOD_WITH_GPP_CONSENT = sBridgeMetrics.register("withGppConsent");
+    private static final int METHOD_WITH_DATA_SALE_OPT_OUT = sBridgeMetrics.register("withDataSaleOptOut");
+    private static final int METHOD_WITH_IAP_REPORTING_ENABLED = sBridgeMetrics.register("withIAPReportingEnabled");
+    private static final int METHOD_WITH_INCLUDE_BACKGROUND_SESSIONS_IN_METRICS = sBridgeMetrics.register("withIncludeBackgroundSessionsInMetrics");
+    private static final int METHOD_WITH_LOG_ENABLED = sBridgeMetrics.register("withLogEnabled");
+    private static final int METHOD_WITH_LOG_LEVEL = sBridgeMetrics.register("withLogLevel");
+    private static final int METHOD_WITH_REPORT_LOCATION = sBridgeMetrics.register("withReportLocation");
+    private static final int METHOD_WITH_PERFORMANCE_METRICS = sBridgeMetrics.register("withPerformanceMetrics");
+    private static final int METHOD_WITH_SSL_PINNING_ENABLED = sBridgeMetrics.register("withSslPinningEnabled");
+    private static final int METHOD_WITH_DISPATCH_QUEUE_CAPACITY = sBridgeMetrics.register("withDispatchQueueCapacity");
+    private static final int METHOD_WITH_OVERFLOW_POLICY = sBridgeMetrics.register("withOverflowPolicy");
+    private static final int METHOD_WITH_EVENT_JOURNAL = sBridgeMetrics.register("withEventJournal");
+    private static final int METHOD_WITH_MESSAGING = sBridgeMetrics.register("withMessaging");
+    private static final int METHOD_WITH_TV_SESSION_REPORTING_INTERVAL = sBridgeMetrics.register("withTVSessionReportingInterval");
+    private static final int METHOD_WITH_TV_EVENT_COUNT_THRESHOLD = sBridgeMetrics.register("withTVEventCountThreshold");
+    private static final int METHOD_SET_CONTINUE_SESSION_MILLIS = sBridgeMetrics.register("setContinueSessionMillis");
+    private static final int METHOD_SET_CRASH_REPORTING = sBridgeMetrics.register("setCrashReporting");
+    private static final int METHOD_SET_INCLUDE_BACKGROUND_SESSIONS_IN_METRICS = sBridgeMetrics.register("setIncludeBackgroundSessionsInMetrics");
+    private static final int METHOD_SET_LOG_ENABLED = sBridgeMetrics.register("setLogEnabled");
+    private static final int METHOD_SET_LOG_LEVEL = sBridgeMetrics.register("setLogLevel");
+    private static final int METHOD_SET_SSL_PINNING_ENABLED = sBridgeMetrics.register("setSslPinningEnabled");
+    private static final int METHOD_SET_AGE = sBridgeMetrics.register("setAge");
+    private static final int METHOD_SET_GENDER = sBridgeMetrics.register("setGender");
+    private static final int METHOD_SET_REPORT_LOCATION = sBridgeMetrics.register("setReportLocation");
+    private static final int METHOD_SET_SESSION_ORIGIN = sBridgeMetrics.register("setSessionOrigin");
+    private static final int METHOD_SET_USER_ID = sBridgeMetrics.register("setUserId");
+    private static final int METHOD_SET_VERSION_NAME = sBridgeMetrics.register("setVersionName");
+    private static final int METHOD_SET_IAP_REPORTING_ENABLED = sBridgeMetrics.register("setIAPReportingEnabled");
+    private static final int METHOD_SET_GPP_CONSENT = sBridgeMetrics.register("setGppConsent");
+    private static final int METHOD_SET_DATA_SALE_OPT_OUT = sBridgeMetrics.register("setDataSaleOptOut");
+    private static final int METHOD_DELETE_DATA = sBridgeMetrics.register("deleteData");
+    private static final int METHOD_OPEN_PRIVACY_DASHBOARD = sBridgeMetrics.register("openPrivacyDashboard");
+    private static final int METHOD_ADD_ORIGIN = sBridgeMetrics.register("addOrigin");
+    private static final int METHOD_ADD_ORIGIN_PARAMS = sBridgeMetrics.register("addOriginParams");
+    private static final int METHOD_ADD_SESSION_PROPERTY = sBridgeMetrics.register("addSessionProperty");
+    private static final int METHOD_GET_VERSIONS = sBridgeMetrics.register("getVersions");
+    private static final int METHOD_GET_VERSIONS_PROMISE = sBridgeMetrics.register("getVersionsPromise");
+    private static final int METHOD_GET_VERSIONS_SYNC = sBridgeMetrics.register("getVersionsSync");
+    private static final int METHOD_GET_PUBLISHER_SEGMENTATION = sBridgeMetrics.register("getPublisherSegmentation");
+    private static final int METHOD_FETCH_PUBLISHER_SEGMENTATION = sBridgeMetrics.register("fetchPublisherSegmentation");
+    private static final int METHOD_LOG_BREADCRUMB = sBridgeMetrics.register("logBreadcrumb");
+    private static final int METHOD_LOG_BREADCRUMBS = sBridgeMetrics.register("logBreadcrumbs");
+    private static final int METHOD_SET_ERROR_COLLAPSE_WINDOW = sBridgeMetrics.register("setErrorCollapseWindow");
+    private static final int METHOD_SET_ERROR_BREADCRUMB_COUNT = sBridgeMetrics.register("setErrorBreadcrumbCount");
+    private static final int METHOD_LOG_EVENT = sBridgeMetrics.register("logEvent");
+    private static final int METHOD_LOG_EVENT_TIMED = sBridgeMetrics.register("logEventTimed");
+    private static final int METHOD_LOG_EVENT_PARAMS = sBridgeMetrics.register("logEventParams");
+    private static final int METHOD_LOG_EVENT_PARAMS_TIMED = sBridgeMetrics.register("logEventParamsTimed");
+    private static final int METHOD_LOG_EVENT_TIMED_ID = sBridgeMetrics.register("logEventTimedId");
+    private static final int METHOD_LOG_EVENT_PARAMS_TIMED_ID = sBridgeMetrics.register("logEventParamsTimedId");
+    private static final int METHOD_REGISTER_EVENT_SCHEMA = sBridgeMetrics.register("registerEventSchema");
+    private static final int METHOD_LOG_EVENT_BY_SCHEMA = sBridgeMetrics.register("logEventBySchema");
+    private static final int METHOD_LOG_AGGREGATED_EVENT = sBridgeMetrics.register("logAggregatedEvent");
+    private static final int METHOD_SET_AGGREGATION_WINDOW = sBridgeMetrics.register("setAggregationWindow");
+    private static final int METHOD_SET_EVENT_THROTTLE = sBridgeMetrics.register("setEventThrottle");
+    private static final int METHOD_CLEAR_EVENT_THROTTLE = sBridgeMetrics.register("clearEventThrottle");
+    private static final int METHOD_GET_EVENT_THROTTLE_STATS = sBridgeMetrics.register("getEventThrottleStats");
+    private static final int METHOD_LOG_EVENTS_BATCH = sBridgeMetrics.register("logEventsBatch");
+    private static final int METHOD_LOG_STANDARD_EVENT = sBridgeMetrics.register("logStandardEvent");
+    private static final int METHOD_LOG_STANDARD_EVENT_ORDINALS = sBridgeMetrics.register("logStandardEventOrdinals");
+    private static final int METHOD_END_TIMED_EVENT = sBridgeMetrics.register("endTimedEvent");
+    private static final int METHOD_END_TIMED_EVENT_PARAMS = sBridgeMetrics.register("endTimedEventParams");
+    private static final int METHOD_END_TIMED_EVENT_ID = sBridgeMetrics.register("endTimedEventId");
+    private static final int METHOD_END_TIMED_EVENT_PARAMS_ID = sBridgeMetrics.register("endTimedEventParamsId");
+    private static final int METHOD_LOG_PAYMENT = sBridgeMetrics.register("logPayment");
+    private static final int METHOD_GET_PAYMENT_DEDUP_STATS = sBridgeMetrics.register("getPaymentDedupStats");
+    private static final int METHOD_SET_TIMED_EVENT_TIMEOUT = sBridgeMetrics.register("setTimedEventTimeout");
+    private static final int METHOD_GET_OPEN_TIMED_EVENTS = sBridgeMetrics.register("getOpenTimedEvents");
+    private static final int METHOD_ON_ERROR = sBridgeMetrics.register("onError");
+    private static final int METHOD_ON_ERROR_PARAMS = sBridgeMetrics.register("onErrorParams");
+    private static final int METHOD_ON_PAGE_VIEW = sBridgeMetrics.register("onPageView");
+    private static final int METHOD_USER_PROPERTIES_SET = sBridgeMetrics.register("UserPropertiesSet");
+    private static final int METHOD_USER_PROPERTIES_SET_LIST = sBridgeMetrics.register("UserPropertiesSetList");
+    private static final int METHOD_USER_PROPERTIES_ADD = sBridgeMetrics.register("UserPropertiesAdd");
+    private static final int METHOD_USER_PROPERTIES_ADD_LIST = sBridgeMetrics.register("UserPropertiesAddList");
+    private static final int METHOD_USER_PROPERTIES_REMOVE = sBridgeMetrics.register("UserPropertiesRemove");
+    private static final int METHOD_USER_PROPERTIES_REMOVE_LIST = sBridgeMetrics.register("UserPropertiesRemoveList");
+    private static final int METHOD_USER_PROPERTIES_REMOVE_ALL = sBridgeMetrics.register("UserPropertiesRemoveAll");
+    private static final int METHOD_USER_PROPERTIES_FLAG = sBridgeMetrics.register("UserPropertiesFlag");
+    private static final int METHOD_REPORT_FULLY_DRAWN = sBridgeMetrics.register("reportFullyDrawn");
+    private static final int METHOD_START_PERFORMANCE_RESOURCE_LOGGER = sBridgeMetrics.register("startPerformanceResourceLogger");
+    private static final int METHOD_LOG_PERFORMANCE_RESOURCE_LOGGER = sBridgeMetrics.register("logPerformanceResourceLogger");
+    private static final int METHOD_UPDATE_CONVERSION_VALUE = sBridgeMetrics.register("updateConversionValue");
+    private static final int METHOD_UPDATE_CONVERSION_VALUE_WITH_EVENT = sBridgeMetrics.register("updateConversionValueWithEvent");
+    private static final int METHOD_ENABLE_MESSAGING_LISTENER = sBridgeMetrics.register("enableMessagingListener");
+    private static final int METHOD_WILL_HANDLE_MESSAGE = sBridgeMetrics.register("willHandleMessage");
+    private static final int METHOD_WILL_HANDLE_MESSAGE_ID = sBridgeMetrics.register("willHandleMessageId");
+    private static final int METHOD_GET_MESSAGING_METRICS = sBridgeMetrics.register("getMessagingMetrics");
+    private static final int METHOD_REGISTER_CONFIG_LISTENER = sBridgeMetrics.register("registerConfigListener");
+    private static final int METHOD_UNREGISTER_CONFIG_LISTENER = sBridgeMetrics.register("unregisterConfigListener");
+    private static final int METHOD_FETCH_CONFIG = sBridgeMetrics.register("fetchConfig");
+    private static final int METHOD_ACTIVATE_CONFIG = sBridgeMetrics.register("activateConfig");
+    private static final int METHOD_GET_CONFIG_STRING = sBridgeMetrics.register("getConfigString");
+    private static final int METHOD_GET_CONFIG_STRING_MAP = sBridgeMetrics.register("getConfigStringMap");
+    private static final int METHOD_GET_CONFIG_STRING_SYNC = sBridgeMetrics.register("getConfigStringSync");
+    private static final int METHOD_WATCH_CONFIG_KEYS = sBridgeMetrics.register("watchConfigKeys");
+    private static final int METHOD_GET_CONFIG_SNAPSHOT = sBridgeMetrics.register("getConfigSnapshot");
+    private static final int METHOD_GET_CONFIG_SNAPSHOT_VERSION = sBridgeMetrics.register("getConfigSnapshotVersion");
+    private static final int METHOD_FLUSH = sBridgeMetrics.register("flush");
+    private static final int METHOD_GET_PRE_INIT_BUFFER_STATS = sBridgeMetrics.register("getPreInitBufferStats");
+    private static final int METHOD_GET_QUEUE_STATS = sBridgeMetrics.register("getQueueStats");
+    private static final int METHOD_GET_BRIDGE_METRICS = sBridgeMetrics.register("getBridgeMetrics");
+    private static final ReactNativeFlurryPaymentDedup sPaymentDedup = new ReactNativeFlurryPaymentDedup();
+    private static final ReactNativeFlurryBreadcrumbs sBreadcrumbs = new ReactNativeFlurryBreadcrumbs();
+    private static final ReactNativeFlurryErrorCollapser sErrorCollapser =
+            new ReactNativeFlurryErrorCollapser((errorId, message, errorClass, params) ->
+                    dispatchAfterStart(ReactNativeFlurryDispatcher.LANE_HIGH,
+                            () -> FlurryAgent.onError(errorId, message, errorClass, params)));
+    private static volatile boolean sJournalEnabled = false;
+    private static volatile ReactNativeFlurryJournal sJournal = null;
+
+    // Startup timestamps in System.nanoTime(), 0 until reached.
+    private static volatile long sBuilderStartNanos = 0;
+    private static volatile long sBuilderReadyNanos = 0;
+    private static volatile long sBuildStartNanos = 0;
+    private static volatile long sBuildEndNanos = 0;
+    private static volatile long sSessionStartNanos = 0;
+    private static final List<Promise> sSessionStartPromises = new ArrayList<>();  // Dispatcher thread only.
+    // buildAsync rejects if the session has not started by then, e.g. with a bad API key or no network.
+    static final long SESSION_START_TIMEOUT_MILLIS = 30000;
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+    private static final ReactNativeFlurryResourceLoggers sResourceLoggers = new ReactNativeFlurryResourceLoggers();
 
     private static ReactApplicationContext sReactApplicationContext = null;
     private static boolean sMessagingInitialized = false;
@@ -75,9 +253,13 @@ public class FlurryModule extends ReactContextBaseJavaModule {
     private static FlurryMessage sFlurryMessage = null;
 
     private static RNFlurryConfigListener sRNFlurryConfigListener = null;
-    private static int sRequestConfigListener = 0;
+    private static final AtomicInteger sRequestConfigListener = new AtomicInteger();
+    private static final ReactNativeFlurryConfigCache sConfigCache = new ReactNativeFlurryConfigCache();
+    private static ReactNativeFlurryConfigStore sConfigStore = null;
+    private static final AtomicBoolean sConfigSavePending = new AtomicBoolean(false);
 
-    private static FlurryPublisherSegmentation.FetchListener sPublisherSegmentationListener = null;
+    private static final ReactNativeFlurrySegmentation sSegmentation =
+            new ReactNativeFlurrySegmentation(FlurryModule::dispatch);
 
     @Override
     public String getName() {
@@ -88,6 +270,7 @@ public class FlurryModule extends ReactContextBaseJavaModule {
         super(reactContext);
 
         sReactApplicationContext = reactContext;
+        reactContext.addLifecycleEventListener(this);
     }
 
     @Override
@@ -98,608 +281,2058 @@ public class FlurryModule extends ReactContextBaseJavaModule {
             RNFlurryMessagingListener.sendEvent(RNFlurryMessagingListener.EventType.NotificationClicked, sFlurryMessage, false);
             sFlurryMessage = null;
         }
+
+        // Keep dropping retried payments across restarts.
+        openPaymentDedup(getReactApplicationContext());
+
+        // Replay the events and payments left in the journal by the last launch.
+        if (sJournalEnabled || ReactNativeFlurryJournal.exists(getJournalDirectory(getReactApplicationContext()))) {
+            openJournal(getReactApplicationContext());
+        }
+
+        // Answer config reads with the values of the last launch until Flurry Config activates.
+        restoreConfig(getReactApplicationContext());
+    }
+
+    @Override
+    public void onHostResume() {
+    }
+
+    @Override
+    public void onHostPause() {
+        // Emit the open aggregation and error windows before the app may be killed in the background.
+        sEventAggregator.flush();
+        sErrorCollapser.flush();
+    }
+
+    @Override
+    public void onHostDestroy() {
+        sEventAggregator.flush();
+        sErrorCollapser.flush();
+        sTimedEvents.closeAll();
     }
 
     @ReactMethod
     public void initBuilder() {
-        mFlurryAgentBuilder = new FlurryAgent.Builder();
-        mFlurryAgentBuilder
-                .withListener(new FlurryAgentListener() {
-                    @Override
-                    public void onSessionStarted() {
-                    }
-                })
-                .withSessionForceStart(true)
-                .withReportLocation(true);
+        final long startNanos = System.nanoTime();
+        try {
+            sBuilderStartNanos = System.nanoTime();
+            mFlurryAgentBuilder = new FlurryAgent.Builder();
+            mFlurryAgentBuilder
+                    .withListener(new FlurryAgentListener() {
+                        @Override
+                        public void onSessionStarted() {
+                            onFlurrySessionStarted();
+                        }
+                    })
+                    .withSessionForceStart(true)
+                    .withReportLocation(true);
+            sBuilderReadyNanos = System.nanoTime();
+        } finally {
+            sBridgeMetrics.record(METHOD_INIT_BUILDER, startNanos);
+        }
     }
 
     @ReactMethod
     public void build(String apiKey) {
-        FlurryAgent.addOrigin(ORIGIN_NAME, ORIGIN_VERSION);
+        final long startNanos = System.nanoTime();
+        try {
+            startBuild(apiKey);
+        } finally {
+            sBridgeMetrics.record(METHOD_BUILD, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void buildAsync(String apiKey, Promise promise) {
+        final long startNanos = System.nanoTime();
+        try {
+            startBuild(apiKey);
+            dispatch(() -> {
+                if (sSessionStartNanos != 0) {
+                    promise.resolve(getStartupTimings());
+                    return;
+                }
+
+                sSessionStartPromises.add(promise);
+                sMainHandler.postDelayed(() -> dispatch(() -> {
+                    if (sSessionStartPromises.remove(promise)) {
+                        promise.reject("Flurry.buildAsync", "The Flurry session did not start within "
+                                + SESSION_START_TIMEOUT_MILLIS + " ms.");
+                    }
+                }), SESSION_START_TIMEOUT_MILLIS);
+            });
+        } finally {
+            sBridgeMetrics.record(METHOD_BUILD_ASYNC, startNanos);
+        }
+    }
+
+    private void startBuild(String apiKey) {
+        dispatch(() -> FlurryAgent.addOrigin(ORIGIN_NAME, ORIGIN_VERSION));
 
         Context context = getCurrentActivity();
         if (context == null) {
             context = getReactApplicationContext();
         }
-        mFlurryAgentBuilder.build(context, apiKey);
+        final Context buildContext = context;
+        final FlurryAgent.Builder builder = mFlurryAgentBuilder;
+        dispatch(() -> {
+            sBuildStartNanos = System.nanoTime();
+            builder.build(buildContext, apiKey);
+            sBuildEndNanos = System.nanoTime();
+        });
+    }
+
+    private static WritableMap getStartupTimings() {
+        WritableMap map = Arguments.createMap();
+        map.putDouble("builderMillis", elapsedMillis(sBuilderStartNanos, sBuilderReadyNanos));
+        map.putDouble("buildMillis", elapsedMillis(sBuildStartNanos, sBuildEndNanos));
+        map.putDouble("sessionStartMillis", elapsedMillis(sBuildStartNanos, sSessionStartNanos));
+        map.putDouble("totalMillis", elapsedMillis(sBuilderStartNanos, sSessionStartNanos));
+        return map;
+    }
+
+    /**
+     * @return the milliseconds between two timestamps, or -1 if either was not reached.
+     */
+    private static double elapsedMillis(long fromNanos, long toNanos) {
+        if ((fromNanos == 0) || (toNanos == 0) || (toNanos < fromNanos)) {
+            return -1;
+        }
+        return (toNanos - fromNanos) / 1000000.0;
+    }
+
+    @ReactMethod
+    public void withAppVersion(String versionName) {
+        final long startNanos = System.nanoTime();
+        try {
+            Log.i(TAG, "withAppVersion is for iOS only. Please use setVersionName instead.");
+        } finally {
+            sBridgeMetrics.record(METHOD_WITH_APP_VERSION, startNanos);
+        }
     }
 
     @ReactMethod
     public void withCrashReporting(boolean crashReporting) {
-        mFlurryAgentBuilder.withCaptureUncaughtExceptions(crashReporting);
+        final long startNanos = System.nanoTime();
+        try {
+            mFlurryAgentBuilder.withCaptureUncaughtExceptions(crashReporting);
+        } finally {
+            sBridgeMetrics.record(METHOD_WITH_CRASH_REPORTING, startNanos);
+        }
     }
 
     @ReactMethod
     public void withContinueSessionMillis(double sessionMillis) {
-        mFlurryAgentBuilder.withContinueSessionMillis((long) sessionMillis);
+        final long startNanos = System.nanoTime();
+        try {
+            mFlurryAgentBuilder.withContinueSessionMillis((long) sessionMillis);
+        } finally {
+            sBridgeMetrics.record(METHOD_WITH_CONTINUE_SESSION_MILLIS, startNanos);
+        }
     }
 
     @ReactMethod
     public void withGppConsent(String gppString, ReadableArray gppSectionIds) {
-        mFlurryAgentBuilder.withGppConsent(gppString, toIntegerSet(gppSectionIds));
+        final long startNanos = System.nanoTime();
+        try {
+            mFlurryAgentBuilder.withGppConsent(gppString, toIntegerSet(gppSectionIds));
+        } finally {
+            sBridgeMetrics.record(METHOD_WITH_GPP_CONSENT, startNanos);
+        }
     }
 
     @ReactMethod
     public void withDataSaleOptOut(boolean isOptOut) {
-        mFlurryAgentBuilder.withDataSaleOptOut(isOptOut);
+        final long startNanos = System.nanoTime();
+        try {
+            mFlurryAgentBuilder.withDataSaleOptOut(isOptOut);
+        } finally {
+            sBridgeMetrics.record(METHOD_WITH_DATA_SALE_OPT_OUT, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void withIAPReportingEnabled(boolean enableIAP) {
+        final long startNanos = System.nanoTime();
+        try {
+            Log.i(TAG, "withIAPReportingEnabled is not supported on Android. Please use logPayment instead.");
+        } finally {
+            sBridgeMetrics.record(METHOD_WITH_IAP_REPORTING_ENABLED, startNanos);
+        }
     }
 
     @ReactMethod
     public void withIncludeBackgroundSessionsInMetrics(boolean includeBackgroundSessionsInMetrics) {
-        mFlurryAgentBuilder.withIncludeBackgroundSessionsInMetrics(includeBackgroundSessionsInMetrics);
+        final long startNanos = System.nanoTime();
+        try {
+            mFlurryAgentBuilder.withIncludeBackgroundSessionsInMetrics(includeBackgroundSessionsInMetrics);
+        } finally {
+            sBridgeMetrics.record(METHOD_WITH_INCLUDE_BACKGROUND_SESSIONS_IN_METRICS, startNanos);
+        }
     }
 
     @ReactMethod
     public void withLogEnabled(boolean enableLog) {
-        mFlurryAgentBuilder.withLogEnabled(enableLog);
+        final long startNanos = System.nanoTime();
+        try {
+            mFlurryAgentBuilder.withLogEnabled(enableLog);
+        } finally {
+            sBridgeMetrics.record(METHOD_WITH_LOG_ENABLED, startNanos);
+        }
     }
 
     @ReactMethod
     public void withLogLevel(double logLevel) {
-        mFlurryAgentBuilder.withLogLevel((int) logLevel);
+        final long startNanos = System.nanoTime();
+        try {
+            mFlurryAgentBuilder.withLogLevel((int) logLevel);
+        } finally {
+            sBridgeMetrics.record(METHOD_WITH_LOG_LEVEL, startNanos);
+        }
     }
 
     @ReactMethod
     public void withReportLocation(boolean reportLocation) {
-        mFlurryAgentBuilder.withReportLocation(reportLocation);
+        final long startNanos = System.nanoTime();
+        try {
+            mFlurryAgentBuilder.withReportLocation(reportLocation);
+        } finally {
+            sBridgeMetrics.record(METHOD_WITH_REPORT_LOCATION, startNanos);
+        }
     }
 
     @ReactMethod
     public void withPerformanceMetrics(double performanceMetrics) {
-        mFlurryAgentBuilder.withPerformanceMetrics((int) performanceMetrics);
+        final long startNanos = System.nanoTime();
+        try {
+            mFlurryAgentBuilder.withPerformanceMetrics((int) performanceMetrics);
+        } finally {
+            sBridgeMetrics.record(METHOD_WITH_PERFORMANCE_METRICS, startNanos);
+        }
     }
 
     @ReactMethod
     public void withSslPinningEnabled(boolean sslPinningEnabled) {
-        mFlurryAgentBuilder.withSslPinningEnabled(sslPinningEnabled);
+        final long startNanos = System.nanoTime();
+        try {
+            mFlurryAgentBuilder.withSslPinningEnabled(sslPinningEnabled);
+        } finally {
+            sBridgeMetrics.record(METHOD_WITH_SSL_PINNING_ENABLED, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void withDispatchQueueCapacity(double capacity) {
+        final long startNanos = System.nanoTime();
+        try {
+            setDispatchQueueCapacity((int) capacity);
+        } finally {
+            sBridgeMetrics.record(METHOD_WITH_DISPATCH_QUEUE_CAPACITY, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void withOverflowPolicy(double policy, double blockTimeoutMillis) {
+        final long startNanos = System.nanoTime();
+        try {
+            setOverflowPolicy((int) policy, (long) blockTimeoutMillis);
+        } finally {
+            sBridgeMetrics.record(METHOD_WITH_OVERFLOW_POLICY, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void withEventJournal(boolean enableJournal) {
+        final long startNanos = System.nanoTime();
+        try {
+            sJournalEnabled = enableJournal;
+            if (enableJournal) {
+                openJournal(getReactApplicationContext());
+            }
+        } finally {
+            sBridgeMetrics.record(METHOD_WITH_EVENT_JOURNAL, startNanos);
+        }
     }
 
     @ReactMethod
     public void withMessaging(boolean enableMessaging) {
-        Log.i(TAG, "To customize Flurry Push for Android, please duplicate Builder setup in your MainApplication.java.");
+        final long startNanos = System.nanoTime();
+        try {
+            Log.i(TAG, "To customize Flurry Push for Android, please duplicate Builder setup in your MainApplication.java.");
 
-        if (!enableMessaging || sMessagingInitialized) {
-            return;
+            if (!enableMessaging || sMessagingInitialized) {
+                return;
+            }
+
+            RNFlurryMessagingListener messagingListener = new RNFlurryMessagingListener();
+            FlurryMarketingOptions messagingOptions = new FlurryMarketingOptions.Builder()
+                    .setupMessagingWithAutoIntegration()
+                    .withFlurryMessagingListener(messagingListener)
+                    // Define yours if needed
+                    // .withDefaultNotificationChannelId(NOTIFICATION_CHANNEL_ID)
+                    // .withDefaultNotificationIconResourceId(R.mipmap.ic_launcher_round)
+                    // .withDefaultNotificationIconAccentColor(getResources().getColor(R.color.colorPrimary))
+                    .build();
+
+            FlurryMarketingModule marketingModule = new FlurryMarketingModule(messagingOptions);
+            mFlurryAgentBuilder.withModule(marketingModule);
+        } finally {
+            sBridgeMetrics.record(METHOD_WITH_MESSAGING, startNanos);
         }
+    }
 
-        RNFlurryMessagingListener messagingListener = new RNFlurryMessagingListener();
-        FlurryMarketingOptions messagingOptions = new FlurryMarketingOptions.Builder()
-                .setupMessagingWithAutoIntegration()
-                .withFlurryMessagingListener(messagingListener)
-                // Define yours if needed
-                // .withDefaultNotificationChannelId(NOTIFICATION_CHANNEL_ID)
-                // .withDefaultNotificationIconResourceId(R.mipmap.ic_launcher_round)
-                // .withDefaultNotificationIconAccentColor(getResources().getColor(R.color.colorPrimary))
-                .build();
+    @ReactMethod
+    public void withTVSessionReportingInterval(double interval) {
+        final long startNanos = System.nanoTime();
+        try {
+            Log.i(TAG, "withTVSessionReportingInterval is for tvOS only.");
+        } finally {
+            sBridgeMetrics.record(METHOD_WITH_TV_SESSION_REPORTING_INTERVAL, startNanos);
+        }
+    }
 
-        FlurryMarketingModule marketingModule = new FlurryMarketingModule(messagingOptions);
-        mFlurryAgentBuilder.withModule(marketingModule);
+    @ReactMethod
+    public void withTVEventCountThreshold(double threshold) {
+        final long startNanos = System.nanoTime();
+        try {
+            Log.i(TAG, "withTVEventCountThreshold is for tvOS only.");
+        } finally {
+            sBridgeMetrics.record(METHOD_WITH_TV_EVENT_COUNT_THRESHOLD, startNanos);
+        }
     }
 
     @ReactMethod
     public void setContinueSessionMillis(double sessionMillis) {
-        FlurryAgent.setContinueSessionMillis((long) sessionMillis);
+        final long startNanos = System.nanoTime();
+        try {
+            dispatch(() -> FlurryAgent.setContinueSessionMillis((long) sessionMillis));
+        } finally {
+            sBridgeMetrics.record(METHOD_SET_CONTINUE_SESSION_MILLIS, startNanos);
+        }
     }
 
     @ReactMethod
     public void setCrashReporting(boolean captureExceptions) {
-        FlurryAgent.setCaptureUncaughtExceptions(captureExceptions);
+        final long startNanos = System.nanoTime();
+        try {
+            dispatch(() -> FlurryAgent.setCaptureUncaughtExceptions(captureExceptions));
+        } finally {
+            sBridgeMetrics.record(METHOD_SET_CRASH_REPORTING, startNanos);
+        }
     }
 
     @ReactMethod
     public void setIncludeBackgroundSessionsInMetrics(boolean includeBackgroundSessionsInMetrics) {
-        FlurryAgent.setIncludeBackgroundSessionsInMetrics(includeBackgroundSessionsInMetrics);
+        final long startNanos = System.nanoTime();
+        try {
+            dispatch(() -> FlurryAgent.setIncludeBackgroundSessionsInMetrics(includeBackgroundSessionsInMetrics));
+        } finally {
+            sBridgeMetrics.record(METHOD_SET_INCLUDE_BACKGROUND_SESSIONS_IN_METRICS, startNanos);
+        }
     }
 
     @ReactMethod
     public void setLogEnabled(boolean enableLog) {
-        FlurryAgent.setLogEnabled(enableLog);
+        final long startNanos = System.nanoTime();
+        try {
+            dispatch(() -> FlurryAgent.setLogEnabled(enableLog));
+        } finally {
+            sBridgeMetrics.record(METHOD_SET_LOG_ENABLED, startNanos);
+        }
     }
 
     @ReactMethod
-    public void setLogLevel(int logLevel) {
-        FlurryAgent.setLogLevel(logLevel);
+    public void setLogLevel(double logLevel) {
+        final long startNanos = System.nanoTime();
+        try {
+            dispatch(() -> FlurryAgent.setLogLevel((int) logLevel));
+        } finally {
+            sBridgeMetrics.record(METHOD_SET_LOG_LEVEL, startNanos);
+        }
     }
 
     @ReactMethod
     public void setSslPinningEnabled(boolean sslPinningEnabled) {
-        FlurryAgent.setSslPinningEnabled(sslPinningEnabled);
+        final long startNanos = System.nanoTime();
+        try {
+            dispatch(() -> FlurryAgent.setSslPinningEnabled(sslPinningEnabled));
+        } finally {
+            sBridgeMetrics.record(METHOD_SET_SSL_PINNING_ENABLED, startNanos);
+        }
     }
 
     @ReactMethod
     public void setAge(double age) {
-        FlurryAgent.setAge((int) age);
+        final long startNanos = System.nanoTime();
+        try {
+            dispatch(() -> FlurryAgent.setAge((int) age));
+        } finally {
+            sBridgeMetrics.record(METHOD_SET_AGE, startNanos);
+        }
     }
 
     @ReactMethod
     public void setGender(String gender) {
-        byte _gender = Constants.UNKNOWN;
-        if (gender.equalsIgnoreCase("m")) {
-            _gender = Constants.MALE;
-        } else if (gender.equalsIgnoreCase("f")) {
-            _gender = Constants.FEMALE;
+        final long startNanos = System.nanoTime();
+        try {
+            byte _gender = Constants.UNKNOWN;
+            if (gender.equalsIgnoreCase("m")) {
+                _gender = Constants.MALE;
+            } else if (gender.equalsIgnoreCase("f")) {
+                _gender = Constants.FEMALE;
+            }
+            final byte flurryGender = _gender;
+            dispatch(() -> FlurryAgent.setGender(flurryGender));
+        } finally {
+            sBridgeMetrics.record(METHOD_SET_GENDER, startNanos);
         }
-        FlurryAgent.setGender(_gender);
     }
 
     @ReactMethod
     public void setReportLocation(boolean reportLocation) {
-        FlurryAgent.setReportLocation(reportLocation);
+        final long startNanos = System.nanoTime();
+        try {
+            dispatch(() -> FlurryAgent.setReportLocation(reportLocation));
+        } finally {
+            sBridgeMetrics.record(METHOD_SET_REPORT_LOCATION, startNanos);
+        }
     }
 
     @ReactMethod
     public void setSessionOrigin(String originName, String deepLink) {
-        FlurryAgent.setSessionOrigin(originName, deepLink);
+        final long startNanos = System.nanoTime();
+        try {
+            dispatch(() -> FlurryAgent.setSessionOrigin(originName, deepLink));
+        } finally {
+            sBridgeMetrics.record(METHOD_SET_SESSION_ORIGIN, startNanos);
+        }
     }
 
     @ReactMethod
     public void setUserId(String userId) {
-        FlurryAgent.setUserId(userId);
+        final long startNanos = System.nanoTime();
+        try {
+            dispatch(() -> FlurryAgent.setUserId(userId));
+        } finally {
+            sBridgeMetrics.record(METHOD_SET_USER_ID, startNanos);
+        }
     }
 
     @ReactMethod
     public void setVersionName(String versionName) {
-        FlurryAgent.setVersionName(versionName);
+        final long startNanos = System.nanoTime();
+        try {
+            dispatch(() -> FlurryAgent.setVersionName(versionName));
+        } finally {
+            sBridgeMetrics.record(METHOD_SET_VERSION_NAME, startNanos);
+        }
     }
 
     @ReactMethod
     public void setIAPReportingEnabled(boolean enableIAP) {
-        Log.i(TAG, "setIAPReportingEnabled is not supported on Android. Please use logPayment instead.");
+        final long startNanos = System.nanoTime();
+        try {
+            Log.i(TAG, "setIAPReportingEnabled is not supported on Android. Please use logPayment instead.");
+        } finally {
+            sBridgeMetrics.record(METHOD_SET_IAP_REPORTING_ENABLED, startNanos);
+        }
     }
 
     @ReactMethod
     public void setGppConsent(String gppString, ReadableArray gppSectionIds) {
-        FlurryAgent.setGppConsent(gppString, toIntegerSet(gppSectionIds));
+        final long startNanos = System.nanoTime();
+        try {
+            final Set<Integer> sectionIds = toIntegerSet(gppSectionIds);
+            dispatch(() -> FlurryAgent.setGppConsent(gppString, sectionIds));
+        } finally {
+            sBridgeMetrics.record(METHOD_SET_GPP_CONSENT, startNanos);
+        }
     }
 
     @ReactMethod
     public void setDataSaleOptOut(boolean isOptOut) {
-        FlurryAgent.setDataSaleOptOut(isOptOut);
+        final long startNanos = System.nanoTime();
+        try {
+            dispatch(() -> FlurryAgent.setDataSaleOptOut(isOptOut));
+        } finally {
+            sBridgeMetrics.record(METHOD_SET_DATA_SALE_OPT_OUT, startNanos);
+        }
     }
 
     @ReactMethod
     public void deleteData() {
-        FlurryAgent.deleteData();
+        final long startNanos = System.nanoTime();
+        try {
+            dispatch(() -> FlurryAgent.deleteData());
+        } finally {
+            sBridgeMetrics.record(METHOD_DELETE_DATA, startNanos);
+        }
     }
 
     @ReactMethod
     public void openPrivacyDashboard() {
-        if (sReactApplicationContext == null) {
-            Log.w(TAG, "Application Context is not available to open Privacy Dashboard.");
-            return;
-        }
-
-        FlurryPrivacySession.Callback callback = new FlurryPrivacySession.Callback() {
-            @Override
-            public void success() {
-                Log.d(TAG, "Privacy Dashboard opened successfully.");
+        final long startNanos = System.nanoTime();
+        try {
+            if (sReactApplicationContext == null) {
+                Log.w(TAG, "Application Context is not available to open Privacy Dashboard.");
+                return;
             }
 
-            @Override
-            public void failure() {
-                Log.d(TAG, "Opening Privacy Dashboard failed.");
-            }
-        };
+            FlurryPrivacySession.Callback callback = new FlurryPrivacySession.Callback() {
+                @Override
+                public void success() {
+                    Log.d(TAG, "Privacy Dashboard opened successfully.");
+                }
 
-        FlurryPrivacySession.Request request = new FlurryPrivacySession.Request(
-                sReactApplicationContext, callback);
-        FlurryAgent.openPrivacyDashboard(request);
+                @Override
+                public void failure() {
+                    Log.d(TAG, "Opening Privacy Dashboard failed.");
+                }
+            };
+
+            final FlurryPrivacySession.Request request = new FlurryPrivacySession.Request(
+                    sReactApplicationContext, callback);
+            dispatch(() -> FlurryAgent.openPrivacyDashboard(request));
+        } finally {
+            sBridgeMetrics.record(METHOD_OPEN_PRIVACY_DASHBOARD, startNanos);
+        }
     }
 
     @ReactMethod
     public void addOrigin(String originName, String originVersion) {
-        FlurryAgent.addOrigin(originName, originVersion);
+        final long startNanos = System.nanoTime();
+        try {
+            dispatch(() -> FlurryAgent.addOrigin(originName, originVersion));
+        } finally {
+            sBridgeMetrics.record(METHOD_ADD_ORIGIN, startNanos);
+        }
     }
 
     @ReactMethod
     public void addOriginParams(String originName, String originVersion,
                                 final ReadableMap originParameters) {
-        FlurryAgent.addOrigin(originName, originVersion, toMap(originParameters));
+        final long startNanos = System.nanoTime();
+        try {
+            final Map<String, String> parameters = toMap(originParameters);
+            dispatch(() -> FlurryAgent.addOrigin(originName, originVersion, parameters));
+        } finally {
+            sBridgeMetrics.record(METHOD_ADD_ORIGIN_PARAMS, startNanos);
+        }
     }
 
     @ReactMethod
     public void addSessionProperty(String name, String value) {
-        FlurryAgent.addSessionProperty(name, value);
+        final long startNanos = System.nanoTime();
+        try {
+            dispatch(() -> FlurryAgent.addSessionProperty(name, value));
+        } finally {
+            sBridgeMetrics.record(METHOD_ADD_SESSION_PROPERTY, startNanos);
+        }
     }
 
     @ReactMethod
     public void getVersions(Callback errorCallback, Callback successCallback) {
+        final long startNanos = System.nanoTime();
         try {
-            successCallback.invoke(FlurryAgent.getAgentVersion(), FlurryAgent.getReleaseVersion(),
-                    FlurryAgent.getSessionId());
-        } catch (IllegalViewOperationException e) {
-            errorCallback.invoke(e.getMessage());
+            dispatch(() -> {
+                try {
+                    successCallback.invoke(FlurryAgent.getAgentVersion(), FlurryAgent.getReleaseVersion(),
+                            FlurryAgent.getSessionId());
+                } catch (IllegalViewOperationException e) {
+                    errorCallback.invoke(e.getMessage());
+                }
+            });
+        } finally {
+            sBridgeMetrics.record(METHOD_GET_VERSIONS, startNanos);
         }
     }
 
     @ReactMethod
     public void getVersionsPromise(Promise promise) {
+        final long startNanos = System.nanoTime();
+        try {
+            dispatch(() -> {
+                try {
+                    WritableMap map = Arguments.createMap();
+                    map.putInt("agentVersion", FlurryAgent.getAgentVersion());
+                    map.putString("releaseVersion", FlurryAgent.getReleaseVersion());
+                    map.putString("sessionId", FlurryAgent.getSessionId());
+                    promise.resolve(map);
+                } catch (IllegalViewOperationException e) {
+                    promise.reject("Flurry.getVersionsPromise", e);
+                }
+            });
+        } finally {
+            sBridgeMetrics.record(METHOD_GET_VERSIONS_PROMISE, startNanos);
+        }
+    }
+
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public WritableMap getVersionsSync() {
+        final long startNanos = System.nanoTime();
         try {
             WritableMap map = Arguments.createMap();
             map.putInt("agentVersion", FlurryAgent.getAgentVersion());
             map.putString("releaseVersion", FlurryAgent.getReleaseVersion());
             map.putString("sessionId", FlurryAgent.getSessionId());
-            promise.resolve(map);
-        } catch (IllegalViewOperationException e) {
-            promise.reject("Flurry.getVersionsPromise", e);
+            return map;
+        } finally {
+            sBridgeMetrics.record(METHOD_GET_VERSIONS_SYNC, startNanos);
         }
     }
 
     @ReactMethod
     public void getPublisherSegmentation(boolean refresh, final Promise promise) {
+        final long startNanos = System.nanoTime();
         try {
-            // Cached data is OK.
-            if (!refresh) {
-                Map<String, String> data = FlurryPublisherSegmentation.getPublisherData();
-                if (data != null) {
-                    resolvePublisherSegmentation(data, promise);
-                    return;
+            dispatch(() -> {
+                try {
+                    sSegmentation.get(refresh, promise);
+                } catch (IllegalViewOperationException e) {
+                    promise.reject("Flurry.getPublisherSegmentation", e);
                 }
-            }
+            });
+        } finally {
+            sBridgeMetrics.record(METHOD_GET_PUBLISHER_SEGMENTATION, startNanos);
+        }
+    }
 
-            // Check whether the data is already fetched or not.
-            if (FlurryPublisherSegmentation.isFetchFinished()) {
-                resolvePublisherSegmentation(FlurryPublisherSegmentation.getPublisherData(), promise);
-            } else {
-                sPublisherSegmentationListener = new FlurryPublisherSegmentation.FetchListener() {
-                    @Override
-                    public void onFetched(Map<String, String> data) {
-                        FlurryPublisherSegmentation.unregisterFetchListener(sPublisherSegmentationListener);
-                        resolvePublisherSegmentation(data, promise);
-                    }
-                };
-                FlurryPublisherSegmentation.registerFetchListener(sPublisherSegmentationListener);
+    @ReactMethod
+    public void fetchPublisherSegmentation() {
+        final long startNanos = System.nanoTime();
+        try {
+            dispatch(() -> {
+                sSegmentation.invalidate();
                 FlurryPublisherSegmentation.fetch();
+            });
+        } finally {
+            sBridgeMetrics.record(METHOD_FETCH_PUBLISHER_SEGMENTATION, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void logBreadcrumb(String crashBreadcrumb) {
+        final long startNanos = System.nanoTime();
+        try {
+            if (crashBreadcrumb == null) {
+                return;
             }
-        } catch (IllegalViewOperationException e) {
-            promise.reject("Flurry.getPublisherSegmentation", e);
+
+            sBreadcrumbs.add(crashBreadcrumb);
+            dispatchAfterStart(ReactNativeFlurryDispatcher.LANE_HIGH, () -> FlurryAgent.logBreadcrumb(crashBreadcrumb));
+        } finally {
+            sBridgeMetrics.record(METHOD_LOG_BREADCRUMB, startNanos);
         }
     }
 
-    private void resolvePublisherSegmentation(Map<String, String> data, Promise promise) {
-        WritableMap map = Arguments.createMap();
-        if (data != null) {
-            for (Map.Entry<String, String> entry : data.entrySet()) {
-                map.putString(entry.getKey(), entry.getValue());
+    @ReactMethod
+    public void logBreadcrumbs(ReadableArray crashBreadcrumbs) {
+        final long startNanos = System.nanoTime();
+        try {
+            final List<String> crumbs = toList(crashBreadcrumbs);
+            if (crumbs == null) {
+                return;
             }
+
+            for (String crumb : crumbs) {
+                sBreadcrumbs.add(crumb);
+            }
+            dispatchAfterStart(ReactNativeFlurryDispatcher.LANE_HIGH, () -> {
+                for (String crumb : crumbs) {
+                    FlurryAgent.logBreadcrumb(crumb);
+                }
+            });
+        } finally {
+            sBridgeMetrics.record(METHOD_LOG_BREADCRUMBS, startNanos);
         }
-        promise.resolve(map);
     }
 
     @ReactMethod
-    public void fetchPublisherSegmentation() {
-        FlurryPublisherSegmentation.fetch();
+    public void setErrorCollapseWindow(double windowMillis) {
+        final long startNanos = System.nanoTime();
+        try {
+            sErrorCollapser.setWindowMillis((long) windowMillis);
+        } finally {
+            sBridgeMetrics.record(METHOD_SET_ERROR_COLLAPSE_WINDOW, startNanos);
+        }
     }
 
     @ReactMethod
-    public void logBreadcrumb(String crashBreadcrumb) {
-        FlurryAgent.logBreadcrumb(crashBreadcrumb);
+    public void setErrorBreadcrumbCount(double count) {
+        final long startNanos = System.nanoTime();
+        try {
+            sBreadcrumbs.setAttachCount((int) count);
+        } finally {
+            sBridgeMetrics.record(METHOD_SET_ERROR_BREADCRUMB_COUNT, startNanos);
+        }
     }
 
     @ReactMethod
     public void logEvent(String eventId) {
-        FlurryAgent.logEvent(eventId);
+        final long startNanos = System.nanoTime();
+        try {
+            if (!sEventThrottle.tryAcquire(eventId)) {
+                return;
+            }
+            final long recordId = journalEvent(eventId, null);
+            dispatchEvent(eventId, recordId, () -> FlurryAgent.logEvent(eventId));
+        } finally {
+            sBridgeMetrics.record(METHOD_LOG_EVENT, startNanos);
+        }
     }
 
     @ReactMethod
     public void logEventTimed(String eventId, boolean timed) {
-        FlurryAgent.logEvent(eventId, timed);
+        final long startNanos = System.nanoTime();
+        try {
+            if (!sEventThrottle.tryAcquire(eventId)) {
+                return;
+            }
+            if (timed) {
+                sTimedEvents.start(eventId, null);
+            }
+            final long recordId = journalTimedEvent(eventId, null, timed, null);
+            dispatchJournaled(recordId, () -> FlurryAgent.logEvent(eventId, timed));
+        } finally {
+            sBridgeMetrics.record(METHOD_LOG_EVENT_TIMED, startNanos);
+        }
     }
 
     @ReactMethod
     public void logEventParams(String eventId, ReadableMap parameters) {
-        FlurryAgent.logEvent(eventId, toMap(parameters));
+        final long startNanos = System.nanoTime();
+        try {
+            if (!sEventThrottle.tryAcquire(eventId)) {
+                return;
+            }
+            final Map<String, String> params = toMap(parameters);
+            final long recordId = journalEvent(eventId, params);
+            dispatchEvent(eventId, recordId, () -> FlurryAgent.logEvent(eventId, params));
+        } finally {
+            sBridgeMetrics.record(METHOD_LOG_EVENT_PARAMS, startNanos);
+        }
     }
 
     @ReactMethod
     public void logEventParamsTimed(String eventId, ReadableMap parameters,
                                     boolean timed) {
-        FlurryAgent.logEvent(eventId, toMap(parameters), timed);
+        final long startNanos = System.nanoTime();
+        try {
+            if (!sEventThrottle.tryAcquire(eventId)) {
+                return;
+            }
+            final Map<String, String> params = toMap(parameters);
+            if (timed) {
+                sTimedEvents.start(eventId, null);
+            }
+            final long recordId = journalTimedEvent(eventId, params, timed, null);
+            dispatchJournaled(recordId, () -> FlurryAgent.logEvent(eventId, params, timed));
+        } finally {
+            sBridgeMetrics.record(METHOD_LOG_EVENT_PARAMS_TIMED, startNanos);
+        }
     }
 
     @ReactMethod
     public void logEventTimedId(String eventId, String timedId) {
-        FlurryAgent.logEvent(eventId, timedId);
+        final long startNanos = System.nanoTime();
+        try {
+            if (!sEventThrottle.tryAcquire(eventId)) {
+                return;
+            }
+            sTimedEvents.start(eventId, timedId);
+            final long recordId = journalTimedEvent(eventId, null, true, timedId);
+            dispatchJournaled(recordId, () -> FlurryAgent.logEvent(eventId, timedId));
+        } finally {
+            sBridgeMetrics.record(METHOD_LOG_EVENT_TIMED_ID, startNanos);
+        }
     }
 
     @ReactMethod
     public void logEventParamsTimedId(String eventId, ReadableMap parameters,
                                       String timedId) {
-        FlurryAgent.logEvent(eventId, toMap(parameters), timedId);
+        final long startNanos = System.nanoTime();
+        try {
+            if (!sEventThrottle.tryAcquire(eventId)) {
+                return;
+            }
+            final Map<String, String> params = toMap(parameters);
+            sTimedEvents.start(eventId, timedId);
+            final long recordId = journalTimedEvent(eventId, params, true, timedId);
+            dispatchJournaled(recordId, () -> FlurryAgent.logEvent(eventId, params, timedId));
+        } finally {
+            sBridgeMetrics.record(METHOD_LOG_EVENT_PARAMS_TIMED_ID, startNanos);
+        }
     }
 
     @ReactMethod
-    public void logStandardEvent(double eventId, ReadableMap parameters) {
-        int id = (int) eventId;
-        if ((id < 0) || (id >= ReactNativeFlurryEvent.EVENTS.length)) {
-            Log.e(TAG, "Standard event ID is out of range: " + id);
-            return;
+    public void registerEventSchema(double handle, String eventId, ReadableArray keys) {
+        final long startNanos = System.nanoTime();
+        try {
+            int index = (int) handle;
+            if ((index < 0) || (index >= ReactNativeFlurryEventSchema.MAX_SCHEMAS)) {
+                Log.e(TAG, "Event schema handle is out of range: " + index);
+                return;
+            }
+
+            List<String> keyList = toList(keys);
+            sEventSchemas.set(index, new ReactNativeFlurryEventSchema(eventId,
+                    (keyList != null) ? keyList : Collections.<String>emptyList()));
+        } finally {
+            sBridgeMetrics.record(METHOD_REGISTER_EVENT_SCHEMA, startNanos);
         }
+    }
+
+    @ReactMethod
+    public void logEventBySchema(double handle, ReadableArray values) {
+        final long startNanos = System.nanoTime();
+        try {
+            int index = (int) handle;
+            final ReactNativeFlurryEventSchema schema = ((index >= 0) && (index < ReactNativeFlurryEventSchema.MAX_SCHEMAS))
+                    ? sEventSchemas.get(index) : null;
+            if (schema == null) {
+                Log.e(TAG, "Event schema is not registered: " + index);
+                return;
+            }
+            if (!sEventThrottle.tryAcquire(schema.eventId)) {
+                return;
+            }
+
+            // Build the parameters straight from the interned keys and the positional values.
+            int count = (values != null) ? Math.min(schema.keys.length, values.size()) : 0;
+            final Map<String, String> params = (count > 0) ? new HashMap<String, String>(count * 2) : null;
+            for (int i = 0; i < count; i++) {
+                if (!values.isNull(i)) {
+                    params.put(schema.keys[i], toParamString(toObject(values, i)));
+                }
+            }
 
-        FlurryAgent.logEvent(ReactNativeFlurryEvent.EVENTS[id], getStandardEventParams(parameters));
+            final long recordId = journalEvent(schema.eventId, params);
+            if (params != null) {
+                dispatchEvent(schema.eventId, recordId, () -> FlurryAgent.logEvent(schema.eventId, params));
+            } else {
+                dispatchEvent(schema.eventId, recordId, () -> FlurryAgent.logEvent(schema.eventId));
+            }
+        } finally {
+            sBridgeMetrics.record(METHOD_LOG_EVENT_BY_SCHEMA, startNanos);
+        }
     }
 
-    private static FlurryEvent.Params getStandardEventParams(final ReadableMap readableMap) {
-        FlurryEvent.Params params = new FlurryEvent.Params();
+    @ReactMethod
+    public void logAggregatedEvent(String eventId, ReadableMap dimensions, double value) {
+        final long startNanos = System.nanoTime();
+        try {
+            sEventAggregator.add(eventId, toMap(dimensions), value);
+        } finally {
+            sBridgeMetrics.record(METHOD_LOG_AGGREGATED_EVENT, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void setAggregationWindow(double windowMillis) {
+        final long startNanos = System.nanoTime();
+        try {
+            sEventAggregator.setWindowMillis((long) windowMillis);
+        } finally {
+            sBridgeMetrics.record(METHOD_SET_AGGREGATION_WINDOW, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void setEventThrottle(String eventId, double maxPerSecond, double burst, double sampleEvery) {
+        final long startNanos = System.nanoTime();
+        try {
+            sEventThrottle.setRule(eventId, maxPerSecond, burst, (long) sampleEvery);
+        } finally {
+            sBridgeMetrics.record(METHOD_SET_EVENT_THROTTLE, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void clearEventThrottle(String eventId) {
+        final long startNanos = System.nanoTime();
+        try {
+            sEventThrottle.clearRule(eventId);
+        } finally {
+            sBridgeMetrics.record(METHOD_CLEAR_EVENT_THROTTLE, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void getEventThrottleStats(boolean reset, Promise promise) {
+        final long startNanos = System.nanoTime();
+        try {
+            promise.resolve(sEventThrottle.getStats(reset));
+        } finally {
+            sBridgeMetrics.record(METHOD_GET_EVENT_THROTTLE_STATS, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void logEventsBatch(ReadableArray events) {
+        final long startNanos = System.nanoTime();
+        try {
+            if (events == null) {
+                return;
+            }
+
+            final List<Runnable> tasks = new ArrayList<>(events.size());
+            // Journal record of each task, acknowledged once the whole batch ran.
+            final long[] recordIds = new long[events.size()];
+            for (int i = 0; i < events.size(); i++) {
+                if (events.getType(i) == ReadableType.Map) {
+                    Runnable task = toBatchedEventTask(events.getMap(i), recordIds, tasks.size());
+                    if (task != null) {
+                        tasks.add(task);
+                    }
+                }
+            }
+
+            final int count = tasks.size();
+            dispatchAfterStart(ReactNativeFlurryDispatcher.LANE_NORMAL, null, () -> {
+                for (Runnable task : tasks) {
+                    task.run();
+                }
+                acknowledge(recordIds, count);
+            }, () -> acknowledge(recordIds, count));
+        } finally {
+            sBridgeMetrics.record(METHOD_LOG_EVENTS_BATCH, startNanos);
+        }
+    }
+
+    /**
+     * @param recordIds the journal record IDs of the batch, the record of this entry is set at index.
+     * @param index     the index of the task of this entry in the batch.
+     * @return the Flurry SDK call of the entry, or null if it is dropped.
+     */
+    private static Runnable toBatchedEventTask(final ReadableMap entry, long[] recordIds, int index) {
+        if (!entry.hasKey(BATCH_EVENT_ID) || (entry.getType(BATCH_EVENT_ID) != ReadableType.String)) {
+            Log.e(TAG, "Batched event without a valid eventId is dropped.");
+            return null;
+        }
+
+        final String eventId = entry.getString(BATCH_EVENT_ID);
+        if (!sEventThrottle.tryAcquire(eventId)) {
+            return null;
+        }
+
+        Map<String, String> parameters = null;
+        if (entry.hasKey(BATCH_PARAMETERS) && (entry.getType(BATCH_PARAMETERS) == ReadableType.Map)) {
+            parameters = toMap(entry.getMap(BATCH_PARAMETERS));
+        }
+
+        // Mirror the overload selection of logEvent, logEventTimed, logEventParams, logEventParamsTimed,
+        // logEventTimedId and logEventParamsTimedId.
+        final Map<String, String> params = parameters;
+        if (entry.hasKey(BATCH_TIMED) && (entry.getType(BATCH_TIMED) == ReadableType.Boolean)) {
+            final boolean timed = entry.getBoolean(BATCH_TIMED);
+            if (timed) {
+                sTimedEvents.start(eventId, null);
+            }
+            recordIds[index] = journalTimedEvent(eventId, params, timed, null);
+            if (params != null) {
+                return () -> FlurryAgent.logEvent(eventId, params, timed);
+            } else {
+                return () -> FlurryAgent.logEvent(eventId, timed);
+            }
+        } else if (entry.hasKey(BATCH_TIMED_ID) && (entry.getType(BATCH_TIMED_ID) == ReadableType.String)) {
+            final String timedId = entry.getString(BATCH_TIMED_ID);
+            sTimedEvents.start(eventId, timedId);
+            recordIds[index] = journalTimedEvent(eventId, params, true, timedId);
+            if (params != null) {
+                return () -> FlurryAgent.logEvent(eventId, params, timedId);
+            } else {
+                return () -> FlurryAgent.logEvent(eventId, timedId);
+            }
+        }
+
+        recordIds[index] = journalEvent(eventId, params);
+        if (params != null) {
+            return () -> FlurryAgent.logEvent(eventId, params);
+        } else {
+            return () -> FlurryAgent.logEvent(eventId);
+        }
+    }
+
+    @ReactMethod
+    public void logStandardEvent(double eventId, ReadableMap parameters) {
+        final long startNanos = System.nanoTime();
+        try {
+            int id = (int) eventId;
+            if ((id < 0) || (id >= ReactNativeFlurryEvent.EVENTS.length)) {
+                Log.e(TAG, "Standard event ID is out of range: " + id);
+                return;
+            }
+
+            final FlurryEvent event = ReactNativeFlurryEvent.EVENTS[id];
+            if (!sEventThrottle.tryAcquire(event.name())) {
+                return;
+            }
+
+            final FlurryEvent.Params params = getStandardEventParams(parameters);
+            final long recordId = journalStandardEvent(event, parameters, null, null);
+            dispatchEvent(event.name(), recordId, () -> FlurryAgent.logEvent(event, params));
+        } finally {
+            sBridgeMetrics.record(METHOD_LOG_STANDARD_EVENT, startNanos);
+        }
+    }
+
+    static FlurryEvent.Params getStandardEventParams(final ReadableMap readableMap) {
+        FlurryEvent.Params params = new FlurryEvent.Params();
         if (readableMap == null) {
             return params;
         }
 
-        Iterator<Map.Entry<String, Object>> iterator = readableMap.getEntryIterator();
-        if (!iterator.hasNext()) {
-            return params;
+        Iterator<Map.Entry<String, Object>> iterator = readableMap.getEntryIterator();
+        if (!iterator.hasNext()) {
+            return params;
+        }
+
+        while (iterator.hasNext()) {
+            Map.Entry<String, Object> entry = iterator.next();
+            String key = entry.getKey();
+            if (!TextUtils.isEmpty(key)) {
+                addStandardEventParams(params, key, entry.getValue());
+            }
+        }
+
+        return params;
+    }
+
+    /**
+     * Build the standard event parameters from raw values, e.g. of a standard event replayed from the journal.
+     */
+    static FlurryEvent.Params getStandardEventParams(final Map<String, Object> values) {
+        FlurryEvent.Params params = new FlurryEvent.Params();
+        if (values == null) {
+            return params;
+        }
+
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            String key = entry.getKey();
+            if (!TextUtils.isEmpty(key)) {
+                addStandardEventParams(params, key, entry.getValue());
+            }
+        }
+        return params;
+    }
+
+    private static void addStandardEventParams(FlurryEvent.Params params, String key, Object value) {
+        int ordinal = ReactNativeFlurryEvent.getParamOrdinal(key);
+
+        // Not a standard event parameter.
+        if (ordinal < 0) {
+            params.putString(key, value.toString());
+            return;
+        }
+
+        addStandardEventParams(params, ordinal, value);
+    }
+
+    private static void addStandardEventParams(FlurryEvent.Params params, int ordinal, Object value) {
+        FlurryEvent.ParamBase stdKey = ReactNativeFlurryEvent.PARAMS[ordinal];
+
+        // Validate the type of value.
+        switch (ReactNativeFlurryEvent.PARAM_TYPES[ordinal]) {
+            case ReactNativeFlurryEvent.PARAM_TYPE_STRING:
+                if (value instanceof String) {
+                    params.putString((FlurryEvent.StringParam) stdKey, (String) value);
+                    return;
+                }
+                break;
+            case ReactNativeFlurryEvent.PARAM_TYPE_INTEGER:
+                if (value instanceof Double) {
+                    params.putLong((FlurryEvent.IntegerParam) stdKey, (long) (double) value);
+                    return;
+                }
+                break;
+            case ReactNativeFlurryEvent.PARAM_TYPE_DOUBLE:
+                if (value instanceof Double) {
+                    params.putDouble((FlurryEvent.DoubleParam) stdKey, (double) value);
+                    return;
+                }
+                break;
+            case ReactNativeFlurryEvent.PARAM_TYPE_BOOLEAN:
+                if (value instanceof Boolean) {
+                    params.putBoolean((FlurryEvent.BooleanParam) stdKey, (boolean) value);
+                    return;
+                }
+                break;
+        }
+
+        Log.e(TAG, "Wrong Standard parameter type: {" + stdKey + ", " + value + "}.");
+    }
+
+    /**
+     * Log a standard event whose standard parameters are sent by ordinal instead of by key.
+     *
+     * @param eventId          the standard event ID.
+     * @param paramOrdinals    ordinals of the standard parameters, in Flurry.EventParam order.
+     * @param paramValues      values of the standard parameters, parallel to paramOrdinals.
+     * @param customParameters optional user defined parameters.
+     */
+    @ReactMethod
+    public void logStandardEventOrdinals(double eventId, ReadableArray paramOrdinals, ReadableArray paramValues,
+                                         ReadableMap customParameters) {
+        final long startNanos = System.nanoTime();
+        try {
+            int id = (int) eventId;
+            if ((id < 0) || (id >= ReactNativeFlurryEvent.EVENTS.length)) {
+                Log.e(TAG, "Standard event ID is out of range: " + id);
+                return;
+            }
+
+            final FlurryEvent event = ReactNativeFlurryEvent.EVENTS[id];
+            if (!sEventThrottle.tryAcquire(event.name())) {
+                return;
+            }
+
+            final FlurryEvent.Params params = getStandardEventParams(customParameters);
+            if ((paramOrdinals != null) && (paramValues != null)) {
+                int count = Math.min(paramOrdinals.size(), paramValues.size());
+                for (int i = 0; i < count; i++) {
+                    int ordinal = paramOrdinals.getInt(i);
+                    if ((ordinal < 0) || (ordinal >= ReactNativeFlurryEvent.PARAMS.length)) {
+                        Log.e(TAG, "Standard parameter ordinal is out of range: " + ordinal);
+                        continue;
+                    }
+                    addStandardEventParams(params, ordinal, toObject(paramValues, i));
+                }
+            }
+
+            final long recordId = journalStandardEvent(event, customParameters, paramOrdinals, paramValues);
+            dispatchEvent(event.name(), recordId, () -> FlurryAgent.logEvent(event, params));
+        } finally {
+            sBridgeMetrics.record(METHOD_LOG_STANDARD_EVENT_ORDINALS, startNanos);
+        }
+    }
+
+    private static Object toObject(final ReadableArray readableArray, int index) {
+        switch (readableArray.getType(index)) {
+            case Boolean:
+                return readableArray.getBoolean(index);
+            case Number:
+                return readableArray.getDouble(index);
+            case String:
+                return readableArray.getString(index);
+            default:
+                return null;
+        }
+    }
+
+    @ReactMethod
+    public void endTimedEvent(String eventId) {
+        final long startNanos = System.nanoTime();
+        try {
+            sTimedEvents.end(eventId, null);
+            dispatchAfterStart(() -> FlurryAgent.endTimedEvent(eventId));
+        } finally {
+            sBridgeMetrics.record(METHOD_END_TIMED_EVENT, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void endTimedEventParams(String eventId, ReadableMap parameters) {
+        final long startNanos = System.nanoTime();
+        try {
+            final Map<String, String> params = toMap(parameters);
+            sTimedEvents.end(eventId, null);
+            dispatchAfterStart(() -> FlurryAgent.endTimedEvent(eventId, params));
+        } finally {
+            sBridgeMetrics.record(METHOD_END_TIMED_EVENT_PARAMS, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void endTimedEventId(String eventId, String timedId) {
+        final long startNanos = System.nanoTime();
+        try {
+            sTimedEvents.end(eventId, timedId);
+            dispatchAfterStart(() -> FlurryAgent.endTimedEvent(eventId, timedId));
+        } finally {
+            sBridgeMetrics.record(METHOD_END_TIMED_EVENT_ID, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void endTimedEventParamsId(String eventId, ReadableMap parameters, String timedId) {
+        final long startNanos = System.nanoTime();
+        try {
+            final Map<String, String> params = toMap(parameters);
+            sTimedEvents.end(eventId, timedId);
+            dispatchAfterStart(() -> FlurryAgent.endTimedEvent(eventId, params, timedId));
+        } finally {
+            sBridgeMetrics.record(METHOD_END_TIMED_EVENT_PARAMS_ID, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void logPayment(String productName, String productId, double quantity, double price,
+                           String currency, String transactionId, ReadableMap parameters) {
+        final long startNanos = System.nanoTime();
+        try {
+            if ((transactionId != null) && !transactionId.isEmpty() && sPaymentDedup.isDuplicate(transactionId)) {
+                Log.w(TAG, "Dropping payment with duplicate transaction ID: " + transactionId);
+                return;
+            }
+
+            final Map<String, String> params = toMap(parameters);
+            final long recordId = journalPayment(productName, productId, (int) quantity, price, currency, transactionId,
+                    params);
+            dispatchPayment(transactionId, recordId,
+                    () -> FlurryAgent.logPayment(productName, productId, (int) quantity, price,
+                            currency, transactionId, params));
+        } finally {
+            sBridgeMetrics.record(METHOD_LOG_PAYMENT, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void getPaymentDedupStats(boolean reset, Promise promise) {
+        final long startNanos = System.nanoTime();
+        try {
+            promise.resolve(sPaymentDedup.getStats(reset));
+        } finally {
+            sBridgeMetrics.record(METHOD_GET_PAYMENT_DEDUP_STATS, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void setTimedEventTimeout(double timeoutMillis, boolean autoEnd) {
+        final long startNanos = System.nanoTime();
+        try {
+            sTimedEvents.setTimeout((long) timeoutMillis, autoEnd);
+        } finally {
+            sBridgeMetrics.record(METHOD_SET_TIMED_EVENT_TIMEOUT, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void getOpenTimedEvents(Promise promise) {
+        final long startNanos = System.nanoTime();
+        try {
+            promise.resolve(sTimedEvents.getOpenEvents());
+        } finally {
+            sBridgeMetrics.record(METHOD_GET_OPEN_TIMED_EVENTS, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void onError(String errorId, String message, String errorClass) {
+        final long startNanos = System.nanoTime();
+        try {
+            // Taken now, so the breadcrumbs are the ones logged before the error.
+            final Map<String, String> crumbs = sBreadcrumbs.get(null);
+            if (!sErrorCollapser.record(errorId, message, errorClass, null, crumbs)) {
+                return;
+            }
+
+            final Map<String, String> params = ReactNativeFlurryBreadcrumbs.attach(null, crumbs);
+            if (params == null) {
+                dispatchAfterStart(ReactNativeFlurryDispatcher.LANE_HIGH, () -> FlurryAgent.onError(errorId, message, errorClass));
+            } else {
+                dispatchAfterStart(ReactNativeFlurryDispatcher.LANE_HIGH,
+                        () -> FlurryAgent.onError(errorId, message, errorClass, params));
+            }
+        } finally {
+            sBridgeMetrics.record(METHOD_ON_ERROR, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void onErrorParams(String errorId, String message, String errorClass,
+                              ReadableMap errorParams) {
+        final long startNanos = System.nanoTime();
+        try {
+            final Map<String, String> appParams = toMap(errorParams);
+            final Map<String, String> crumbs = sBreadcrumbs.get(appParams);
+            if (!sErrorCollapser.record(errorId, message, errorClass, appParams, crumbs)) {
+                return;
+            }
+
+            // Copied, the collapser keeps the app parameters of the last occurrence.
+            final Map<String, String> params = ReactNativeFlurryBreadcrumbs.attach(
+                    (appParams != null) ? new HashMap<>(appParams) : null, crumbs);
+
+            dispatchAfterStart(ReactNativeFlurryDispatcher.LANE_HIGH,
+                    () -> FlurryAgent.onError(errorId, message, errorClass, params));
+        } finally {
+            sBridgeMetrics.record(METHOD_ON_ERROR_PARAMS, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void onPageView() {
+        final long startNanos = System.nanoTime();
+        try {
+            // Deprecated API removed
+            // FlurryAgent.onPageView();
+        } finally {
+            sBridgeMetrics.record(METHOD_ON_PAGE_VIEW, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void UserPropertiesSet(String propertyName, String propertyValue) {
+        final long startNanos = System.nanoTime();
+        try {
+            dispatchAfterStart(ReactNativeFlurryDispatcher.LANE_LOW, () -> FlurryAgent.UserProperties.set(propertyName, propertyValue));
+        } finally {
+            sBridgeMetrics.record(METHOD_USER_PROPERTIES_SET, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void UserPropertiesSetList(String propertyName, ReadableArray propertyValues) {
+        final long startNanos = System.nanoTime();
+        try {
+            final List<String> values = toList(propertyValues);
+            dispatchAfterStart(ReactNativeFlurryDispatcher.LANE_LOW, () -> FlurryAgent.UserProperties.set(propertyName, values));
+        } finally {
+            sBridgeMetrics.record(METHOD_USER_PROPERTIES_SET_LIST, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void UserPropertiesAdd(String propertyName, String propertyValue) {
+        final long startNanos = System.nanoTime();
+        try {
+            dispatchAfterStart(ReactNativeFlurryDispatcher.LANE_LOW, () -> FlurryAgent.UserProperties.add(propertyName, propertyValue));
+        } finally {
+            sBridgeMetrics.record(METHOD_USER_PROPERTIES_ADD, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void UserPropertiesAddList(String propertyName, ReadableArray propertyValues) {
+        final long startNanos = System.nanoTime();
+        try {
+            final List<String> values = toList(propertyValues);
+            dispatchAfterStart(ReactNativeFlurryDispatcher.LANE_LOW, () -> FlurryAgent.UserProperties.add(propertyName, values));
+        } finally {
+            sBridgeMetrics.record(METHOD_USER_PROPERTIES_ADD_LIST, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void UserPropertiesRemove(String propertyName, String propertyValue) {
+        final long startNanos = System.nanoTime();
+        try {
+            dispatchAfterStart(ReactNativeFlurryDispatcher.LANE_LOW, () -> FlurryAgent.UserProperties.remove(propertyName, propertyValue));
+        } finally {
+            sBridgeMetrics.record(METHOD_USER_PROPERTIES_REMOVE, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void UserPropertiesRemoveList(String propertyName, ReadableArray propertyValues) {
+        final long startNanos = System.nanoTime();
+        try {
+            final List<String> values = toList(propertyValues);
+            dispatchAfterStart(ReactNativeFlurryDispatcher.LANE_LOW, () -> FlurryAgent.UserProperties.remove(propertyName, values));
+        } finally {
+            sBridgeMetrics.record(METHOD_USER_PROPERTIES_REMOVE_LIST, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void UserPropertiesRemoveAll(String propertyName) {
+        final long startNanos = System.nanoTime();
+        try {
+            dispatchAfterStart(ReactNativeFlurryDispatcher.LANE_LOW, () -> FlurryAgent.UserProperties.remove(propertyName));
+        } finally {
+            sBridgeMetrics.record(METHOD_USER_PROPERTIES_REMOVE_ALL, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void UserPropertiesFlag(String propertyName) {
+        final long startNanos = System.nanoTime();
+        try {
+            dispatchAfterStart(ReactNativeFlurryDispatcher.LANE_LOW, () -> FlurryAgent.UserProperties.flag(propertyName));
+        } finally {
+            sBridgeMetrics.record(METHOD_USER_PROPERTIES_FLAG, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void reportFullyDrawn() {
+        final long startNanos = System.nanoTime();
+        try {
+            dispatch(() -> FlurryPerformance.reportFullyDrawn());
+        } finally {
+            sBridgeMetrics.record(METHOD_REPORT_FULLY_DRAWN, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void startPerformanceResourceLogger(double handle) {
+        final long startNanos = System.nanoTime();
+        try {
+            dispatch(() -> sResourceLoggers.start((int) handle));
+        } finally {
+            sBridgeMetrics.record(METHOD_START_PERFORMANCE_RESOURCE_LOGGER, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void logPerformanceResourceLogger(double handle, String id) {
+        final long startNanos = System.nanoTime();
+        try {
+            dispatch(() -> sResourceLoggers.log((int) handle, id));
+        } finally {
+            sBridgeMetrics.record(METHOD_LOG_PERFORMANCE_RESOURCE_LOGGER, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void updateConversionValue(double conversionValue) {
+        final long startNanos = System.nanoTime();
+        try {
+            Log.i(TAG, "UpdateConversionValue is for iOS only.");
+        } finally {
+            sBridgeMetrics.record(METHOD_UPDATE_CONVERSION_VALUE, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void updateConversionValueWithEvent(double flurryEvent) {
+        final long startNanos = System.nanoTime();
+        try {
+            Log.i(TAG, "UpdateConversionValueWithEvent is for iOS only.");
+        } finally {
+            sBridgeMetrics.record(METHOD_UPDATE_CONVERSION_VALUE_WITH_EVENT, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void enableMessagingListener(boolean enable) {
+        final long startNanos = System.nanoTime();
+        try {
+            sEnableMessagingListener = enable;
+            if ((RNFlurryMessagingListener.sToken != null) && (sReactApplicationContext != null)) {
+                RNFlurryMessagingListener.sendEvent(
+                        RNFlurryMessagingListener.EventType.TokenRefresh, RNFlurryMessagingListener.sToken);
+            }
+        } finally {
+            sBridgeMetrics.record(METHOD_ENABLE_MESSAGING_LISTENER, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void willHandleMessage(boolean handled) {
+        final long startNanos = System.nanoTime();
+        try {
+            RNFlurryMessagingListener.notifyCallbackReturn(handled);
+        } finally {
+            sBridgeMetrics.record(METHOD_WILL_HANDLE_MESSAGE, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void willHandleMessageId(double messageId, boolean handled) {
+        final long startNanos = System.nanoTime();
+        try {
+            RNFlurryMessagingListener.notifyCallbackReturn((long) messageId, handled);
+        } finally {
+            sBridgeMetrics.record(METHOD_WILL_HANDLE_MESSAGE_ID, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void getMessagingMetrics(Promise promise) {
+        final long startNanos = System.nanoTime();
+        try {
+            promise.resolve(RNFlurryMessagingListener.getMetrics());
+        } finally {
+            sBridgeMetrics.record(METHOD_GET_MESSAGING_METRICS, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void registerConfigListener() {
+        final long startNanos = System.nanoTime();
+        try {
+            sRequestConfigListener.incrementAndGet();
+            ensureConfigListener();
+        } finally {
+            sBridgeMetrics.record(METHOD_REGISTER_CONFIG_LISTENER, startNanos);
+        }
+    }
+
+    /**
+     * Register the config listener once. It is needed by JS listeners, and to refresh the config cache
+     * on activation.
+     */
+    private static synchronized void ensureConfigListener() {
+        if (sRNFlurryConfigListener == null) {
+            sRNFlurryConfigListener = new RNFlurryConfigListener();
+            FlurryConfig.getInstance().registerListener(sRNFlurryConfigListener);
+        }
+    }
+
+    @ReactMethod
+    public void unregisterConfigListener() {
+        final long startNanos = System.nanoTime();
+        try {
+            int count;
+            do {
+                count = sRequestConfigListener.get();
+                if (count == 0) {
+                    Log.w(TAG, "unregisterConfigListener is called more often than registerConfigListener.");
+                    return;
+                }
+            } while (!sRequestConfigListener.compareAndSet(count, count - 1));
+        } finally {
+            sBridgeMetrics.record(METHOD_UNREGISTER_CONFIG_LISTENER, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void fetchConfig() {
+        final long startNanos = System.nanoTime();
+        try {
+            dispatch(() -> FlurryConfig.getInstance().fetchConfig());
+        } finally {
+            sBridgeMetrics.record(METHOD_FETCH_CONFIG, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void activateConfig() {
+        final long startNanos = System.nanoTime();
+        try {
+            dispatch(() -> FlurryConfig.getInstance().activateConfig());
+        } finally {
+            sBridgeMetrics.record(METHOD_ACTIVATE_CONFIG, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void getConfigString(String key, String defaultValue, Promise promise) {
+        final long startNanos = System.nanoTime();
+        try {
+            dispatch(() -> {
+                try {
+                    WritableMap map = Arguments.createMap();
+                    map.putString(key, getCachedConfigString(key, defaultValue));
+                    promise.resolve(map);
+                } catch (IllegalViewOperationException e) {
+                    promise.reject("Flurry.getConfigString", e);
+                }
+            });
+        } finally {
+            sBridgeMetrics.record(METHOD_GET_CONFIG_STRING, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void getConfigStringMap(ReadableMap keyAndDefault, Promise promise) {
+        final long startNanos = System.nanoTime();
+        try {
+            final Map<String, String> keysAndDefaults = toMap(keyAndDefault);
+            dispatch(() -> {
+                try {
+                    WritableMap map = Arguments.createMap();
+                    if (keysAndDefaults != null) {
+                        ensureConfigListener();
+                        if (sConfigCache.watch(keysAndDefaults.keySet())) {
+                            saveConfig();
+                        }
+                        ReactNativeFlurryConfigCache.Snapshot snapshot = sConfigCache.getSnapshot();
+                        for (Map.Entry<String, String> entry : keysAndDefaults.entrySet()) {
+                            String key = entry.getKey();
+                            map.putString(key, snapshot.getString(key, entry.getValue()));
+                        }
+                    }
+                    promise.resolve(map);
+                } catch (IllegalViewOperationException e) {
+                    promise.reject("Flurry.getConfigString", e);
+                }
+            });
+        } finally {
+            sBridgeMetrics.record(METHOD_GET_CONFIG_STRING_MAP, startNanos);
+        }
+    }
+
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public String getConfigStringSync(String key, String defaultValue) {
+        final long startNanos = System.nanoTime();
+        try {
+            return getCachedConfigString(key, defaultValue);
+        } finally {
+            sBridgeMetrics.record(METHOD_GET_CONFIG_STRING_SYNC, startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void watchConfigKeys(ReadableArray keys) {
+        final long startNanos = System.nanoTime();
+        try {
+            final List<String> configKeys = toList(keys);
+            if (configKeys == null) {
+                return;
+            }
+
+            ensureConfigListener();
+            dispatch(() -> {
+                if (sConfigCache.watch(configKeys)) {
+                    saveConfig();
+                }
+            });
+        } finally {
+            sBridgeMetrics.record(METHOD_WATCH_CONFIG_KEYS, startNanos);
         }
+    }
 
-        while (iterator.hasNext()) {
-            Map.Entry<String, Object> entry = iterator.next();
-            String key = entry.getKey();
-            if (!TextUtils.isEmpty(key)) {
-                addStandardEventParams(params, key, entry.getValue());
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public WritableMap getConfigSnapshot() {
+        final long startNanos = System.nanoTime();
+        try {
+            ReactNativeFlurryConfigCache.Snapshot snapshot = sConfigCache.getSnapshot();
+            WritableMap values = Arguments.createMap();
+            for (Map.Entry<String, String> entry : snapshot.values.entrySet()) {
+                if (entry.getValue() != null) {
+                    values.putString(entry.getKey(), entry.getValue());
+                } else {
+                    values.putNull(entry.getKey());
+                }
             }
+
+            WritableMap map = Arguments.createMap();
+            map.putDouble("version", snapshot.version);
+            map.putMap("values", values);
+            return map;
+        } finally {
+            sBridgeMetrics.record(METHOD_GET_CONFIG_SNAPSHOT, startNanos);
         }
+    }
 
-        return params;
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public double getConfigSnapshotVersion() {
+        final long startNanos = System.nanoTime();
+        try {
+            return sConfigCache.getSnapshot().version;
+        } finally {
+            sBridgeMetrics.record(METHOD_GET_CONFIG_SNAPSHOT_VERSION, startNanos);
+        }
     }
 
-    private static void addStandardEventParams(FlurryEvent.Params params, String key, Object value) {
-        FlurryEvent.ParamBase stdKey = null;
-        // Search all known standard event parameters.
-        for (FlurryEvent.ParamBase check : ReactNativeFlurryEvent.PARAMS) {
-            if (key.equals(check.toString())) {
-                stdKey = check;
-                break;
+    /**
+     * Get a config value from the cache. The key is watched from now on, so only its first read
+     * goes to the Flurry SDK.
+     */
+    private static String getCachedConfigString(String key, String defaultValue) {
+        ReactNativeFlurryConfigCache.Snapshot snapshot = sConfigCache.getSnapshot();
+        if (!snapshot.contains(key)) {
+            ensureConfigListener();
+            if (sConfigCache.watch(Collections.singletonList(key))) {
+                saveConfig();
             }
+            snapshot = sConfigCache.getSnapshot();
         }
+        return snapshot.getString(key, defaultValue);
+    }
 
-        // Not a standard event parameter.
-        if (stdKey == null) {
-            params.putString(key, value.toString());
+    /**
+     * Load the watched config values persisted by the last launch into the config cache.
+     */
+    private static synchronized void restoreConfig(Context context) {
+        if (sConfigStore != null) {
             return;
         }
 
-        // Validate the type of value.
-        if (value instanceof String) {
-            if (stdKey instanceof FlurryEvent.StringParam) {
-                params.putString((FlurryEvent.StringParam) stdKey, (String) value);
-                return;
-            }
-        } else if (value instanceof Double) {
-            double number = (double) value;
-            if (stdKey instanceof FlurryEvent.IntegerParam) {
-                params.putLong((FlurryEvent.IntegerParam) stdKey, (long) number);
-                return;
-            } else if (stdKey instanceof FlurryEvent.DoubleParam) {
-                params.putDouble((FlurryEvent.DoubleParam) stdKey, number);
-                return;
-            }
-        } else if (value instanceof Boolean) {
-            if (stdKey instanceof FlurryEvent.BooleanParam) {
-                params.putBoolean((FlurryEvent.BooleanParam) stdKey, (boolean) value);
-                return;
-            }
+        ReactNativeFlurryConfigStore store = new ReactNativeFlurryConfigStore(
+                new File(context.getFilesDir(), ReactNativeFlurryConfigStore.FILE_NAME));
+        Map<String, String> persisted = store.load();
+        sConfigStore = store;
+        if ((persisted != null) && !persisted.isEmpty()) {
+            // The listener reconciles the restored values when Flurry Config activates.
+            ensureConfigListener();
+            sConfigCache.restore(persisted);
         }
-
-        Log.e(TAG, "Wrong Standard parameter type: {" + key + ", " + value + "}.");
     }
 
-    @ReactMethod
-    public void endTimedEvent(String eventId) {
-        FlurryAgent.endTimedEvent(eventId);
+    /**
+     * Persist the watched config values on the dispatcher, once Flurry Config has activated.
+     * Requests made before the pending write runs are coalesced into it.
+     */
+    private static void saveConfig() {
+        final ReactNativeFlurryConfigStore store = sConfigStore;
+        if ((store == null) || !sConfigCache.isActivated()) {
+            return;
+        }
+        if (sConfigSavePending.compareAndSet(false, true)) {
+            dispatch(() -> {
+                sConfigSavePending.set(false);
+                store.save(sConfigCache.getSnapshot().values);
+            });
+        }
     }
 
     @ReactMethod
-    public void endTimedEventParams(String eventId, ReadableMap parameters) {
-        FlurryAgent.endTimedEvent(eventId, toMap(parameters));
+    public void flush(Promise promise) {
+        final long startNanos = System.nanoTime();
+        try {
+            sEventAggregator.flush();
+            sErrorCollapser.flush();
+            getDispatcher().executeAfterPending(() -> promise.resolve(null));
+        } finally {
+            sBridgeMetrics.record(METHOD_FLUSH, startNanos);
+        }
     }
 
-    @ReactMethod
-    public void endTimedEventId(String eventId, String timedId) {
-        FlurryAgent.endTimedEvent(eventId, timedId);
+    /**
+     * Set the capacity of the normal and the low priority lanes between the React Native bridge and
+     * the Flurry SDK. Takes effect only before the first Flurry call is dispatched.
+     *
+     * @param capacity the maximum number of pending calls of each lane.
+     */
+    static synchronized void setDispatchQueueCapacity(int capacity) {
+        if (capacity <= 0) {
+            Log.e(TAG, "Dispatch queue capacity must be positive: " + capacity);
+            return;
+        }
+        if (sDispatcher != null) {
+            Log.w(TAG, "Dispatch queue is already running with capacity " + sDispatcher.getCapacity() + ".");
+            return;
+        }
+        sDispatchQueueCapacity = capacity;
     }
 
-    @ReactMethod
-    public void endTimedEventParamsId(String eventId, ReadableMap parameters, String timedId) {
-        FlurryAgent.endTimedEvent(eventId, toMap(parameters), timedId);
+    /**
+     * Set how events and user property changes are handled when their lane is full. Payments,
+     * errors, breadcrumbs and the calls that resolve a promise are never dropped.
+     *
+     * @param policy             one of the OVERFLOW_ constants.
+     * @param blockTimeoutMillis how long to wait for room before dropping, 0 to wait until there is room.
+     */
+    static synchronized void setOverflowPolicy(int policy, long blockTimeoutMillis) {
+        if ((policy < OVERFLOW_BLOCK) || (policy > OVERFLOW_COALESCE) || (blockTimeoutMillis < 0)) {
+            Log.e(TAG, "Invalid overflow policy " + policy + " with timeout " + blockTimeoutMillis);
+            return;
+        }
+        sOverflowPolicy = policy;
+        sOverflowBlockTimeoutMillis = blockTimeoutMillis;
+        if (sDispatcher != null) {
+            sDispatcher.setOverflowPolicy(policy, blockTimeoutMillis);
+        }
     }
 
-    @ReactMethod
-    public void logPayment(String productName, String productId, double quantity, double price,
-                           String currency, String transactionId, ReadableMap parameters) {
-        FlurryAgent.logPayment(productName, productId, (int) quantity, price, currency, transactionId,
-                toMap(parameters));
+    private static ReactNativeFlurryDispatcher getDispatcher() {
+        ReactNativeFlurryDispatcher dispatcher = sDispatcher;
+        if (dispatcher == null) {
+            synchronized (FlurryModule.class) {
+                if (sDispatcher == null) {
+                    ReactNativeFlurryDispatcher created = new ReactNativeFlurryDispatcher(sDispatchQueueCapacity);
+                    created.setOverflowPolicy(sOverflowPolicy, sOverflowBlockTimeoutMillis);
+                    sDispatcher = created;
+                }
+                dispatcher = sDispatcher;
+            }
+        }
+        return dispatcher;
     }
 
-    @ReactMethod
-    public void onError(String errorId, String message, String errorClass) {
-        FlurryAgent.onError(errorId, message, errorClass);
+    /**
+     * Run a Flurry SDK call on the normal lane of the dispatcher thread, in the order the calls were made.
+     */
+    private static void dispatch(Runnable task) {
+        getDispatcher().execute(task);
     }
 
-    @ReactMethod
-    public void onErrorParams(String errorId, String message, String errorClass,
-                              ReadableMap errorParams) {
-        FlurryAgent.onError(errorId, message, errorClass, toMap(errorParams));
+    /**
+     * Run a Flurry SDK call on a lane of the dispatcher thread, in the order the calls of that lane were made.
+     */
+    private static void dispatch(int lane, Runnable task) {
+        getDispatcher().execute(lane, task);
     }
 
-    @ReactMethod
-    public void onPageView() {
-        // Deprecated API removed
-        // FlurryAgent.onPageView();
+    /**
+     * Run an event, user property or breadcrumb call on the dispatcher thread once the Flurry session
+     * has started. Calls made before that are buffered and replayed in order.
+     */
+    private static void dispatchAfterStart(final Runnable task) {
+        dispatchAfterStart(ReactNativeFlurryDispatcher.LANE_NORMAL, task);
     }
 
-    @ReactMethod
-    public void UserPropertiesSet(String propertyName, String propertyValue) {
-        FlurryAgent.UserProperties.set(propertyName, propertyValue);
+    private static void dispatchAfterStart(int lane, final Runnable task) {
+        dispatchAfterStart(lane, null, task, null);
     }
 
-    @ReactMethod
-    public void UserPropertiesSetList(String propertyName, ReadableArray propertyValues) {
-        FlurryAgent.UserProperties.set(propertyName, toList(propertyValues));
-    }
+    /**
+     * Run a call after the session has started, subject to the overflow policy of the dispatcher.
+     *
+     * @param coalescingKey the key of the pending calls this one can be coalesced with, may be null.
+     * @param onDropped     run if the call is dropped on overflow, may be null.
+     */
+    private static void dispatchAfterStart(final int lane, String coalescingKey, final Runnable task,
+                                           final Runnable onDropped) {
+        dispatch(lane, new ReactNativeFlurryDispatcher.DroppableTask(coalescingKey) {
+            @Override
+            public void run() {
+                sPreInitBuffer.runOrBuffer(lane, task, onDropped);
+            }
 
-    @ReactMethod
-    public void UserPropertiesAdd(String propertyName, String propertyValue) {
-        FlurryAgent.UserProperties.add(propertyName, propertyValue);
+            @Override
+            void onDropped() {
+                if (onDropped != null) {
+                    onDropped.run();
+                }
+            }
+        });
     }
 
-    @ReactMethod
-    public void UserPropertiesAddList(String propertyName, ReadableArray propertyValues) {
-        FlurryAgent.UserProperties.add(propertyName, toList(propertyValues));
-    }
+    private static void onFlurrySessionStarted() {
+        if (sSessionStartNanos == 0) {
+            sSessionStartNanos = System.nanoTime();
+        }
+        dispatch(() -> {
+            sPreInitBuffer.start();
 
-    @ReactMethod
-    public void UserPropertiesRemove(String propertyName, String propertyValue) {
-        FlurryAgent.UserProperties.remove(propertyName, propertyValue);
+            if (!sSessionStartPromises.isEmpty()) {
+                for (Promise promise : sSessionStartPromises) {
+                    promise.resolve(getStartupTimings());
+                }
+                sSessionStartPromises.clear();
+            }
+        });
     }
 
     @ReactMethod
-    public void UserPropertiesRemoveList(String propertyName, ReadableArray propertyValues) {
-        FlurryAgent.UserProperties.remove(propertyName, toList(propertyValues));
+    public void getPreInitBufferStats(Promise promise) {
+        final long startNanos = System.nanoTime();
+        try {
+            dispatch(() -> promise.resolve(sPreInitBuffer.getStats()));
+        } finally {
+            sBridgeMetrics.record(METHOD_GET_PRE_INIT_BUFFER_STATS, startNanos);
+        }
     }
 
     @ReactMethod
-    public void UserPropertiesRemoveAll(String propertyName) {
-        FlurryAgent.UserProperties.remove(propertyName);
+    public void getQueueStats(boolean reset, Promise promise) {
+        final long startNanos = System.nanoTime();
+        try {
+            WritableMap stats = getDispatcher().getStats(reset);
+            stats.putMap("preInit", sPreInitBuffer.getOverflowStats(reset));
+            promise.resolve(stats);
+        } finally {
+            sBridgeMetrics.record(METHOD_GET_QUEUE_STATS, startNanos);
+        }
     }
 
     @ReactMethod
-    public void UserPropertiesFlag(String propertyName) {
-        FlurryAgent.UserProperties.flag(propertyName);
+    public void getBridgeMetrics(boolean reset, Promise promise) {
+        final long startNanos = System.nanoTime();
+        try {
+            promise.resolve(sBridgeMetrics.getMetrics(reset));
+        } finally {
+            sBridgeMetrics.record(METHOD_GET_BRIDGE_METRICS, startNanos);
+        }
     }
 
-    @ReactMethod
-    public void reportFullyDrawn() {
-        FlurryPerformance.reportFullyDrawn();
+    private static File getJournalDirectory(Context context) {
+        return new File(context.getFilesDir(), ReactNativeFlurryJournal.DIRECTORY);
     }
 
-    @ReactMethod
-    public void startPerformanceResourceLogger() {
-        sFlurryPerformanceResourceLogger = new FlurryPerformance.ResourceLogger();
-    }
+    /**
+     * Open the event journal, and replay the records that were not forwarded before the last exit.
+     */
+    private static synchronized void openJournal(Context context) {
+        if (sJournal != null) {
+            return;
+        }
 
-    @ReactMethod
-    public void logPerformanceResourceLogger(String id) {
-        if (sFlurryPerformanceResourceLogger != null) {
-            sFlurryPerformanceResourceLogger.logEvent(id);
+        ReactNativeFlurryJournal journal;
+        try {
+            journal = ReactNativeFlurryJournal.open(getJournalDirectory(context));
+        } catch (IOException e) {
+            Log.e(TAG, "Flurry event journal cannot be opened.", e);
+            return;
+        }
+        sJournal = journal;
+
+        // Checked against the transaction IDs the Flurry SDK took before the last exit.
+        openPaymentDedup(context);
+        for (ReactNativeFlurryJournal.Record record : journal.takeRecovered()) {
+            if (record.transactionId == null) {
+                dispatchJournaled(record.id, record.task);
+            } else if (!record.transactionId.isEmpty() && sPaymentDedup.isDuplicate(record.transactionId)) {
+                Log.w(TAG, "Dropping replayed payment with duplicate transaction ID: " + record.transactionId);
+                journal.acknowledge(record.id);
+            } else {
+                dispatchPayment(record.transactionId, record.id, record.task);
+            }
         }
     }
 
-    @ReactMethod
-    public void updateConversionValue(double conversionValue) {
-        Log.i(TAG, "UpdateConversionValue is for iOS only.");
+    private static void openPaymentDedup(Context context) {
+        sPaymentDedup.open(new File(context.getFilesDir(), ReactNativeFlurryPaymentDedup.FILE_NAME));
     }
 
-    @ReactMethod
-    public void updateConversionValueWithEvent(double flurryEvent) {
-        Log.i(TAG, "UpdateConversionValueWithEvent is for iOS only.");
+    private static long journalEvent(String eventId, Map<String, String> parameters) {
+        ReactNativeFlurryJournal journal = sJournal;
+        if (!sJournalEnabled || (journal == null)) {
+            return ReactNativeFlurryJournal.NO_RECORD;
+        }
+        return journal.appendEvent(eventId, parameters);
     }
 
-    @ReactMethod
-    public void enableMessagingListener(boolean enable) {
-        sEnableMessagingListener = enable;
-        if ((RNFlurryMessagingListener.sToken != null) && (sReactApplicationContext != null)) {
-            RNFlurryMessagingListener.sendEvent(
-                    RNFlurryMessagingListener.EventType.TokenRefresh, RNFlurryMessagingListener.sToken);
+    private static long journalTimedEvent(String eventId, Map<String, String> parameters, boolean timed,
+                                          String timedId) {
+        ReactNativeFlurryJournal journal = sJournal;
+        if (!sJournalEnabled || (journal == null)) {
+            return ReactNativeFlurryJournal.NO_RECORD;
         }
+        return journal.appendTimedEvent(eventId, parameters, timed, timedId);
     }
 
-    @ReactMethod
-    public void willHandleMessage(boolean handled) {
-        RNFlurryMessagingListener.notifyCallbackReturn(handled);
+    /**
+     * Journal a standard event by the raw values its parameters are built from, the standard
+     * parameters sent by ordinal overriding the ones of the same key.
+     */
+    private static long journalStandardEvent(FlurryEvent event, ReadableMap parameters,
+                                             ReadableArray paramOrdinals, ReadableArray paramValues) {
+        ReactNativeFlurryJournal journal = sJournal;
+        if (!sJournalEnabled || (journal == null)) {
+            return ReactNativeFlurryJournal.NO_RECORD;
+        }
+
+        Map<String, Object> values = new HashMap<>();
+        if (parameters != null) {
+            Iterator<Map.Entry<String, Object>> iterator = parameters.getEntryIterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Object> entry = iterator.next();
+                values.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if ((paramOrdinals != null) && (paramValues != null)) {
+            int count = Math.min(paramOrdinals.size(), paramValues.size());
+            for (int i = 0; i < count; i++) {
+                int ordinal = paramOrdinals.getInt(i);
+                if ((ordinal >= 0) && (ordinal < ReactNativeFlurryEvent.PARAMS.length)) {
+                    values.put(ReactNativeFlurryEvent.PARAMS[ordinal].toString(), toObject(paramValues, i));
+                }
+            }
+        }
+        return journal.appendStandardEvent(event, values);
     }
 
-    @ReactMethod
-    public void registerConfigListener() {
-        sRequestConfigListener++;
-        if (sRNFlurryConfigListener == null) {
-            sRNFlurryConfigListener = new RNFlurryConfigListener();
-            FlurryConfig.getInstance().registerListener(sRNFlurryConfigListener);
+    private static long journalPayment(String productName, String productId, int quantity, double price,
+                                       String currency, String transactionId, Map<String, String> parameters) {
+        ReactNativeFlurryJournal journal = sJournal;
+        if (!sJournalEnabled || (journal == null)) {
+            return ReactNativeFlurryJournal.NO_RECORD;
         }
+        return journal.appendPayment(productName, productId, quantity, price, currency, transactionId, parameters);
     }
 
-    @ReactMethod
-    public void unregisterConfigListener() {
-        sRequestConfigListener--;
+    /**
+     * Acknowledge the journal records of a batch, skipping the entries that were not journaled.
+     */
+    private static void acknowledge(long[] recordIds, int count) {
+        for (int i = 0; i < count; i++) {
+            if (recordIds[i] != ReactNativeFlurryJournal.NO_RECORD) {
+                sJournal.acknowledge(recordIds[i]);
+            }
+        }
     }
 
-    @ReactMethod
-    public void fetchConfig() {
-        FlurryConfig.getInstance().fetchConfig();
+    /**
+     * Dispatch a journaled call, and move the journal checkpoint past it once the Flurry SDK accepted it.
+     */
+    private static void dispatchJournaled(final long recordId, final Runnable task) {
+        dispatchJournaled(ReactNativeFlurryDispatcher.LANE_NORMAL, null, recordId, task);
     }
 
-    @ReactMethod
-    public void activateConfig() {
-        FlurryConfig.getInstance().activateConfig();
+    /**
+     * Dispatch a custom or standard event, which a pending event of the same name can coalesce on overflow.
+     */
+    private static void dispatchEvent(String eventId, final long recordId, final Runnable task) {
+        dispatchJournaled(ReactNativeFlurryDispatcher.LANE_NORMAL, eventId, recordId, task);
     }
 
-    @ReactMethod
-    public void getConfigString(String key, String defaultValue, Promise promise) {
-        try {
-            WritableMap map = Arguments.createMap();
-            map.putString(key, FlurryConfig.getInstance().getString(key, defaultValue));
-            promise.resolve(map);
-        } catch (IllegalViewOperationException e) {
-            promise.reject("Flurry.getConfigString", e);
+    /**
+     * Dispatch a payment on the high lane. Its transaction ID is remembered by the dedup once the
+     * Flurry SDK took it, before the journal record is acknowledged.
+     */
+    private static void dispatchPayment(final String transactionId, final long recordId, final Runnable task) {
+        if ((transactionId == null) || transactionId.isEmpty()) {
+            dispatchJournaled(ReactNativeFlurryDispatcher.LANE_HIGH, null, recordId, task);
+            return;
         }
+
+        dispatchJournaled(ReactNativeFlurryDispatcher.LANE_HIGH, null, recordId, () -> {
+            task.run();
+            sPaymentDedup.forwarded(transactionId);
+        }, () -> sPaymentDedup.release(transactionId));
     }
 
-    @ReactMethod
-    public void getConfigStringMap(ReadableMap keyAndDefault, Promise promise) {
-        try {
-            WritableMap map = Arguments.createMap();
-            if (keyAndDefault != null) {
-                ReadableMapKeySetIterator iterator = keyAndDefault.keySetIterator();
-                while (iterator.hasNextKey()) {
-                    String key = iterator.nextKey();
-                    String defaultValue = keyAndDefault.getString(key);
-                    map.putString(key, FlurryConfig.getInstance().getString(key, defaultValue));
-                }
-            }
-            promise.resolve(map);
-        } catch (IllegalViewOperationException e) {
-            promise.reject("Flurry.getConfigString", e);
+    private static void dispatchJournaled(int lane, String coalescingKey, final long recordId, final Runnable task) {
+        dispatchJournaled(lane, coalescingKey, recordId, task, null);
+    }
+
+    /**
+     * @param onDropped run if the call is dropped, before its record is acknowledged, may be null.
+     */
+    private static void dispatchJournaled(int lane, String coalescingKey, final long recordId, final Runnable task,
+                                          final Runnable onDropped) {
+        if (recordId == ReactNativeFlurryJournal.NO_RECORD) {
+            dispatchAfterStart(lane, coalescingKey, task, onDropped);
+            return;
         }
+
+        // A call dropped on overflow is not replayed on the next launch either.
+        dispatchAfterStart(lane, coalescingKey, () -> {
+            task.run();
+            sJournal.acknowledge(recordId);
+        }, () -> {
+            if (onDropped != null) {
+                onDropped.run();
+            }
+            sJournal.acknowledge(recordId);
+        });
     }
 
-    private static Map<String, String> toMap(final ReadableMap readableMap) {
+    static Map<String, String> toMap(final ReadableMap readableMap) {
         if (readableMap == null) {
             return null;
         }
 
-        ReadableMapKeySetIterator iterator = readableMap.keySetIterator();
-        if (!iterator.hasNextKey()) {
+        // ReadableMap does not expose its size, the map is sized for the Flurry parameter limit.
+        Iterator<Map.Entry<String, Object>> iterator = readableMap.getEntryIterator();
+        if (!iterator.hasNext()) {
             return null;
         }
 
-        Map<String, String> result = new HashMap<>();
-        while (iterator.hasNextKey()) {
-            String key = iterator.nextKey();
-            result.put(key, readableMap.getString(key));
+        Map<String, String> result = new HashMap<>(PARAMS_CAPACITY);
+        while (iterator.hasNext()) {
+            Map.Entry<String, Object> entry = iterator.next();
+            result.put(entry.getKey(), toParamString(entry.getValue()));
         }
 
         return result;
     }
 
-    private static List<String> toList(final ReadableArray readableArray) {
+    /**
+     * Convert a JS parameter value to a string. Numbers and booleans are coerced,
+     * integral numbers are written without a fraction.
+     */
+    static String toParamString(final Object value) {
+        if ((value == null) || (value instanceof String)) {
+            return (String) value;
+        }
+
+        if (value instanceof Double) {
+            double number = (Double) value;
+            if ((number == Math.rint(number)) && (Math.abs(number) < 1e15)) {
+                return Long.toString((long) number);
+            }
+        }
+        return value.toString();
+    }
+
+    static List<String> toList(final ReadableArray readableArray) {
         if ((readableArray == null) || (readableArray.size() == 0)) {
             return null;
         }
@@ -714,7 +2347,7 @@ public class FlurryModule extends ReactContextBaseJavaModule {
         return result;
     }
 
-    private static Set<Integer> toIntegerSet(final ReadableArray readableArray) {
+    static Set<Integer> toIntegerSet(final ReadableArray readableArray) {
         if ((readableArray == null) || (readableArray.size() == 0)) {
             return null;
         }
@@ -738,6 +2371,12 @@ public class FlurryModule extends ReactContextBaseJavaModule {
         public Builder() {
             mFlurryAgentBuilder = new FlurryAgent.Builder();
             mFlurryAgentBuilder
+                    .withListener(new FlurryAgentListener() {
+                        @Override
+                        public void onSessionStarted() {
+                            onFlurrySessionStarted();
+                        }
+                    })
                     .withSessionForceStart(true)
                     .withReportLocation(true);
         }
@@ -939,7 +2578,50 @@ public class FlurryModule extends ReactContextBaseJavaModule {
             return this;
         }
 
+        /**
+         * Set the capacity of the normal and the low priority lanes between the React Native bridge
+         * and the Flurry SDK. Calls are blocked when their lane is full, payments, errors and
+         * breadcrumbs never are. Default is 1024.
+         *
+         * @param capacity the maximum number of pending calls of each lane.
+         * @return The Builder instance.
+         */
+        public Builder withDispatchQueueCapacity(final int capacity) {
+            setDispatchQueueCapacity(capacity);
+            return this;
+        }
+
+        /**
+         * Set how events and user property changes are handled when their lane is full, one of
+         * OVERFLOW_BLOCK (default), OVERFLOW_DROP_NEWEST, OVERFLOW_DROP_OLDEST or OVERFLOW_COALESCE.
+         * Payments, errors and breadcrumbs are never dropped.
+         *
+         * @param policy             the overflow policy.
+         * @param blockTimeoutMillis how long OVERFLOW_BLOCK and OVERFLOW_COALESCE wait for room before
+         *                           dropping the call, 0 to wait until there is room.
+         * @return The Builder instance.
+         */
+        public Builder withOverflowPolicy(final int policy, final long blockTimeoutMillis) {
+            setOverflowPolicy(policy, blockTimeoutMillis);
+            return this;
+        }
+
+        /**
+         * True to write events and payments to an on-disk journal before they are handed to the
+         * Flurry SDK, and replay them on the next launch if the app is killed first. Defaults to false.
+         *
+         * @param enableJournal true to enable the event journal.
+         * @return The Builder instance.
+         */
+        public Builder withEventJournal(final boolean enableJournal) {
+            sJournalEnabled = enableJournal;
+            return this;
+        }
+
         public void build(final Context context, final String apiKey) {
+            if (sJournalEnabled) {
+                openJournal(context.getApplicationContext());
+            }
             mFlurryAgentBuilder.build(context, apiKey);
         }
     }
@@ -968,29 +2650,41 @@ public class FlurryModule extends ReactContextBaseJavaModule {
 
         @Override
         public void onFetchSuccess() {
-            if ((sRequestConfigListener > 0) && (sReactApplicationContext != null)) {
+            if ((sRequestConfigListener.get() > 0) && (sReactApplicationContext != null)) {
                 sendEvent(EventType.FetchSuccess);
             }
         }
 
         @Override
         public void onFetchNoChange() {
-            if ((sRequestConfigListener > 0) && (sReactApplicationContext != null)) {
+            if ((sRequestConfigListener.get() > 0) && (sReactApplicationContext != null)) {
                 sendEvent(EventType.FetchNoChange);
             }
         }
 
         @Override
         public void onFetchError(boolean value) {
-            if ((sRequestConfigListener > 0) && (sReactApplicationContext != null)) {
+            if ((sRequestConfigListener.get() > 0) && (sReactApplicationContext != null)) {
                 sendEvent(EventType.FetchError, "isRetrying", value);
             }
         }
 
         @Override
         public void onActivateComplete(boolean value) {
-            if ((sRequestConfigListener > 0) && (sReactApplicationContext != null)) {
-                sendEvent(EventType.ActivateComplete, "isCache", value);
+            // Diff the watched keys, so that JS subscribers re-read only what changed.
+            Map<String, String> changed = sConfigCache.refresh();
+            saveConfig();
+
+            if ((sRequestConfigListener.get() > 0) && (sReactApplicationContext != null)) {
+                WritableMap changedMap = Arguments.createMap();
+                for (Map.Entry<String, String> entry : changed.entrySet()) {
+                    if (entry.getValue() != null) {
+                        changedMap.putString(entry.getKey(), entry.getValue());
+                    } else {
+                        changedMap.putNull(entry.getKey());
+                    }
+                }
+                sendEvent(EventType.ActivateComplete, "isCache", value, changedMap);
             }
         }
 
@@ -999,11 +2693,18 @@ public class FlurryModule extends ReactContextBaseJavaModule {
         }
 
         private void sendEvent(EventType type, String key, boolean value) {
+            sendEvent(type, key, value, null);
+        }
+
+        private void sendEvent(EventType type, String key, boolean value, WritableMap changed) {
             WritableMap params = Arguments.createMap();
             params.putString("Type", type.getName());
             if (key != null) {
                 params.putBoolean(key, value);
             }
+            if (changed != null) {
+                params.putMap("Changed", changed);
+            }
 
             sReactApplicationContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
                     .emit(FLURRY_CONFIG_EVENT, params);
@@ -1026,10 +2727,33 @@ public class FlurryModule extends ReactContextBaseJavaModule {
      * Wrapper Flurry Messaging listener.
      */
     static class RNFlurryMessagingListener implements FlurryMessagingListener {
-        private volatile static boolean sCallbackReturnValue = false;
-        private volatile static boolean sIsCallbackReturn = false;
+        private static final long CALLBACK_TIMEOUT_MILLIS = 300;
+
         private volatile static String sToken = null;
 
+        // Messages waiting for Flurry.willHandleMessage, keyed by message ID. Ordered, so that an answer
+        // without a message ID goes to the oldest pending message.
+        private static final ConcurrentSkipListMap<Long, PendingReturn> sPendingReturns = new ConcurrentSkipListMap<>();
+        private static final AtomicLong sNextMessageId = new AtomicLong();
+
+        private static final AtomicLong sAnsweredCount = new AtomicLong();
+        private static final AtomicLong sTimeoutCount = new AtomicLong();
+        private static final AtomicLong sTotalLatencyNanos = new AtomicLong();
+        private static final AtomicLong sMaxLatencyNanos = new AtomicLong();
+
+        /**
+         * Pending answer for one message, completed by willHandleMessage or abandoned on timeout.
+         */
+        private static class PendingReturn {
+            final CountDownLatch latch = new CountDownLatch(1);
+            volatile boolean value = false;
+
+            void complete(boolean returnValue) {
+                value = returnValue;
+                latch.countDown();
+            }
+        }
+
         enum EventType {
             NotificationReceived("NotificationReceived"),
             NotificationClicked("NotificationClicked"),
@@ -1088,8 +2812,11 @@ public class FlurryModule extends ReactContextBaseJavaModule {
         }
 
         private static boolean sendEvent(EventType type, FlurryMessage flurryMessage, boolean waitReturn) {
+            long messageId = sNextMessageId.incrementAndGet();
+
             WritableMap params = Arguments.createMap();
             params.putString("Type", type.getName());
+            params.putDouble("MessageId", messageId);
             params.putString("Title", flurryMessage.getTitle());
             params.putString("Body", flurryMessage.getBody());
             params.putString("ClickAction", flurryMessage.getClickAction());
@@ -1101,12 +2828,16 @@ public class FlurryModule extends ReactContextBaseJavaModule {
             }
             params.putMap("Data", data);
 
-            sCallbackReturnValue = false;
-            sIsCallbackReturn = !waitReturn;
+            PendingReturn pending = null;
+            if (waitReturn) {
+                pending = new PendingReturn();
+                sPendingReturns.put(messageId, pending);
+            }
+
             sReactApplicationContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
                     .emit(FLURRY_MESSAGING_EVENT, params);
-            waitCallbackReturn();
-            return sCallbackReturnValue;
+
+            return (pending != null) && waitCallbackReturn(messageId, pending);
         }
 
         private static void sendEvent(EventType type, String token) {
@@ -1118,25 +2849,65 @@ public class FlurryModule extends ReactContextBaseJavaModule {
                     .emit(FLURRY_MESSAGING_EVENT, params);
         }
 
-        private static void waitCallbackReturn() {
-            synchronized (sReactApplicationContext) {
-                if (!sIsCallbackReturn) {
-                    try {
-                        sReactApplicationContext.wait(300);
-                    } catch (InterruptedException e) {
-                        Log.e(TAG, "Interrupted Exception!", e);
-                    }
+        private static boolean waitCallbackReturn(long messageId, PendingReturn pending) {
+            long start = System.nanoTime();
+            boolean answered = false;
+            try {
+                answered = pending.latch.await(CALLBACK_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Log.e(TAG, "Interrupted Exception!", e);
+                Thread.currentThread().interrupt();
+            } finally {
+                sPendingReturns.remove(messageId);
+            }
+
+            if (!answered) {
+                sTimeoutCount.incrementAndGet();
+                return false;
+            }
+
+            long latency = System.nanoTime() - start;
+            sAnsweredCount.incrementAndGet();
+            sTotalLatencyNanos.addAndGet(latency);
+            long max;
+            while (latency > (max = sMaxLatencyNanos.get())) {
+                if (sMaxLatencyNanos.compareAndSet(max, latency)) {
+                    break;
                 }
             }
+            return pending.value;
         }
 
+        /**
+         * Answer the oldest message still waiting, for callers that do not pass a message ID.
+         */
         private static void notifyCallbackReturn(boolean returnValue) {
-            synchronized (sReactApplicationContext) {
-                sCallbackReturnValue = returnValue;
-                sIsCallbackReturn = true;
-                sReactApplicationContext.notifyAll();
+            Map.Entry<Long, PendingReturn> oldest = sPendingReturns.pollFirstEntry();
+            if (oldest != null) {
+                oldest.getValue().complete(returnValue);
+            }
+        }
+
+        private static void notifyCallbackReturn(long messageId, boolean returnValue) {
+            PendingReturn pending = sPendingReturns.remove(messageId);
+            if (pending != null) {
+                pending.complete(returnValue);
+            } else {
+                Log.w(TAG, "No pending message for willHandleMessage, it may have timed out: " + messageId);
             }
         }
+
+        private static WritableMap getMetrics() {
+            long answered = sAnsweredCount.get();
+            WritableMap map = Arguments.createMap();
+            map.putDouble("answered", answered);
+            map.putDouble("timeouts", sTimeoutCount.get());
+            map.putDouble("pending", sPendingReturns.size());
+            map.putDouble("averageLatencyMillis",
+                    (answered == 0) ? 0 : sTotalLatencyNanos.get() / (double) answered / 1000000.0);
+            map.putDouble("maxLatencyMillis", sMaxLatencyNanos.get() / 1000000.0);
+            return map;
+        }
     }
 
 }
@@ -16,29 +16,43 @@
 
 package com.flurry.android.reactnative;
 
-import com.facebook.react.ReactPackage;
+import com.facebook.react.TurboReactPackage;
 import com.facebook.react.bridge.NativeModule;
 import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.uimanager.ViewManager;
+import com.facebook.react.module.model.ReactModuleInfo;
+import com.facebook.react.module.model.ReactModuleInfoProvider;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
-public class FlurryPackage implements ReactPackage {
+/**
+ * Registers FlurryModule lazily. It is a TurboModule when the new architecture is enabled,
+ * and a classic bridge native module otherwise.
+ */
+public class FlurryPackage extends TurboReactPackage {
 
     @Override
-    public List<NativeModule> createNativeModules(ReactApplicationContext reactContext) {
-        List<NativeModule> modules = new ArrayList<>();
-
-        modules.add(new FlurryModule(reactContext));
-
-        return modules;
+    public NativeModule getModule(String name, ReactApplicationContext reactContext) {
+        if (FlurryModule.REACT_CLASS.equals(name)) {
+            return new FlurryModule(reactContext);
+        }
+        return null;
     }
 
     @Override
-    public List<ViewManager> createViewManagers(ReactApplicationContext reactContext) {
-        return Collections.emptyList();
+    public ReactModuleInfoProvider getReactModuleInfoProvider() {
+        return () -> {
+            Map<String, ReactModuleInfo> moduleInfos = new HashMap<>();
+            moduleInfos.put(FlurryModule.REACT_CLASS, new ReactModuleInfo(
+                    FlurryModule.REACT_CLASS,
+                    FlurryModule.class.getName(),
+                    false,  // canOverrideExistingModule
+                    false,  // needsEagerInit
+                    false,  // hasConstants
+                    false,  // isCxxModule
+                    BuildConfig.IS_NEW_ARCHITECTURE_ENABLED));  // isTurboModule
+            return moduleInfos;
+        };
     }
 
 }
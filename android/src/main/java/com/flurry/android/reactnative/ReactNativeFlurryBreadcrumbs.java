@@ -0,0 +1,132 @@
+/*
+ * Copyright 2023, Yahoo Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flurry.android.reactnative;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Fixed-size ring of the most recent breadcrumbs and the time they were logged.
+ *
+ * Adding a breadcrumb stores its reference and time in preallocated slots, overwriting the
+ * oldest, and allocates nothing. The last breadcrumbs are attached to errors as parameters,
+ * "breadcrumb1" being the most recent, so every error carries the context that led to it.
+ */
+class ReactNativeFlurryBreadcrumbs {
+    private static final String TAG = "FlurryBreadcrumbs";
+
+    static final int CAPACITY = 32;
+    static final int DEFAULT_ATTACH_COUNT = 5;
+    // Flurry keeps up to 10 parameters per error.
+    static final int MAX_PARAMETERS = 10;
+    static final int MAX_ATTACH_COUNT = MAX_PARAMETERS;
+
+    static final String PARAM_PREFIX = "breadcrumb";
+    private static final int MAX_VALUE_LENGTH = 255;
+
+    private final String[] mCrumbs = new String[CAPACITY];
+    private final long[] mRealtimes = new long[CAPACITY];
+    private long mCount = 0;
+
+    private volatile int mAttachCount = DEFAULT_ATTACH_COUNT;
+
+    /**
+     * @param count the number of breadcrumbs attached to each error, 0 to attach none.
+     */
+    void setAttachCount(int count) {
+        if ((count < 0) || (count > MAX_ATTACH_COUNT)) {
+            Log.e(TAG, "Breadcrumbs attached to errors must be between 0 and " + MAX_ATTACH_COUNT + ": " + count);
+            return;
+        }
+        mAttachCount = count;
+    }
+
+    synchronized void add(String crumb) {
+        int index = (int) (mCount % CAPACITY);
+        mCrumbs[index] = crumb;
+        mRealtimes[index] = SystemClock.elapsedRealtime();
+        mCount++;
+    }
+
+    /**
+     * Get the last breadcrumbs to attach to an error, most recent first. Names already set by the
+     * app are left out, and only as many breadcrumbs are taken as fit in the Flurry parameter limit.
+     *
+     * @param parameters the error parameters, may be null.
+     * @return the breadcrumb parameters in order, or null if there are none.
+     */
+    Map<String, String> get(Map<String, String> parameters) {
+        int attachCount = mAttachCount;
+        if (attachCount == 0) {
+            return null;
+        }
+
+        synchronized (this) {
+            int room = MAX_PARAMETERS - ((parameters != null) ? parameters.size() : 0);
+            int count = (int) Math.min(Math.min(attachCount, room), mCount);
+            if (count <= 0) {
+                return null;
+            }
+
+            Map<String, String> crumbs = new LinkedHashMap<>();
+            long now = SystemClock.elapsedRealtime();
+            for (int i = 1; i <= count; i++) {
+                int index = (int) ((mCount - i) % CAPACITY);
+                String key = PARAM_PREFIX + i;
+                if ((parameters == null) || !parameters.containsKey(key)) {
+                    crumbs.put(key, format(mCrumbs[index], now - mRealtimes[index]));
+                }
+            }
+            return crumbs;
+        }
+    }
+
+    /**
+     * Add breadcrumbs to the parameters of an error, in order while they fit in the Flurry
+     * parameter limit. Parameters already set are kept.
+     *
+     * @param parameters the error parameters, may be null.
+     * @param crumbs     the breadcrumbs from {@link #get(Map)}, may be null.
+     * @return the parameters with the breadcrumbs, a new map if parameters is null.
+     */
+    static Map<String, String> attach(Map<String, String> parameters, Map<String, String> crumbs) {
+        if (crumbs == null) {
+            return parameters;
+        }
+
+        Map<String, String> result = (parameters != null) ? parameters : new HashMap<String, String>();
+        for (Map.Entry<String, String> crumb : crumbs.entrySet()) {
+            if (result.size() >= MAX_PARAMETERS) {
+                break;
+            }
+            if (!result.containsKey(crumb.getKey())) {
+                result.put(crumb.getKey(), crumb.getValue());
+            }
+        }
+        return result;
+    }
+
+    private static String format(String crumb, long ageMillis) {
+        String value = "-" + ageMillis + "ms " + crumb;
+        return (value.length() > MAX_VALUE_LENGTH) ? value.substring(0, MAX_VALUE_LENGTH) : value;
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2023, Yahoo Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flurry.android.reactnative;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Call counts and latency histograms of the FlurryModule bridge methods.
+ *
+ * Methods are registered once by name, and calls are recorded by the returned index. Latencies
+ * are counted in fixed power-of-two microsecond buckets. Bridge calls arrive on the
+ * native-modules thread and, for the synchronous methods, on the JS thread, and the dispatcher
+ * lane metrics are recorded by every producer and the worker. So each histogram is striped by
+ * calling thread over one AtomicLongArray, the stripes padded apart so they do not share a cache
+ * line. Recording a call takes two atomic adds and neither allocates nor looks the method up.
+ * LongAdder would need API 24.
+ */
+class ReactNativeFlurryBridgeMetrics {
+
+    // Bucket i counts latencies below 2^i microseconds, the last bucket counts the rest.
+    private static final int BUCKETS = 24;
+    private static final int SUM_OFFSET = BUCKETS;  // Buckets, then the latency sum in nanoseconds.
+    private static final int STRIPES = 4;
+    // The 25 counters of a stripe, padded to 256 bytes.
+    private static final int STRIPE_SIZE = 32;
+
+    private static final class Histogram {
+        final AtomicLongArray counters = new AtomicLongArray(STRIPES * STRIPE_SIZE);
+
+        void record(long nanos) {
+            int bucket = 64 - Long.numberOfLeadingZeros(nanos / 1000);
+            if (bucket >= BUCKETS) {
+                bucket = BUCKETS - 1;
+            }
+            int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1)) * STRIPE_SIZE;
+            counters.getAndIncrement(stripe + bucket);
+            counters.getAndAdd(stripe + SUM_OFFSET, nanos);
+        }
+
+        boolean isRecorded() {
+            for (int stripe = 0; stripe < STRIPES * STRIPE_SIZE; stripe += STRIPE_SIZE) {
+                if (counters.get(stripe + SUM_OFFSET) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        WritableMap toMap(boolean reset) {
+            long[] buckets = new long[BUCKETS];
+            long count = 0;
+            long sum = 0;
+            for (int stripe = 0; stripe < STRIPES * STRIPE_SIZE; stripe += STRIPE_SIZE) {
+                for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                    long value = reset ? counters.getAndSet(stripe + bucket, 0) : counters.get(stripe + bucket);
+                    buckets[bucket] += value;
+                    count += value;
+                }
+                sum += reset ? counters.getAndSet(stripe + SUM_OFFSET, 0) : counters.get(stripe + SUM_OFFSET);
+            }
+
+            WritableMap map = Arguments.createMap();
+            map.putDouble("count", count);
+            map.putDouble("meanMillis", (count > 0) ? (sum / (double) count) / 1000000 : 0);
+            map.putDouble("p50Millis", percentile(buckets, count, 0.50));
+            map.putDouble("p90Millis", percentile(buckets, count, 0.90));
+            map.putDouble("p99Millis", percentile(buckets, count, 0.99));
+            return map;
+        }
+
+        /**
+         * @return the upper bound of the bucket holding the percentile, in milliseconds.
+         */
+        private static double percentile(long[] buckets, long count, double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+
+            long rank = (long) Math.ceil(count * percentile);
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                seen += buckets[bucket];
+                if (seen >= rank) {
+                    return (1L << bucket) / 1000.0;
+                }
+            }
+            return (1L << (BUCKETS - 1)) / 1000.0;
+        }
+    }
+
+    // Only grown while registering, before any call is recorded.
+    private final List<String> mMethods = new ArrayList<>();
+    private final List<Histogram> mHistograms = new ArrayList<>();
+
+    /**
+     * Register a bridge method, e.g. from a static initializer of the module.
+     *
+     * @param method the bridge method name.
+     * @return the index to record the calls of the method with.
+     */
+    synchronized int register(String method) {
+        mMethods.add(method);
+        mHistograms.add(new Histogram());
+        return mHistograms.size() - 1;
+    }
+
+    /**
+     * Record one call of a bridge method.
+     *
+     * @param method     the index of the bridge method from {@link #register(String)}.
+     * @param startNanos the System.nanoTime() when the call started.
+     */
+    void record(int method, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        mHistograms.get(method).record(Math.max(0, nanos));
+    }
+
+    /**
+     * Get the metrics of the called bridge methods, keyed by method name.
+     *
+     * @param reset true to clear the counters after reading them.
+     * @return the count, mean and p50/p90/p99 latencies of each method.
+     */
+    WritableMap getMetrics(boolean reset) {
+        WritableMap map = Arguments.createMap();
+        for (int method = 0; method < mHistograms.size(); method++) {
+            Histogram histogram = mHistograms.get(method);
+            if (histogram.isRecorded()) {
+                map.putMap(mMethods.get(method), histogram.toMap(reset));
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Get the metrics of one method, zero if it was not called.
+     *
+     * @param method the index of the method from {@link #register(String)}.
+     * @param reset  true to clear the counters after reading them.
+     * @return the count, mean and p50/p90/p99 latencies of the method.
+     */
+    WritableMap getMetrics(int method, boolean reset) {
+        return mHistograms.get(method).toMap(reset);
+    }
+
+}
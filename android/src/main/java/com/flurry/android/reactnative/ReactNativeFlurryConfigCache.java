@@ -0,0 +1,150 @@
+/*
+ * Copyright 2023, Yahoo Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flurry.android.reactnative;
+
+import com.flurry.android.FlurryConfig;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable snapshots of the watched Flurry Config keys.
+ *
+ * Readers get the current snapshot without locking and without calling the Flurry SDK. A new
+ * snapshot is built and swapped in when Flurry Config activates or new keys are watched, and the
+ * version is increased so that callers can tell whether anything changed since their last read.
+ *
+ * At cold start the snapshot can be seeded with the values persisted by the last launch, which
+ * answer reads until Flurry Config activates and the watched keys are re-read.
+ */
+class ReactNativeFlurryConfigCache {
+
+    /**
+     * A consistent set of config values. Keys that are watched but not defined in Flurry Config
+     * are present with a null value.
+     */
+    static final class Snapshot {
+        final long version;
+        final Map<String, String> values;
+
+        Snapshot(long version, Map<String, String> values) {
+            this.version = version;
+            this.values = Collections.unmodifiableMap(values);
+        }
+
+        boolean contains(String key) {
+            return values.containsKey(key);
+        }
+
+        String getString(String key, String defaultValue) {
+            String value = values.get(key);
+            return (value != null) ? value : defaultValue;
+        }
+    }
+
+    private volatile Snapshot mSnapshot = new Snapshot(0, new HashMap<String, String>());
+    private boolean mActivated = false;
+
+    Snapshot getSnapshot() {
+        return mSnapshot;
+    }
+
+    /**
+     * @return true once Flurry Config has activated, and the snapshot holds its values.
+     */
+    synchronized boolean isActivated() {
+        return mActivated;
+    }
+
+    /**
+     * Seed the snapshot with the values persisted by the last launch. Ignored once Flurry Config
+     * has activated. Keys that already have a value in Flurry Config keep it.
+     *
+     * @param persisted the persisted values, null if not defined.
+     */
+    synchronized void restore(Map<String, String> persisted) {
+        if (mActivated || persisted.isEmpty()) {
+            return;
+        }
+
+        Snapshot current = mSnapshot;
+        Map<String, String> values = new HashMap<>(current.values);
+        for (Map.Entry<String, String> entry : persisted.entrySet()) {
+            String key = entry.getKey();
+            String value = current.contains(key)
+                    ? current.values.get(key)
+                    : FlurryConfig.getInstance().getString(key, null);
+            values.put(key, (value != null) ? value : entry.getValue());
+        }
+        mSnapshot = new Snapshot(current.version + 1, values);
+    }
+
+    /**
+     * Add keys to the snapshot, reading their current values from Flurry Config.
+     * Values of the already watched keys are not re-read.
+     *
+     * @param keys the config keys to watch.
+     * @return true if any key was added.
+     */
+    synchronized boolean watch(Collection<String> keys) {
+        Snapshot current = mSnapshot;
+        Map<String, String> values = null;
+        for (String key : keys) {
+            if (current.contains(key) || ((values != null) && values.containsKey(key))) {
+                continue;
+            }
+            if (values == null) {
+                values = new HashMap<>(current.values);
+            }
+            values.put(key, FlurryConfig.getInstance().getString(key, null));
+        }
+
+        if (values != null) {
+            mSnapshot = new Snapshot(current.version + 1, values);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Re-read all watched keys from Flurry Config and swap in a new snapshot.
+     * Called when Flurry Config activates.
+     *
+     * @return the watched keys whose value changed, with their new value. Null if no longer defined.
+     */
+    synchronized Map<String, String> refresh() {
+        Snapshot current = mSnapshot;
+        Map<String, String> values = new HashMap<>(Math.max(16, current.values.size() * 2));
+        Map<String, String> changed = new HashMap<>();
+        for (Map.Entry<String, String> entry : current.values.entrySet()) {
+            String key = entry.getKey();
+            String value = FlurryConfig.getInstance().getString(key, null);
+            values.put(key, value);
+
+            String previous = entry.getValue();
+            if ((previous == null) ? (value != null) : !previous.equals(value)) {
+                changed.put(key, value);
+            }
+        }
+        mSnapshot = new Snapshot(current.version + 1, values);
+        mActivated = true;
+        return changed;
+    }
+
+}
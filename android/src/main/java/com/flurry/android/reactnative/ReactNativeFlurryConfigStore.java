@@ -0,0 +1,166 @@
+/*
+ * Copyright 2023, Yahoo Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flurry.android.reactnative;
+
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * The last activated values of the watched Flurry Config keys, kept in one binary file so that
+ * config reads can be answered at cold start before Flurry Config activates.
+ *
+ * File layout: magic (int), version (int), CRC32 of the body (int), body length (int), body.
+ * The body is the entry count, then each key and its value, null if not defined. The file is
+ * replaced by renaming a complete temporary file, and a file failing the checks is ignored.
+ */
+class ReactNativeFlurryConfigStore {
+    private static final String TAG = "FlurryConfigStore";
+
+    static final String FILE_NAME = "flurry_rn_config.bin";
+
+    private static final int MAGIC = 0x46434647;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int MAX_BODY_SIZE = 1024 * 1024;
+
+    private final File mFile;
+
+    ReactNativeFlurryConfigStore(File file) {
+        mFile = file;
+    }
+
+    /**
+     * Read the persisted values, mapping the file instead of streaming it.
+     *
+     * @return the persisted values, or null if there are none or the file is damaged.
+     */
+    Map<String, String> load() {
+        if (!mFile.isFile()) {
+            return null;
+        }
+
+        try {
+            MappedByteBuffer buffer;
+            RandomAccessFile randomAccessFile = new RandomAccessFile(mFile, "r");
+            try {
+                long length = randomAccessFile.length();
+                if ((length < HEADER_SIZE) || (length > HEADER_SIZE + MAX_BODY_SIZE)) {
+                    Log.w(TAG, "Ignoring persisted config of unexpected size " + length);
+                    return null;
+                }
+                // The mapping stays valid after the file is closed.
+                buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+            } finally {
+                randomAccessFile.close();
+            }
+
+            if ((buffer.getInt() != MAGIC) || (buffer.getInt() != VERSION)) {
+                Log.w(TAG, "Ignoring persisted config of unknown format.");
+                return null;
+            }
+            int crc = buffer.getInt();
+            int bodyLength = buffer.getInt();
+            if (bodyLength != buffer.remaining()) {
+                Log.w(TAG, "Ignoring truncated persisted config.");
+                return null;
+            }
+
+            byte[] body = new byte[bodyLength];
+            buffer.get(body);
+            CRC32 checksum = new CRC32();
+            checksum.update(body, 0, bodyLength);
+            if ((int) checksum.getValue() != crc) {
+                Log.w(TAG, "Ignoring damaged persisted config.");
+                return null;
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+            int count = in.readInt();
+            Map<String, String> values = new HashMap<>(Math.max(16, count * 2));
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                values.put(key, in.readBoolean() ? in.readUTF() : null);
+            }
+            return values;
+        } catch (IOException e) {
+            Log.e(TAG, "Persisted config cannot be read.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Replace the persisted values.
+     *
+     * @param values the values of the watched keys, null if not defined.
+     */
+    void save(Map<String, String> values) {
+        File temporary = new File(mFile.getPath() + ".tmp");
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(values.size());
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeBoolean(entry.getValue() != null);
+                if (entry.getValue() != null) {
+                    out.writeUTF(entry.getValue());
+                }
+            }
+            out.flush();
+            byte[] body = bytes.toByteArray();
+            if (body.length > MAX_BODY_SIZE) {
+                Log.w(TAG, "Watched config values are too large to persist: " + body.length + " bytes");
+                return;
+            }
+
+            CRC32 checksum = new CRC32();
+            checksum.update(body, 0, body.length);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt((int) checksum.getValue()).putInt(body.length);
+
+            FileOutputStream file = new FileOutputStream(temporary);
+            try {
+                file.write(header.array());
+                file.write(body);
+                file.getFD().sync();
+            } finally {
+                file.close();
+            }
+            if (!temporary.renameTo(mFile)) {
+                throw new IOException("Cannot rename " + temporary + " to " + mFile);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Config values cannot be persisted.", e);
+            temporary.delete();
+        }
+    }
+
+}
@@ -0,0 +1,517 @@
+/*
+ * Copyright 2023, Yahoo Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flurry.android.reactnative;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-consumer dispatcher that moves Flurry SDK calls off the React Native native-modules thread.
+ *
+ * Tasks are submitted to one of three priority lanes, each run in submission order by one worker
+ * thread. The worker takes up to a fixed weight of tasks from each lane per round, high first, so
+ * a busy lane cannot starve the others. The normal and low lanes are bounded lock-free ring
+ * buffers. When one is full, droppable tasks are handled by the overflow policy, and the other
+ * tasks wait until the worker frees a slot. The high lane is unbounded, so its producers never
+ * wait and its tasks are never dropped.
+ */
+class ReactNativeFlurryDispatcher {
+    private static final String TAG = "FlurryDispatcher";
+
+    static final int DEFAULT_CAPACITY = 1024;
+
+    // Payments, errors and breadcrumbs.
+    static final int LANE_HIGH = 0;
+    // Events and every other call.
+    static final int LANE_NORMAL = 1;
+    // User property changes.
+    static final int LANE_LOW = 2;
+    private static final int LANES = 3;
+
+    private static final String[] LANE_NAMES = {"high", "normal", "low"};
+    // Tasks taken from each lane per round.
+    private static final int[] LANE_WEIGHTS = {16, 4, 1};
+
+    // Wait until the lane has room, or until the block timeout and then drop the new task.
+    static final int OVERFLOW_BLOCK = 0;
+    // Drop the new task.
+    static final int OVERFLOW_DROP_NEWEST = 1;
+    // Drop the oldest pending task of the lane to make room.
+    static final int OVERFLOW_DROP_OLDEST = 2;
+    // Drop the new task if a task with the same coalescing key is pending, otherwise block.
+    static final int OVERFLOW_COALESCE = 3;
+
+    private static final int DROP_NEWEST = 0;
+    private static final int DROP_OLDEST = 1;
+    private static final int DROP_TIMEOUT = 2;
+    private static final int DROP_COALESCED = 3;
+    private static final String[] DROP_REASONS = {"newest", "oldest", "timeout", "coalesced"};
+
+    private static final long FULL_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    /**
+     * A task that the overflow policy may drop, e.g. an analytics call. Tasks that resolve a
+     * promise or change the agent settings are plain Runnables and are never dropped.
+     */
+    abstract static class DroppableTask implements Runnable {
+        final String coalescingKey;
+        // Whether the task is counted in the pending coalescing keys, published with the task.
+        boolean mCounted = false;
+
+        /**
+         * @param coalescingKey the key of the tasks that can be coalesced with this one, may be null.
+         */
+        DroppableTask(String coalescingKey) {
+            this.coalescingKey = coalescingKey;
+        }
+
+        /**
+         * Called on the submitting thread when the task is dropped instead of run.
+         */
+        void onDropped() {
+        }
+    }
+
+    /**
+     * Bounded lock-free ring buffer of tasks and their enqueue times. Any thread may take the
+     * oldest task to drop it, so both ends are claimed by compare-and-set.
+     */
+    static final class Ring {
+        private final int mMask;
+        private final AtomicReferenceArray<Runnable> mBuffer;
+        private final long[] mEnqueueNanos;
+        private final AtomicLongArray mSequences;
+        private final AtomicLong mTail = new AtomicLong();
+        private final AtomicLong mHead = new AtomicLong();
+
+        Ring(int size) {
+            mMask = size - 1;
+            mBuffer = new AtomicReferenceArray<>(size);
+            mEnqueueNanos = new long[size];
+            mSequences = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                mSequences.set(i, i);
+            }
+        }
+
+        boolean offer(Runnable task, long enqueueNanos) {
+            while (true) {
+                long position = mTail.get();
+                int index = (int) (position & mMask);
+                long difference = mSequences.get(index) - position;
+                if (difference == 0) {
+                    if (mTail.compareAndSet(position, position + 1)) {
+                        mBuffer.lazySet(index, task);
+                        // Published by the sequence write below.
+                        mEnqueueNanos[index] = enqueueNanos;
+                        mSequences.set(index, position + 1);
+                        return true;
+                    }
+                } else if (difference < 0) {
+                    // Full.
+                    return false;
+                }
+                // Another producer claimed the slot, retry.
+            }
+        }
+
+        /**
+         * @param enqueueNanos receives the enqueue time of the task.
+         * @return the oldest task, or null if empty.
+         */
+        Runnable poll(long[] enqueueNanos) {
+            while (true) {
+                long head = mHead.get();
+                int index = (int) (head & mMask);
+                if (mSequences.get(index) != head + 1) {
+                    return null;
+                }
+                Runnable task = mBuffer.get(index);
+                long nanos = mEnqueueNanos[index];
+                if (mHead.compareAndSet(head, head + 1)) {
+                    release(index, head);
+                    enqueueNanos[0] = nanos;
+                    return task;
+                }
+                // A producer dropped the task, retry.
+            }
+        }
+
+        /**
+         * @return the oldest task if it can be dropped, otherwise null.
+         */
+        DroppableTask pollDroppable() {
+            while (true) {
+                long head = mHead.get();
+                int index = (int) (head & mMask);
+                if (mSequences.get(index) != head + 1) {
+                    return null;
+                }
+                Runnable task = mBuffer.get(index);
+                if (!(task instanceof DroppableTask)) {
+                    return null;
+                }
+                if (mHead.compareAndSet(head, head + 1)) {
+                    release(index, head);
+                    return (DroppableTask) task;
+                }
+            }
+        }
+
+        private void release(int index, long head) {
+            mBuffer.lazySet(index, null);
+            mSequences.set(index, head + mMask + 1);
+        }
+
+        boolean isEmpty() {
+            long head = mHead.get();
+            return mSequences.get((int) (head & mMask)) != head + 1;
+        }
+
+        int size() {
+            return (int) Math.max(0, mTail.get() - mHead.get());
+        }
+    }
+
+    private static final class Entry {
+        final Runnable task;
+        final long enqueueNanos;
+
+        Entry(Runnable task, long enqueueNanos) {
+            this.task = task;
+            this.enqueueNanos = enqueueNanos;
+        }
+    }
+
+    private final int mCapacity;
+    private final ConcurrentLinkedQueue<Entry> mHighLane = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger mHighLaneSize = new AtomicInteger();
+    private final Ring[] mRings = new Ring[LANES];  // Normal and low lanes.
+
+    private volatile int mOverflowPolicy = OVERFLOW_BLOCK;
+    private volatile long mBlockTimeoutNanos = 0;
+    // Pending droppable tasks per coalescing key, only counted under OVERFLOW_COALESCE.
+    private final ConcurrentHashMap<String, AtomicInteger> mPendingKeys = new ConcurrentHashMap<>();
+
+    private final AtomicInteger[] mHighWater = new AtomicInteger[LANES];
+    private final AtomicLongArray mDrops = new AtomicLongArray(LANES * DROP_REASONS.length);
+    // Time spent by the submitting thread, and time from submission to run, per lane.
+    private final ReactNativeFlurryBridgeMetrics mEnqueueTimes = createLaneMetrics();
+    private final ReactNativeFlurryBridgeMetrics mWaitTimes = createLaneMetrics();
+    private final long[] mPolledNanos = new long[1];  // Only accessed by the worker thread.
+
+    private final Thread mWorker;
+    private volatile boolean mWaiting = false;
+
+    /**
+     * @param capacity the maximum number of pending tasks of the normal and the low lane,
+     *                 rounded up to a power of two.
+     */
+    ReactNativeFlurryDispatcher(int capacity) {
+        mCapacity = roundToPowerOfTwo(Math.max(2, capacity));
+        mRings[LANE_NORMAL] = new Ring(mCapacity);
+        mRings[LANE_LOW] = new Ring(mCapacity);
+        for (int lane = 0; lane < LANES; lane++) {
+            mHighWater[lane] = new AtomicInteger();
+        }
+
+        mWorker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runLoop();
+            }
+        }, TAG);
+        mWorker.setDaemon(true);
+        mWorker.start();
+    }
+
+    int getCapacity() {
+        return mCapacity;
+    }
+
+    /**
+     * @return latency metrics with one histogram per lane, the lane being its index.
+     */
+    private static ReactNativeFlurryBridgeMetrics createLaneMetrics() {
+        ReactNativeFlurryBridgeMetrics metrics = new ReactNativeFlurryBridgeMetrics();
+        for (String lane : LANE_NAMES) {
+            metrics.register(lane);
+        }
+        return metrics;
+    }
+
+    /**
+     * Set how droppable tasks are handled when the normal or low lane is full.
+     *
+     * @param policy             one of the OVERFLOW_ constants.
+     * @param blockTimeoutMillis how long OVERFLOW_BLOCK and OVERFLOW_COALESCE wait for room before
+     *                           dropping the task, 0 to wait until there is room.
+     */
+    void setOverflowPolicy(int policy, long blockTimeoutMillis) {
+        if ((policy < OVERFLOW_BLOCK) || (policy > OVERFLOW_COALESCE) || (blockTimeoutMillis < 0)) {
+            Log.e(TAG, "Invalid overflow policy " + policy + " with timeout " + blockTimeoutMillis);
+            return;
+        }
+        mBlockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+        mOverflowPolicy = policy;
+    }
+
+    /**
+     * Enqueue a task on the normal lane. Returns immediately unless the lane is full.
+     *
+     * @param task the task to run on the dispatcher thread.
+     */
+    void execute(Runnable task) {
+        execute(LANE_NORMAL, task);
+    }
+
+    /**
+     * Enqueue a task. Returns immediately unless the normal or low lane is full.
+     *
+     * @param lane the lane, LANE_HIGH, LANE_NORMAL or LANE_LOW.
+     * @param task the task to run on the dispatcher thread, a DroppableTask to apply the overflow policy.
+     */
+    void execute(int lane, Runnable task) {
+        if (Thread.currentThread() == mWorker) {
+            // Already on the dispatcher thread, waiting for a free slot here would never end.
+            task.run();
+            return;
+        }
+
+        long enqueueNanos = System.nanoTime();
+        boolean enqueued = true;
+        if (lane == LANE_HIGH) {
+            updateHighWater(lane, mHighLaneSize.incrementAndGet());
+            mHighLane.offer(new Entry(task, enqueueNanos));
+        } else {
+            enqueued = enqueue(lane, task, enqueueNanos);
+        }
+        if (enqueued) {
+            wakeWorker();
+        }
+        mEnqueueTimes.record(lane, enqueueNanos);
+    }
+
+    /**
+     * Run a task once every task submitted before it, on any lane, has run.
+     *
+     * @param task the task to run on the dispatcher thread.
+     */
+    void executeAfterPending(final Runnable task) {
+        final int[] remaining = {LANES};  // Only accessed by the worker thread.
+        // A plain Runnable, so the barrier is never dropped.
+        Runnable barrier = () -> {
+            if (--remaining[0] == 0) {
+                task.run();
+            }
+        };
+        for (int lane = 0; lane < LANES; lane++) {
+            execute(lane, barrier);
+        }
+    }
+
+    /**
+     * Get the depth, high-water mark, drops by reason, enqueue and wait time percentiles of each
+     * lane, keyed by lane name.
+     *
+     * @param reset true to clear the high-water marks, drops and times after reading them.
+     */
+    WritableMap getStats(boolean reset) {
+        WritableMap map = Arguments.createMap();
+        for (int lane = 0; lane < LANES; lane++) {
+            int depth = (lane == LANE_HIGH) ? mHighLaneSize.get() : mRings[lane].size();
+
+            WritableMap drops = Arguments.createMap();
+            for (int reason = 0; reason < DROP_REASONS.length; reason++) {
+                int index = lane * DROP_REASONS.length + reason;
+                drops.putDouble(DROP_REASONS[reason], reset ? mDrops.getAndSet(index, 0) : mDrops.get(index));
+            }
+
+            WritableMap laneMap = Arguments.createMap();
+            laneMap.putDouble("depth", depth);
+            laneMap.putDouble("highWater", reset ? mHighWater[lane].getAndSet(depth) : mHighWater[lane].get());
+            laneMap.putDouble("capacity", (lane == LANE_HIGH) ? -1 : mCapacity);
+            laneMap.putMap("drops", drops);
+            laneMap.putMap("enqueue", mEnqueueTimes.getMetrics(lane, reset));
+            laneMap.putMap("wait", mWaitTimes.getMetrics(lane, reset));
+            map.putMap(LANE_NAMES[lane], laneMap);
+        }
+        return map;
+    }
+
+    /**
+     * Enqueue a task on the normal or low lane, applying the overflow policy when it is full.
+     *
+     * @return true if the task is enqueued, false if it is dropped.
+     */
+    private boolean enqueue(int lane, Runnable task, long enqueueNanos) {
+        Ring ring = mRings[lane];
+        DroppableTask droppable = (task instanceof DroppableTask) ? (DroppableTask) task : null;
+        int policy = (droppable != null) ? mOverflowPolicy : OVERFLOW_BLOCK;
+
+        if ((policy == OVERFLOW_COALESCE) && (droppable.coalescingKey != null)) {
+            droppable.mCounted = true;
+            incrementPendingKey(droppable.coalescingKey);
+        }
+
+        long deadline = enqueueNanos + mBlockTimeoutNanos;
+        while (!ring.offer(task, enqueueNanos)) {
+            if (policy == OVERFLOW_DROP_NEWEST) {
+                return drop(lane, droppable, DROP_NEWEST);
+            }
+            if (policy == OVERFLOW_DROP_OLDEST) {
+                DroppableTask oldest = ring.pollDroppable();
+                if (oldest != null) {
+                    drop(lane, oldest, DROP_OLDEST);
+                    continue;
+                }
+                // The oldest task cannot be dropped, wait for the worker instead.
+            }
+            if ((policy == OVERFLOW_COALESCE) && (droppable.coalescingKey != null)) {
+                AtomicInteger pending = mPendingKeys.get(droppable.coalescingKey);
+                if ((pending != null) && (pending.get() > 1)) {
+                    return drop(lane, droppable, DROP_COALESCED);
+                }
+            }
+            if ((droppable != null) && (mBlockTimeoutNanos > 0) && (System.nanoTime() - deadline >= 0)) {
+                return drop(lane, droppable, DROP_TIMEOUT);
+            }
+
+            wakeWorker();
+            LockSupport.parkNanos(FULL_BACKOFF_NANOS);
+        }
+        updateHighWater(lane, ring.size());
+        return true;
+    }
+
+    private boolean drop(int lane, DroppableTask task, int reason) {
+        mDrops.getAndIncrement(lane * DROP_REASONS.length + reason);
+        releasePendingKey(task);
+        try {
+            task.onDropped();
+        } catch (Throwable t) {
+            Log.e(TAG, "Dropped Flurry call failed to clean up.", t);
+        }
+        return false;
+    }
+
+    private void incrementPendingKey(String key) {
+        AtomicInteger pending = mPendingKeys.get(key);
+        if (pending == null) {
+            AtomicInteger created = new AtomicInteger();
+            pending = mPendingKeys.putIfAbsent(key, created);
+            if (pending == null) {
+                pending = created;
+            }
+        }
+        pending.incrementAndGet();
+    }
+
+    private void releasePendingKey(Runnable task) {
+        if (!(task instanceof DroppableTask) || !((DroppableTask) task).mCounted) {
+            return;
+        }
+        String key = ((DroppableTask) task).coalescingKey;
+        AtomicInteger pending = mPendingKeys.get(key);
+        // A count lost to a concurrent removal only makes coalescing less likely.
+        if ((pending != null) && (pending.decrementAndGet() <= 0)) {
+            mPendingKeys.remove(key, pending);
+        }
+    }
+
+    private void updateHighWater(int lane, int depth) {
+        AtomicInteger highWater = mHighWater[lane];
+        int current;
+        while (depth > (current = highWater.get())) {
+            if (highWater.compareAndSet(current, depth)) {
+                return;
+            }
+        }
+    }
+
+    private Runnable poll(int lane) {
+        if (lane == LANE_HIGH) {
+            Entry entry = mHighLane.poll();
+            if (entry == null) {
+                return null;
+            }
+            mHighLaneSize.decrementAndGet();
+            mPolledNanos[0] = entry.enqueueNanos;
+            return entry.task;
+        }
+        return mRings[lane].poll(mPolledNanos);
+    }
+
+    private boolean isEmpty() {
+        return mHighLane.isEmpty() && mRings[LANE_NORMAL].isEmpty() && mRings[LANE_LOW].isEmpty();
+    }
+
+    private void wakeWorker() {
+        if (mWaiting) {
+            LockSupport.unpark(mWorker);
+        }
+    }
+
+    private void runLoop() {
+        while (true) {
+            boolean ran = false;
+            for (int lane = 0; lane < LANES; lane++) {
+                for (int i = 0; i < LANE_WEIGHTS[lane]; i++) {
+                    Runnable task = poll(lane);
+                    if (task == null) {
+                        break;
+                    }
+                    ran = true;
+                    mWaitTimes.record(lane, mPolledNanos[0]);
+                    releasePendingKey(task);
+
+                    try {
+                        task.run();
+                    } catch (Throwable t) {
+                        Log.e(TAG, "Flurry dispatched call failed.", t);
+                    }
+                }
+            }
+
+            if (!ran) {
+                mWaiting = true;
+                // Re-check after publishing the waiting state, a producer may have raced us.
+                if (isEmpty()) {
+                    LockSupport.park(this);
+                }
+                mWaiting = false;
+            }
+        }
+    }
+
+    private static int roundToPowerOfTwo(int value) {
+        int highest = Integer.highestOneBit(value);
+        return (highest == value) ? value : highest << 1;
+    }
+
+}
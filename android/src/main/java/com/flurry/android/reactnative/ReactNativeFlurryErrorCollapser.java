@@ -0,0 +1,316 @@
+/*
+ * Copyright 2023, Yahoo Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flurry.android.reactnative;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collapses bursts of the same error, e.g. from a component failing in a render loop.
+ *
+ * Errors are fingerprinted by a hash of their ID, class and message, with digit runs in the
+ * message normalized. The first occurrence of a fingerprint is forwarded at once and opens a
+ * window. Repeats inside the window are only counted, and when the window closes they are
+ * forwarded as one error carrying the number of repeats and the times of the first and last
+ * repeat. The forwarded first occurrence is not counted again. Fingerprints are kept in a bounded
+ * LRU map, an evicted fingerprint emits its repeats first.
+ *
+ * The collapsed error carries the parameters of the last repeat within the Flurry limit of 10
+ * parameters: the app parameters win, then the collapse fields are added unless the app set the
+ * same names, then the breadcrumbs of the last repeat fill the rest, the oldest dropped first.
+ */
+class ReactNativeFlurryErrorCollapser {
+    private static final String TAG = "FlurryErrorCollapser";
+
+    static final long DEFAULT_WINDOW_MILLIS = 10000;
+    static final int MAX_FINGERPRINTS = 128;
+
+    static final String PARAM_OCCURRENCES = "occurrences";
+    static final String PARAM_FIRST_SEEN = "firstSeen";
+    static final String PARAM_LAST_SEEN = "lastSeen";
+    private static final String[] COLLAPSE_PARAMS = {PARAM_OCCURRENCES, PARAM_FIRST_SEEN, PARAM_LAST_SEEN};
+
+    private static final int MAX_NORMALIZED_LENGTH = 256;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Receives the collapsed repeats when a window closes.
+     */
+    interface Sink {
+        void onError(String errorId, String message, String errorClass, Map<String, String> parameters);
+    }
+
+    private static final class Fingerprint {
+        String message;
+        Map<String, String> parameters;
+        Map<String, String> breadcrumbs;
+        final String errorId;
+        final String errorClass;
+        long windowRealtime;
+        boolean windowOpen;
+        // The repeats collapsed since the forwarded occurrence, and when they were seen.
+        int repeats;
+        long firstSeen;
+        long lastSeen;
+
+        Fingerprint(String errorId, String errorClass) {
+            this.errorId = errorId;
+            this.errorClass = errorClass;
+        }
+
+        void open(String message, Map<String, String> parameters, Map<String, String> breadcrumbs,
+                  long realtime) {
+            this.message = message;
+            this.parameters = parameters;
+            this.breadcrumbs = breadcrumbs;
+            windowRealtime = realtime;
+            windowOpen = true;
+            repeats = 0;
+        }
+
+        void repeat(String message, Map<String, String> parameters, Map<String, String> breadcrumbs, long time) {
+            this.message = message;
+            this.parameters = parameters;
+            this.breadcrumbs = breadcrumbs;
+            if (repeats == 0) {
+                firstSeen = time;
+            }
+            lastSeen = time;
+            repeats++;
+        }
+
+        /**
+         * @return the collapsed error of the repeats in the window, or null if there were none.
+         */
+        Runnable close(final Sink sink) {
+            windowOpen = false;
+            if (repeats == 0) {
+                return null;
+            }
+
+            final String closedMessage = message;
+            final Map<String, String> params = (parameters != null)
+                    ? new HashMap<>(parameters) : new HashMap<String, String>();
+            String[] values = {Integer.toString(repeats), Long.toString(firstSeen), Long.toString(lastSeen)};
+            for (int i = 0; i < COLLAPSE_PARAMS.length; i++) {
+                if ((params.size() < ReactNativeFlurryBreadcrumbs.MAX_PARAMETERS)
+                        && !params.containsKey(COLLAPSE_PARAMS[i])) {
+                    params.put(COLLAPSE_PARAMS[i], values[i]);
+                }
+            }
+            ReactNativeFlurryBreadcrumbs.attach(params, breadcrumbs);
+            repeats = 0;
+            return () -> sink.onError(errorId, closedMessage, errorClass, params);
+        }
+    }
+
+    private final Sink mSink;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private long mWindowMillis = DEFAULT_WINDOW_MILLIS;
+    private boolean mScheduled = false;
+
+    // Collapsed errors closed under the lock, emitted once it is released.
+    private final List<Runnable> mEvicted = new ArrayList<>();
+
+    // Access ordered, so the least recently seen fingerprint is evicted first.
+    private final LinkedHashMap<Long, Fingerprint> mFingerprints =
+            new LinkedHashMap<Long, Fingerprint>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Fingerprint> eldest) {
+                    if (size() > MAX_FINGERPRINTS) {
+                        Runnable collapsed = eldest.getValue().close(mSink);
+                        if (collapsed != null) {
+                            mEvicted.add(collapsed);
+                        }
+                        return true;
+                    }
+                    return false;
+                }
+            };
+
+    private final Runnable mCloseTask = new Runnable() {
+        @Override
+        public void run() {
+            closeWindows(false);
+        }
+    };
+
+    ReactNativeFlurryErrorCollapser(Sink sink) {
+        mSink = sink;
+    }
+
+    /**
+     * @param windowMillis how long repeats of an error are collapsed, 0 to forward every error.
+     */
+    void setWindowMillis(long windowMillis) {
+        if (windowMillis < 0) {
+            Log.e(TAG, "Error collapse window must not be negative: " + windowMillis);
+            return;
+        }
+        synchronized (this) {
+            mWindowMillis = windowMillis;
+        }
+        if (windowMillis == 0) {
+            flush();
+        }
+    }
+
+    /**
+     * Record an error occurrence.
+     *
+     * @param parameters  the app parameters of the error, may be null.
+     * @param breadcrumbs the breadcrumbs attached to the error, may be null.
+     * @return true if the error should be forwarded now, false if it is collapsed into its window.
+     */
+    boolean record(String errorId, String message, String errorClass, Map<String, String> parameters,
+                   Map<String, String> breadcrumbs) {
+        List<Runnable> collapsed = null;
+        boolean forward;
+        synchronized (this) {
+            if (mWindowMillis == 0) {
+                return true;
+            }
+
+            long realtime = SystemClock.elapsedRealtime();
+            long key = fingerprint(errorId, message, errorClass);
+            Fingerprint fingerprint = mFingerprints.get(key);
+            if ((fingerprint != null) && fingerprint.windowOpen
+                    && (realtime - fingerprint.windowRealtime < mWindowMillis)) {
+                fingerprint.repeat(message, parameters, breadcrumbs, System.currentTimeMillis());
+                forward = false;
+                if (!mScheduled) {
+                    mScheduled = true;
+                    mHandler.postDelayed(mCloseTask, mWindowMillis);
+                }
+            } else {
+                if (fingerprint == null) {
+                    fingerprint = new Fingerprint(errorId, errorClass);
+                    mFingerprints.put(key, fingerprint);
+                } else {
+                    Runnable closed = fingerprint.close(mSink);
+                    if (closed != null) {
+                        mEvicted.add(closed);
+                    }
+                }
+                fingerprint.open(message, parameters, breadcrumbs, realtime);
+                forward = true;
+            }
+
+            if (!mEvicted.isEmpty()) {
+                collapsed = new ArrayList<>(mEvicted);
+                mEvicted.clear();
+            }
+        }
+
+        emit(collapsed);
+        return forward;
+    }
+
+    /**
+     * Close every window, emitting the collapsed repeats, e.g. when the app goes to the background.
+     */
+    void flush() {
+        closeWindows(true);
+    }
+
+    private void closeWindows(boolean all) {
+        List<Runnable> collapsed = new ArrayList<>();
+        synchronized (this) {
+            mHandler.removeCallbacks(mCloseTask);
+            mScheduled = false;
+
+            long realtime = SystemClock.elapsedRealtime();
+            long nextClose = Long.MAX_VALUE;
+            for (Fingerprint fingerprint : mFingerprints.values()) {
+                if (fingerprint.repeats == 0) {
+                    continue;
+                }
+                long age = realtime - fingerprint.windowRealtime;
+                if (all || (age >= mWindowMillis)) {
+                    collapsed.add(fingerprint.close(mSink));
+                } else {
+                    nextClose = Math.min(nextClose, mWindowMillis - age);
+                }
+            }
+
+            if (nextClose != Long.MAX_VALUE) {
+                mScheduled = true;
+                mHandler.postDelayed(mCloseTask, nextClose);
+            }
+        }
+        emit(collapsed);
+    }
+
+    private static void emit(List<Runnable> collapsed) {
+        if (collapsed == null) {
+            return;
+        }
+        for (Runnable error : collapsed) {
+            error.run();
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the error ID, class and normalized message.
+     */
+    private static long fingerprint(String errorId, String message, String errorClass) {
+        // Each field is followed by a zero character, so that ("ab", "c") and ("a", "bc") differ.
+        long hash = hash(FNV_OFFSET_BASIS, errorId) * FNV_PRIME;
+        hash = hash(hash, errorClass) * FNV_PRIME;
+
+        // Digit runs, e.g. indexes, IDs or timestamps, are hashed as one '#'.
+        if (message != null) {
+            boolean inDigits = false;
+            int length = Math.min(message.length(), MAX_NORMALIZED_LENGTH);
+            for (int i = 0; i < length; i++) {
+                char c = message.charAt(i);
+                if (Character.isDigit(c)) {
+                    if (inDigits) {
+                        continue;
+                    }
+                    inDigits = true;
+                    c = '#';
+                } else {
+                    inDigits = false;
+                }
+                hash = (hash ^ c) * FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    private static long hash(long hash, String value) {
+        if (value == null) {
+            return hash;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+}
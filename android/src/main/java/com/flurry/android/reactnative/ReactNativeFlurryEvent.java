@@ -18,6 +18,9 @@ package com.flurry.android.reactnative;
 
 import com.flurry.android.FlurryEvent;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public class ReactNativeFlurryEvent {
     final static FlurryEvent[] EVENTS = new FlurryEvent[] {
             FlurryEvent.AD_CLICK,
@@ -126,4 +129,45 @@ public class ReactNativeFlurryEvent {
             FlurryEvent.Param.DURATION
     };
 
+    // Value types of the standard event parameters, resolved once from PARAMS.
+    final static int PARAM_TYPE_STRING = 0;
+    final static int PARAM_TYPE_INTEGER = 1;
+    final static int PARAM_TYPE_DOUBLE = 2;
+    final static int PARAM_TYPE_BOOLEAN = 3;
+
+    /**
+     * Value type of each standard event parameter, indexed by its ordinal in PARAMS.
+     * The ordinals match the order of Flurry.EventParam in index.js.
+     */
+    final static int[] PARAM_TYPES = new int[PARAMS.length];
+
+    private final static Map<String, Integer> PARAM_ORDINALS = new HashMap<>(PARAMS.length * 2);
+
+    static {
+        for (int i = 0; i < PARAMS.length; i++) {
+            FlurryEvent.ParamBase param = PARAMS[i];
+            if (param instanceof FlurryEvent.IntegerParam) {
+                PARAM_TYPES[i] = PARAM_TYPE_INTEGER;
+            } else if (param instanceof FlurryEvent.DoubleParam) {
+                PARAM_TYPES[i] = PARAM_TYPE_DOUBLE;
+            } else if (param instanceof FlurryEvent.BooleanParam) {
+                PARAM_TYPES[i] = PARAM_TYPE_BOOLEAN;
+            } else {
+                PARAM_TYPES[i] = PARAM_TYPE_STRING;
+            }
+            PARAM_ORDINALS.put(param.toString(), i);
+        }
+    }
+
+    /**
+     * Look up a standard event parameter by its key.
+     *
+     * @param key the parameter key, e.g. "fl.item.name".
+     * @return the ordinal in PARAMS, or -1 if the key is not a standard event parameter.
+     */
+    static int getParamOrdinal(String key) {
+        Integer ordinal = PARAM_ORDINALS.get(key);
+        return (ordinal == null) ? -1 : ordinal;
+    }
+
 }
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2023, Yahoo Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flurry.android.reactnative;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Windowed aggregation of high-frequency events.
+ *
+ * Values logged for the same event name and dimension parameters are accumulated into one
+ * count/sum/min/max aggregate, and emitted as a single event when the window closes. The
+ * summary parameters take 4 of the 10 Flurry event parameters, so at most 6 dimensions are
+ * accepted and none may use a summary parameter name. The aggregates are split over lock stripes
+ * by key, so producers on different threads rarely contend.
+ */
+class ReactNativeFlurryEventAggregator {
+    private static final String TAG = "FlurryEventAggregator";
+
+    static final long DEFAULT_WINDOW_MILLIS = 10000;
+
+    static final String PARAM_COUNT = "count";
+    static final String PARAM_SUM = "sum";
+    static final String PARAM_MIN = "min";
+    static final String PARAM_MAX = "max";
+    // Flurry keeps up to 10 parameters per event, 4 are the summary.
+    static final int MAX_DIMENSIONS = 6;
+
+    private static final int STRIPES = 8;
+    private static final int MAX_AGGREGATES_PER_STRIPE = 64;
+
+    /**
+     * Receives the aggregated events when a window closes.
+     */
+    interface Sink {
+        void logEvent(String eventId, Map<String, String> parameters);
+    }
+
+    private static final class Aggregate {
+        final String eventId;
+        final Map<String, String> dimensions;
+        long count = 0;
+        double sum = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+
+        Aggregate(String eventId, Map<String, String> dimensions) {
+            this.eventId = eventId;
+            this.dimensions = dimensions;
+        }
+
+        void add(double value) {
+            count++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        Map<String, String> toParameters() {
+            Map<String, String> params = new HashMap<>(
+                    (dimensions != null) ? (dimensions.size() + 4) * 2 : 8);
+            if (dimensions != null) {
+                params.putAll(dimensions);
+            }
+            params.put(PARAM_COUNT, Long.toString(count));
+            params.put(PARAM_SUM, FlurryModule.toParamString(sum));
+            params.put(PARAM_MIN, FlurryModule.toParamString(min));
+            params.put(PARAM_MAX, FlurryModule.toParamString(max));
+            return params;
+        }
+    }
+
+    private final Sink mSink;
+    private final Object[] mLocks = new Object[STRIPES];
+    private final List<Map<String, Aggregate>> mStripes = new ArrayList<>(STRIPES);
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean mScheduled = new AtomicBoolean(false);
+    private volatile long mWindowMillis = DEFAULT_WINDOW_MILLIS;
+
+    private final Runnable mFlushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    ReactNativeFlurryEventAggregator(Sink sink) {
+        mSink = sink;
+        for (int i = 0; i < STRIPES; i++) {
+            mLocks[i] = new Object();
+            mStripes.add(new HashMap<String, Aggregate>());
+        }
+    }
+
+    /**
+     * Set the aggregation window. Takes effect from the next window.
+     *
+     * @param windowMillis the window duration in milliseconds.
+     */
+    void setWindowMillis(long windowMillis) {
+        if (windowMillis <= 0) {
+            Log.e(TAG, "Aggregation window must be positive: " + windowMillis);
+            return;
+        }
+        mWindowMillis = windowMillis;
+    }
+
+    /**
+     * Add a value to the aggregate of an event and its dimensions.
+     *
+     * @param eventId    the event name.
+     * @param dimensions the parameters that identify the aggregate, may be null.
+     * @param value      the value to aggregate.
+     */
+    void add(String eventId, Map<String, String> dimensions, double value) {
+        if (dimensions != null) {
+            if (dimensions.size() > MAX_DIMENSIONS) {
+                Log.e(TAG, "Aggregated event " + eventId + " has " + dimensions.size()
+                        + " dimensions, at most " + MAX_DIMENSIONS + " are allowed. Value is ignored.");
+                return;
+            }
+            if (dimensions.containsKey(PARAM_COUNT) || dimensions.containsKey(PARAM_SUM)
+                    || dimensions.containsKey(PARAM_MIN) || dimensions.containsKey(PARAM_MAX)) {
+                Log.e(TAG, "Aggregated event " + eventId + " uses a reserved dimension name: count, sum, min or max."
+                        + " Value is ignored.");
+                return;
+            }
+        }
+
+        String key = toKey(eventId, dimensions);
+        int stripe = (key.hashCode() & 0x7fffffff) % STRIPES;
+
+        List<Aggregate> overflow = null;
+        synchronized (mLocks[stripe]) {
+            Map<String, Aggregate> aggregates = mStripes.get(stripe);
+            Aggregate aggregate = aggregates.get(key);
+            if (aggregate == null) {
+                if (aggregates.size() >= MAX_AGGREGATES_PER_STRIPE) {
+                    // Too many distinct aggregates, close the window of this stripe early.
+                    overflow = new ArrayList<>(aggregates.values());
+                    aggregates.clear();
+                }
+                aggregate = new Aggregate(eventId, dimensions);
+                aggregates.put(key, aggregate);
+            }
+            aggregate.add(value);
+        }
+
+        if (overflow != null) {
+            emit(overflow);
+        }
+        if (mScheduled.compareAndSet(false, true)) {
+            mHandler.postDelayed(mFlushTask, mWindowMillis);
+        }
+    }
+
+    /**
+     * Close the current window, emitting every aggregate.
+     */
+    void flush() {
+        mHandler.removeCallbacks(mFlushTask);
+        mScheduled.set(false);
+
+        List<Aggregate> closed = new ArrayList<>();
+        for (int i = 0; i < STRIPES; i++) {
+            synchronized (mLocks[i]) {
+                Map<String, Aggregate> aggregates = mStripes.get(i);
+                if (!aggregates.isEmpty()) {
+                    closed.addAll(aggregates.values());
+                    aggregates.clear();
+                }
+            }
+        }
+        emit(closed);
+    }
+
+    private void emit(List<Aggregate> aggregates) {
+        for (Aggregate aggregate : aggregates) {
+            mSink.logEvent(aggregate.eventId, aggregate.toParameters());
+        }
+    }
+
+    private static String toKey(String eventId, Map<String, String> dimensions) {
+        if ((dimensions == null) || dimensions.isEmpty()) {
+            return eventId;
+        }
+
+        List<String> names = new ArrayList<>(dimensions.keySet());
+        Collections.sort(names);
+        StringBuilder key = new StringBuilder(eventId);
+        for (String name : names) {
+            key.append('\u0000').append(name).append('=').append(dimensions.get(name));
+        }
+        return key.toString();
+    }
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2023, Yahoo Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flurry.android.reactnative;
+
+import java.util.List;
+
+/**
+ * A registered event and its fixed parameter keys. Events logged by schema send only the
+ * parameter values, in key order.
+ */
+class ReactNativeFlurryEventSchema {
+    static final int MAX_SCHEMAS = 256;
+
+    final String eventId;
+    final String[] keys;
+
+    ReactNativeFlurryEventSchema(String eventId, List<String> keys) {
+        this.eventId = eventId;
+        this.keys = new String[keys.size()];
+        for (int i = 0; i < this.keys.length; i++) {
+            this.keys[i] = keys.get(i).intern();
+        }
+    }
+
+}
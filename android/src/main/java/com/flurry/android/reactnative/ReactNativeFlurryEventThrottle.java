@@ -0,0 +1,148 @@
+/*
+ * Copyright 2023, Yahoo Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flurry.android.reactnative;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-event sampling and rate limiting, applied before an event is dispatched to the Flurry SDK.
+ *
+ * Each throttled event name has a rule: keep 1 in N events, then let at most a burst of events
+ * through a token bucket refilled at a fixed rate. Events without a rule are not throttled and
+ * cost one map lookup, or nothing when no rule is set.
+ */
+class ReactNativeFlurryEventThrottle {
+    private static final String TAG = "FlurryEventThrottle";
+
+    static final int MAX_RULES = 256;
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private static final class Rule {
+        final double maxPerSecond;
+        final double burst;
+        final long sampleEvery;
+
+        private double mTokens;
+        private long mRefillNanos;
+        private long mSeen = 0;
+        private long mPassed = 0;
+        private long mSampledOut = 0;
+        private long mThrottled = 0;
+
+        Rule(double maxPerSecond, double burst, long sampleEvery) {
+            this.maxPerSecond = maxPerSecond;
+            this.burst = burst;
+            this.sampleEvery = sampleEvery;
+            mTokens = burst;
+            mRefillNanos = System.nanoTime();
+        }
+
+        synchronized boolean tryAcquire() {
+            // Deterministic sampling, the first of every N events is kept.
+            if ((sampleEvery > 1) && ((mSeen++ % sampleEvery) != 0)) {
+                mSampledOut++;
+                return false;
+            }
+
+            if (maxPerSecond > 0) {
+                long now = System.nanoTime();
+                mTokens = Math.min(burst, mTokens + (now - mRefillNanos) * maxPerSecond / NANOS_PER_SECOND);
+                mRefillNanos = now;
+                if (mTokens < 1) {
+                    mThrottled++;
+                    return false;
+                }
+                mTokens -= 1;
+            }
+
+            mPassed++;
+            return true;
+        }
+
+        synchronized WritableMap toMap(boolean reset) {
+            WritableMap map = Arguments.createMap();
+            map.putDouble("passed", mPassed);
+            map.putDouble("sampledOut", mSampledOut);
+            map.putDouble("throttled", mThrottled);
+            if (reset) {
+                mPassed = 0;
+                mSampledOut = 0;
+                mThrottled = 0;
+            }
+            return map;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Rule> mRules = new ConcurrentHashMap<>();
+
+    /**
+     * Set or replace the rule of an event. The counters of a replaced rule are reset.
+     *
+     * @param eventId      the event name, or the Flurry.Event name of a standard event.
+     * @param maxPerSecond the sustained rate of events let through, 0 for no rate limit.
+     * @param burst        the number of events let through at once, at least 1.
+     * @param sampleEvery  keep 1 in this many events, 1 to keep all.
+     */
+    void setRule(String eventId, double maxPerSecond, double burst, long sampleEvery) {
+        if ((eventId == null) || (maxPerSecond < 0) || (sampleEvery < 1)) {
+            Log.e(TAG, "Invalid throttle rule for event " + eventId);
+            return;
+        }
+        if ((mRules.size() >= MAX_RULES) && !mRules.containsKey(eventId)) {
+            Log.e(TAG, "At most " + MAX_RULES + " events can be throttled, ignoring " + eventId);
+            return;
+        }
+        mRules.put(eventId, new Rule(maxPerSecond, Math.max(1, burst), sampleEvery));
+    }
+
+    void clearRule(String eventId) {
+        if (eventId == null) {
+            mRules.clear();
+        } else {
+            mRules.remove(eventId);
+        }
+    }
+
+    /**
+     * @param eventId the event name, may be null.
+     * @return true if the event should be logged, false if it is sampled out or throttled.
+     */
+    boolean tryAcquire(String eventId) {
+        // A null name has no rule, and is passed through to the Flurry SDK as before.
+        if ((eventId == null) || mRules.isEmpty()) {
+            return true;
+        }
+        Rule rule = mRules.get(eventId);
+        return (rule == null) || rule.tryAcquire();
+    }
+
+    WritableMap getStats(boolean reset) {
+        WritableMap map = Arguments.createMap();
+        for (Map.Entry<String, Rule> entry : mRules.entrySet()) {
+            map.putMap(entry.getKey(), entry.getValue().toMap(reset));
+        }
+        return map;
+    }
+
+}
@@ -0,0 +1,632 @@
+/*
+ * Copyright 2023, Yahoo Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flurry.android.reactnative;
+
+import android.util.Log;
+
+import com.flurry.android.FlurryAgent;
+import com.flurry.android.FlurryEvent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of events and payments that are not yet handed to the Flurry SDK. Custom,
+ * timed and standard events are journaled, including the ones sent in batches.
+ *
+ * Records are written to memory-mapped segment files before the call is dispatched, and the
+ * checkpoint is moved past the records that the Flurry SDK accepted, up to the oldest one still
+ * pending. Records are accepted out of order across the dispatcher lanes, so a record accepted
+ * while an older one is still pending is marked by an ack record instead, and is skipped by the
+ * scan. The page cache keeps the mapped writes when the process is killed, so the records after
+ * the checkpoint that are not acknowledged can be replayed on the next launch. Segments are
+ * rotated when full and deleted, oldest first, once all their records are acknowledged.
+ *
+ * Record layout: length (int), CRC32 of the body (int), body. The body starts with the record ID
+ * and type, an ack record carries the ID of the record it acknowledges.
+ * The length is written last, so a record torn by a crash fails the length or CRC check and
+ * ends the scan of its segment.
+ */
+class ReactNativeFlurryJournal {
+    private static final String TAG = "FlurryJournal";
+
+    static final String DIRECTORY = "flurry_rn_journal";
+    static final long NO_RECORD = -1;
+
+    static final int SEGMENT_SIZE = 256 * 1024;
+    private static final int SEGMENT_MAGIC = 0x464A524E;
+    private static final int SEGMENT_VERSION = 1;
+    private static final int SEGMENT_HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int CHECKPOINT_SLOT_SIZE = 16;
+
+    private static final byte TYPE_EVENT = 1;
+    private static final byte TYPE_PAYMENT = 2;
+    private static final byte TYPE_ACK = 3;
+    private static final byte TYPE_TIMED_EVENT = 4;
+    private static final byte TYPE_STANDARD_EVENT = 5;
+
+    // Tags of the raw standard event parameter values.
+    private static final byte VALUE_STRING = 0;
+    private static final byte VALUE_DOUBLE = 1;
+    private static final byte VALUE_BOOLEAN = 2;
+
+    /**
+     * A recovered record and the Flurry SDK call that replays it.
+     */
+    static final class Record {
+        final long id;
+        final Runnable task;
+        // The transaction ID of a payment, null for an event.
+        final String transactionId;
+
+        Record(long id, Runnable task, String transactionId) {
+            this.id = id;
+            this.task = task;
+            this.transactionId = transactionId;
+        }
+    }
+
+    private static final class Segment {
+        final long index;
+        final File file;
+        final MappedByteBuffer buffer;
+        int position = SEGMENT_HEADER_SIZE;
+        // The highest record ID written or acknowledged in the segment.
+        long lastId = NO_RECORD;
+
+        Segment(long index, File file, MappedByteBuffer buffer) {
+            this.index = index;
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+
+    private final File mDirectory;
+    private final MappedByteBuffer mCheckpointBuffer;
+    private int mCheckpointSlot = 0;
+    private long mCheckpoint;
+    private long mNextId;
+
+    private final ArrayDeque<Segment> mSegments = new ArrayDeque<>();
+    private Segment mActive;
+    private final List<Record> mRecovered = new ArrayList<>();
+    // Records appended or recovered, and not yet acknowledged.
+    private final TreeSet<Long> mPending = new TreeSet<>();
+
+    private final CRC32 mCrc = new CRC32();
+
+    static boolean exists(File directory) {
+        String[] names = directory.list();
+        return (names != null) && (names.length > 0);
+    }
+
+    /**
+     * Open the journal, scanning the existing segments for records after the checkpoint.
+     *
+     * @param directory the journal directory.
+     * @return the journal, ready for appends.
+     * @throws IOException if the journal files cannot be created or mapped.
+     */
+    static ReactNativeFlurryJournal open(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create journal directory " + directory);
+        }
+        return new ReactNativeFlurryJournal(directory);
+    }
+
+    private ReactNativeFlurryJournal(File directory) throws IOException {
+        mDirectory = directory;
+        mCheckpointBuffer = map(new File(directory, CHECKPOINT_FILE), 2 * CHECKPOINT_SLOT_SIZE);
+        mCheckpoint = readCheckpoint();
+
+        long maxId = mCheckpoint;
+        long maxIndex = -1;
+        Set<Long> acknowledged = new HashSet<>();
+        for (Segment segment : listSegments()) {
+            scan(segment, acknowledged);
+            maxIndex = Math.max(maxIndex, segment.index);
+            maxId = Math.max(maxId, segment.lastId);
+            mSegments.add(segment);
+        }
+
+        // An ack record can be in a later segment than its record, so it is applied once all are scanned.
+        Iterator<Record> iterator = mRecovered.iterator();
+        while (iterator.hasNext()) {
+            Record record = iterator.next();
+            if (acknowledged.contains(record.id)) {
+                iterator.remove();
+                mPending.remove(record.id);
+            }
+        }
+
+        mNextId = maxId + 1;
+        mActive = createSegment(maxIndex + 1);
+        mSegments.add(mActive);
+        // Deleted oldest first, so no ack record outlives the segment of its record.
+        deleteAcknowledgedSegments();
+
+        if (!mRecovered.isEmpty()) {
+            Log.i(TAG, "Recovered " + mRecovered.size() + " Flurry calls that were not forwarded before the last exit.");
+        }
+    }
+
+    /**
+     * Take the records that were not acknowledged before the last exit, in append order.
+     * Each must be acknowledged once replayed.
+     *
+     * @return the recovered records.
+     */
+    synchronized List<Record> takeRecovered() {
+        List<Record> records = new ArrayList<>(mRecovered);
+        mRecovered.clear();
+        return records;
+    }
+
+    synchronized long appendEvent(String eventId, Map<String, String> parameters) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(mNextId);
+            out.writeByte(TYPE_EVENT);
+            writeString(out, eventId);
+            writeParameters(out, parameters);
+            return append(bytes.toByteArray());
+        } catch (IOException e) {
+            Log.e(TAG, "Event is not journaled: " + eventId, e);
+            return NO_RECORD;
+        }
+    }
+
+    /**
+     * Journal a timed event, e.g. from logEventTimed or logEventParamsTimedId.
+     *
+     * @param timed   whether the event is timed, ignored if timedId is set.
+     * @param timedId the timed event ID, may be null.
+     */
+    synchronized long appendTimedEvent(String eventId, Map<String, String> parameters, boolean timed,
+                                       String timedId) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(mNextId);
+            out.writeByte(TYPE_TIMED_EVENT);
+            writeString(out, eventId);
+            writeParameters(out, parameters);
+            out.writeBoolean(timed);
+            writeString(out, timedId);
+            return append(bytes.toByteArray());
+        } catch (IOException e) {
+            Log.e(TAG, "Timed event is not journaled: " + eventId, e);
+            return NO_RECORD;
+        }
+    }
+
+    /**
+     * Journal a standard event by its raw parameter values, which are converted to the typed
+     * Flurry parameters again on replay.
+     *
+     * @param values the String, Double or Boolean values keyed by parameter key, may be null.
+     */
+    synchronized long appendStandardEvent(FlurryEvent event, Map<String, Object> values) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(mNextId);
+            out.writeByte(TYPE_STANDARD_EVENT);
+            writeString(out, event.name());
+            writeValues(out, values);
+            return append(bytes.toByteArray());
+        } catch (IOException e) {
+            Log.e(TAG, "Standard event is not journaled: " + event, e);
+            return NO_RECORD;
+        }
+    }
+
+    synchronized long appendPayment(String productName, String productId, int quantity, double price,
+                                    String currency, String transactionId, Map<String, String> parameters) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(mNextId);
+            out.writeByte(TYPE_PAYMENT);
+            writeString(out, productName);
+            writeString(out, productId);
+            out.writeInt(quantity);
+            out.writeDouble(price);
+            writeString(out, currency);
+            writeString(out, transactionId);
+            writeParameters(out, parameters);
+            return append(bytes.toByteArray());
+        } catch (IOException e) {
+            Log.e(TAG, "Payment is not journaled: " + transactionId, e);
+            return NO_RECORD;
+        }
+    }
+
+    /**
+     * Mark a record as accepted by the Flurry SDK. The checkpoint moves up to the oldest record
+     * still pending, and the segments whose records are all acknowledged are deleted. A record
+     * above the new checkpoint gets an ack record, so it is not replayed after a crash.
+     *
+     * @param id the record ID.
+     */
+    synchronized void acknowledge(long id) {
+        if (!mPending.remove(id)) {
+            return;
+        }
+
+        long checkpoint = mPending.isEmpty() ? mNextId - 1 : mPending.first() - 1;
+        if (id > checkpoint) {
+            appendAck(id);
+        }
+        if (checkpoint <= mCheckpoint) {
+            return;
+        }
+
+        mCheckpoint = checkpoint;
+        // Alternate between two slots, a torn checkpoint write leaves the previous one valid.
+        mCheckpointSlot ^= 1;
+        int offset = mCheckpointSlot * CHECKPOINT_SLOT_SIZE;
+        mCheckpointBuffer.putLong(offset, checkpoint);
+        mCheckpointBuffer.putLong(offset + 8, ~checkpoint);
+
+        deleteAcknowledgedSegments();
+    }
+
+    private void appendAck(long id) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(9);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(id);
+            out.writeByte(TYPE_ACK);
+            write(bytes.toByteArray());
+            mActive.lastId = Math.max(mActive.lastId, id);
+        } catch (IOException e) {
+            Log.e(TAG, "Acknowledgement is not journaled, record " + id + " may be replayed.", e);
+        }
+    }
+
+    private long append(byte[] body) throws IOException {
+        write(body);
+        long id = mNextId++;
+        mPending.add(id);
+        mActive.lastId = id;
+        return id;
+    }
+
+    private void write(byte[] body) throws IOException {
+        int size = RECORD_HEADER_SIZE + body.length;
+        if (size > SEGMENT_SIZE - SEGMENT_HEADER_SIZE) {
+            throw new IOException("Record of " + body.length + " bytes exceeds the segment size.");
+        }
+        if (mActive.position + size > SEGMENT_SIZE) {
+            rotate();
+        }
+
+        mCrc.reset();
+        mCrc.update(body, 0, body.length);
+
+        MappedByteBuffer buffer = mActive.buffer;
+        int position = mActive.position;
+        ByteBuffer target = buffer.duplicate();
+        target.position(position + RECORD_HEADER_SIZE);
+        target.put(body);
+        buffer.putInt(position + 4, (int) mCrc.getValue());
+        buffer.putInt(position, body.length);
+        mActive.position = position + size;
+    }
+
+    private void rotate() throws IOException {
+        mActive = createSegment(mActive.index + 1);
+        mSegments.add(mActive);
+        deleteAcknowledgedSegments();
+    }
+
+    private void deleteAcknowledgedSegments() {
+        while (!mSegments.isEmpty()) {
+            Segment segment = mSegments.peekFirst();
+            if ((segment == mActive) || (segment.lastId > mCheckpoint)) {
+                return;
+            }
+            mSegments.pollFirst();
+            if (!segment.file.delete()) {
+                Log.w(TAG, "Cannot delete acknowledged journal segment " + segment.file);
+            }
+        }
+    }
+
+    private long readCheckpoint() {
+        long checkpoint = 0;
+        for (int slot = 0; slot < 2; slot++) {
+            int offset = slot * CHECKPOINT_SLOT_SIZE;
+            long id = mCheckpointBuffer.getLong(offset);
+            if ((mCheckpointBuffer.getLong(offset + 8) == ~id) && (id > checkpoint)) {
+                checkpoint = id;
+                mCheckpointSlot = slot;
+            }
+        }
+        return checkpoint;
+    }
+
+    private List<Segment> listSegments() throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        String[] names = mDirectory.list();
+        if (names == null) {
+            return segments;
+        }
+
+        Arrays.sort(names);
+        for (String name : names) {
+            if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+                continue;
+            }
+            try {
+                long index = Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                        name.length() - SEGMENT_SUFFIX.length()));
+                File file = new File(mDirectory, name);
+                segments.add(new Segment(index, file, map(file, SEGMENT_SIZE)));
+            } catch (NumberFormatException e) {
+                Log.w(TAG, "Ignoring unknown journal file " + name);
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Recover the records of a segment above the checkpoint, and collect the IDs it acknowledges.
+     */
+    private void scan(Segment segment, Set<Long> acknowledged) {
+        MappedByteBuffer buffer = segment.buffer;
+        if ((buffer.getInt(0) != SEGMENT_MAGIC) || (buffer.getInt(4) != SEGMENT_VERSION)) {
+            return;
+        }
+
+        int position = SEGMENT_HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= SEGMENT_SIZE) {
+            int length = buffer.getInt(position);
+            if ((length <= 0) || (position + RECORD_HEADER_SIZE + length > SEGMENT_SIZE)) {
+                break;
+            }
+
+            byte[] body = new byte[length];
+            ByteBuffer source = buffer.duplicate();
+            source.position(position + RECORD_HEADER_SIZE);
+            source.get(body);
+            mCrc.reset();
+            mCrc.update(body, 0, length);
+            if ((int) mCrc.getValue() != buffer.getInt(position + 4)) {
+                Log.w(TAG, "Journal segment " + segment.file.getName() + " ends with a torn record.");
+                break;
+            }
+
+            try {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+                long id = in.readLong();
+                byte type = in.readByte();
+                if (type == TYPE_ACK) {
+                    acknowledged.add(id);
+                } else if (id > mCheckpoint) {
+                    Record record = decode(id, type, in);
+                    if (record != null) {
+                        mRecovered.add(record);
+                        mPending.add(id);
+                    }
+                }
+                segment.lastId = Math.max(segment.lastId, id);
+            } catch (IOException e) {
+                Log.e(TAG, "Journal record cannot be decoded.", e);
+                break;
+            }
+            position += RECORD_HEADER_SIZE + length;
+        }
+        segment.position = position;
+    }
+
+    private static Record decode(long id, byte type, DataInputStream in) throws IOException {
+        switch (type) {
+            case TYPE_EVENT: {
+                final String eventId = readString(in);
+                final Map<String, String> params = readParameters(in);
+                if (params != null) {
+                    return new Record(id, () -> FlurryAgent.logEvent(eventId, params), null);
+                } else {
+                    return new Record(id, () -> FlurryAgent.logEvent(eventId), null);
+                }
+            }
+            case TYPE_TIMED_EVENT: {
+                final String eventId = readString(in);
+                final Map<String, String> params = readParameters(in);
+                final boolean timed = in.readBoolean();
+                final String timedId = readString(in);
+                if (timedId != null) {
+                    if (params != null) {
+                        return new Record(id, () -> FlurryAgent.logEvent(eventId, params, timedId), null);
+                    } else {
+                        return new Record(id, () -> FlurryAgent.logEvent(eventId, timedId), null);
+                    }
+                }
+                if (params != null) {
+                    return new Record(id, () -> FlurryAgent.logEvent(eventId, params, timed), null);
+                } else {
+                    return new Record(id, () -> FlurryAgent.logEvent(eventId, timed), null);
+                }
+            }
+            case TYPE_STANDARD_EVENT: {
+                String name = readString(in);
+                final Map<String, Object> values = readValues(in);
+                final FlurryEvent event;
+                try {
+                    event = FlurryEvent.valueOf(name);
+                } catch (IllegalArgumentException | NullPointerException e) {
+                    Log.w(TAG, "Journaled standard event is not known to this Flurry SDK: " + name);
+                    return null;
+                }
+                final FlurryEvent.Params params = FlurryModule.getStandardEventParams(values);
+                return new Record(id, () -> FlurryAgent.logEvent(event, params), null);
+            }
+            case TYPE_PAYMENT: {
+                final String productName = readString(in);
+                final String productId = readString(in);
+                final int quantity = in.readInt();
+                final double price = in.readDouble();
+                final String currency = readString(in);
+                final String transactionId = readString(in);
+                final Map<String, String> params = readParameters(in);
+                return new Record(id, () -> FlurryAgent.logPayment(productName, productId, quantity, price,
+                        currency, transactionId, params), transactionId);
+            }
+            default:
+                return null;
+        }
+    }
+
+    private Segment createSegment(long index) throws IOException {
+        File file = new File(mDirectory, String.format(Locale.US, "%s%019d%s",
+                SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+        Segment segment = new Segment(index, file, map(file, SEGMENT_SIZE));
+        segment.buffer.putInt(0, SEGMENT_MAGIC);
+        segment.buffer.putInt(4, SEGMENT_VERSION);
+        return segment;
+    }
+
+    private static MappedByteBuffer map(File file, int size) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            // The mapping stays valid after the file is closed.
+            return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeParameters(DataOutputStream out, Map<String, String> parameters) throws IOException {
+        if (parameters == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(parameters.size());
+        for (Map.Entry<String, String> entry : parameters.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    private static void writeValues(DataOutputStream out, Map<String, Object> values) throws IOException {
+        int count = 0;
+        if (values != null) {
+            for (Object value : values.values()) {
+                if (value != null) {
+                    count++;
+                }
+            }
+        }
+        out.writeInt(count);
+        if (count == 0) {
+            return;
+        }
+
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            Object value = entry.getValue();
+            if (value == null) {
+                continue;
+            }
+            writeString(out, entry.getKey());
+            if (value instanceof Double) {
+                out.writeByte(VALUE_DOUBLE);
+                out.writeDouble((Double) value);
+            } else if (value instanceof Boolean) {
+                out.writeByte(VALUE_BOOLEAN);
+                out.writeBoolean((Boolean) value);
+            } else {
+                out.writeByte(VALUE_STRING);
+                out.writeUTF(value.toString());
+            }
+        }
+    }
+
+    private static Map<String, Object> readValues(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        Map<String, Object> values = new HashMap<>(Math.max(16, size * 2));
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            byte type = in.readByte();
+            switch (type) {
+                case VALUE_DOUBLE:
+                    values.put(key, in.readDouble());
+                    break;
+                case VALUE_BOOLEAN:
+                    values.put(key, in.readBoolean());
+                    break;
+                case VALUE_STRING:
+                    values.put(key, in.readUTF());
+                    break;
+                default:
+                    throw new IOException("Unknown standard parameter value type: " + type);
+            }
+        }
+        return values;
+    }
+
+    private static Map<String, String> readParameters(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            return null;
+        }
+        Map<String, String> parameters = new HashMap<>(Math.max(16, size * 2));
+        for (int i = 0; i < size; i++) {
+            parameters.put(readString(in), readString(in));
+        }
+        return parameters;
+    }
+
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2023, Yahoo Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flurry.android.reactnative;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Drops payments whose transaction ID was already logged within the dedup window, e.g. when a
+ * purchase flow retries.
+ *
+ * Transaction IDs are kept as 64-bit hashes with the time they were first seen, in insertion
+ * order, so lookups are O(1) and the oldest IDs expire or are evicted first. An ID is in flight
+ * from the check until the Flurry SDK took the payment, and is only then written to a fixed ring
+ * of slots in a memory-mapped file, so recent IDs survive restarts. A journaled payment replayed
+ * after a crash is checked again: it is dropped if the SDK took it before the crash, and is not
+ * mistaken for a retry of itself otherwise.
+ *
+ * File layout: magic (int), version (int), next slot (int), padding (int), then CAPACITY slots of
+ * hash (long) and time (long). A slot with time 0 is empty.
+ */
+class ReactNativeFlurryPaymentDedup {
+    private static final String TAG = "FlurryPaymentDedup";
+
+    static final String FILE_NAME = "flurry_rn_payments.bin";
+    static final int CAPACITY = 1024;
+    static final long WINDOW_MILLIS = 24 * 60 * 60 * 1000;
+
+    private static final int MAGIC = 0x46504459;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int SLOT_SIZE = 16;
+    private static final int NEXT_SLOT_OFFSET = 8;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // Transaction ID hash to the time it was first seen, oldest first.
+    private final LinkedHashMap<Long, Long> mSeen = new LinkedHashMap<>(CAPACITY * 2);
+    // Transaction ID hashes checked and not yet taken by the Flurry SDK, kept in memory only.
+    private final Set<Long> mInFlight = new HashSet<>();
+
+    private MappedByteBuffer mBuffer = null;
+    private int mNextSlot = 0;
+
+    private long mHits = 0;
+    private long mMisses = 0;
+    private long mEvictions = 0;
+
+    /**
+     * Map the dedup file and load the IDs still within the window. IDs seen before the file is
+     * opened are kept and written to it.
+     *
+     * @param file the dedup file.
+     */
+    synchronized void open(File file) {
+        if (mBuffer != null) {
+            return;
+        }
+
+        MappedByteBuffer buffer;
+        try {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            try {
+                // The mapping stays valid after the file is closed.
+                buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+                        HEADER_SIZE + CAPACITY * SLOT_SIZE);
+            } finally {
+                randomAccessFile.close();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Payment dedup file cannot be opened, duplicates are only dropped until the app exits.", e);
+            return;
+        }
+
+        List<Map.Entry<Long, Long>> unsaved = new ArrayList<>(mSeen.entrySet());
+        mSeen.clear();
+
+        if ((buffer.getInt(0) == MAGIC) && (buffer.getInt(4) == VERSION)) {
+            mNextSlot = Math.max(0, buffer.getInt(NEXT_SLOT_OFFSET)) % CAPACITY;
+            long now = System.currentTimeMillis();
+            // From the next slot around the ring is oldest to newest.
+            for (int i = 0; i < CAPACITY; i++) {
+                int offset = HEADER_SIZE + ((mNextSlot + i) % CAPACITY) * SLOT_SIZE;
+                long hash = buffer.getLong(offset);
+                long time = buffer.getLong(offset + 8);
+                if ((time > 0) && (now - time < WINDOW_MILLIS)) {
+                    mSeen.remove(hash);
+                    mSeen.put(hash, time);
+                }
+            }
+        } else {
+            for (int offset = HEADER_SIZE; offset < buffer.capacity(); offset += SLOT_SIZE) {
+                buffer.putLong(offset + 8, 0);
+            }
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(NEXT_SLOT_OFFSET, 0);
+            mNextSlot = 0;
+        }
+        mBuffer = buffer;
+
+        for (Map.Entry<Long, Long> entry : unsaved) {
+            if (!mSeen.containsKey(entry.getKey())) {
+                add(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Check a transaction ID, and mark it in flight if it is new. The caller must report the
+     * outcome with {@link #forwarded(String)} or {@link #release(String)}.
+     *
+     * @param transactionId the payment transaction ID.
+     * @return true if the ID was seen within the window or is in flight, and the payment should be dropped.
+     */
+    synchronized boolean isDuplicate(String transactionId) {
+        expire(System.currentTimeMillis());
+
+        long hash = hash(transactionId);
+        if (mSeen.containsKey(hash) || !mInFlight.add(hash)) {
+            mHits++;
+            return true;
+        }
+
+        mMisses++;
+        return false;
+    }
+
+    /**
+     * Remember a transaction ID once the Flurry SDK took its payment.
+     *
+     * @param transactionId the payment transaction ID.
+     */
+    synchronized void forwarded(String transactionId) {
+        long hash = hash(transactionId);
+        mInFlight.remove(hash);
+        if (!mSeen.containsKey(hash)) {
+            add(hash, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Forget an in-flight transaction ID whose payment was dropped, so that a retry is accepted.
+     *
+     * @param transactionId the payment transaction ID.
+     */
+    synchronized void release(String transactionId) {
+        mInFlight.remove(hash(transactionId));
+    }
+
+    synchronized WritableMap getStats(boolean reset) {
+        expire(System.currentTimeMillis());
+
+        WritableMap map = Arguments.createMap();
+        map.putDouble("hits", mHits);
+        map.putDouble("misses", mMisses);
+        map.putDouble("evictions", mEvictions);
+        map.putDouble("size", mSeen.size());
+        map.putDouble("capacity", CAPACITY);
+        if (reset) {
+            mHits = 0;
+            mMisses = 0;
+            mEvictions = 0;
+        }
+        return map;
+    }
+
+    private void add(long hash, long time) {
+        if (mSeen.size() >= CAPACITY) {
+            // Still within the window, so a retry of this ID is no longer caught.
+            Iterator<Long> iterator = mSeen.keySet().iterator();
+            iterator.next();
+            iterator.remove();
+            mEvictions++;
+        }
+        mSeen.put(hash, time);
+
+        // The ring and the map are both in insertion order, so the overwritten slot is never a kept ID.
+        if (mBuffer != null) {
+            int offset = HEADER_SIZE + mNextSlot * SLOT_SIZE;
+            mBuffer.putLong(offset, hash);
+            mBuffer.putLong(offset + 8, time);
+            mNextSlot = (mNextSlot + 1) % CAPACITY;
+            mBuffer.putInt(NEXT_SLOT_OFFSET, mNextSlot);
+        }
+    }
+
+    private void expire(long now) {
+        Iterator<Long> iterator = mSeen.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next() < WINDOW_MILLIS) {
+                // Insertion ordered, the rest are younger.
+                break;
+            }
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the ID, so that every entry has a fixed size in the file.
+     */
+    private static long hash(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2023, Yahoo Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flurry.android.reactnative;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+import com.flurry.android.FlurryAgent;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded ring buffer that holds events, user property changes and breadcrumbs logged before the
+ * Flurry session starts, and replays them in order once it does.
+ *
+ * Calls of the high dispatcher lane, payments, errors and breadcrumbs, are kept in a separate
+ * unbounded buffer and replayed first, so a burst of events cannot evict them. When the ring is
+ * full its oldest call is dropped, and the drop callback of that call is run.
+ *
+ * Only accessed from the dispatcher thread, except for the overflow stats.
+ */
+class ReactNativeFlurryPreInitBuffer {
+    private static final String TAG = "FlurryPreInitBuffer";
+
+    static final int DEFAULT_CAPACITY = 256;
+
+    private final Runnable[] mBuffer;
+    private final Runnable[] mOnDropped;
+    private final ArrayDeque<Runnable> mHighBuffer = new ArrayDeque<>();
+    private int mHead = 0;
+    private int mCount = 0;
+    private boolean mStarted = false;
+
+    private long mBufferedCount = 0;
+    private long mReplayedCount = 0;
+    private final AtomicLong mDroppedCount = new AtomicLong();
+    private volatile int mPending = 0;
+
+    ReactNativeFlurryPreInitBuffer(int capacity) {
+        mBuffer = new Runnable[capacity];
+        mOnDropped = new Runnable[capacity];
+    }
+
+    /**
+     * Run the call now if the session has started, otherwise keep it for replay.
+     *
+     * @param lane      the dispatcher lane of the call, calls of the high lane are never dropped.
+     * @param task      the Flurry SDK call.
+     * @param onDropped run if the call is dropped when the buffer is full, may be null.
+     */
+    void runOrBuffer(int lane, Runnable task, Runnable onDropped) {
+        if (!mStarted && FlurryAgent.isSessionActive()) {
+            // The agent was started outside of the React Native builder.
+            start();
+        }
+
+        if (mStarted) {
+            task.run();
+            return;
+        }
+
+        mBufferedCount++;
+        if (lane == ReactNativeFlurryDispatcher.LANE_HIGH) {
+            mHighBuffer.add(task);
+            mPending = mCount + mHighBuffer.size();
+            return;
+        }
+
+        if (mCount == mBuffer.length) {
+            Runnable dropped = mOnDropped[mHead];
+            mBuffer[mHead] = null;
+            mOnDropped[mHead] = null;
+            mHead = (mHead + 1) % mBuffer.length;
+            mCount--;
+            mDroppedCount.incrementAndGet();
+            if (dropped != null) {
+                try {
+                    dropped.run();
+                } catch (Throwable t) {
+                    Log.e(TAG, "Dropped Flurry call failed to clean up.", t);
+                }
+            }
+        }
+        int index = (mHead + mCount) % mBuffer.length;
+        mBuffer[index] = task;
+        mOnDropped[index] = onDropped;
+        mCount++;
+        mPending = mCount + mHighBuffer.size();
+    }
+
+    /**
+     * Mark the session as started, and replay the buffered calls, the high lane first and each in order.
+     */
+    void start() {
+        if (mStarted) {
+            return;
+        }
+        mStarted = true;
+
+        if (mPending > 0) {
+            Log.d(TAG, "Replaying " + mPending + " Flurry calls made before the session started.");
+        }
+        while (!mHighBuffer.isEmpty()) {
+            replay(mHighBuffer.poll());
+        }
+        while (mCount > 0) {
+            Runnable task = mBuffer[mHead];
+            mBuffer[mHead] = null;
+            mOnDropped[mHead] = null;
+            mHead = (mHead + 1) % mBuffer.length;
+            mCount--;
+            replay(task);
+        }
+        mPending = 0;
+    }
+
+    private void replay(Runnable task) {
+        mReplayedCount++;
+        try {
+            task.run();
+        } catch (Throwable t) {
+            Log.e(TAG, "Replayed Flurry call failed.", t);
+        }
+    }
+
+    WritableMap getStats() {
+        WritableMap map = Arguments.createMap();
+        map.putBoolean("started", mStarted);
+        map.putDouble("pending", mPending);
+        map.putDouble("buffered", mBufferedCount);
+        map.putDouble("replayed", mReplayedCount);
+        map.putDouble("dropped", mDroppedCount.get());
+        return map;
+    }
+
+    /**
+     * Get the pending calls, capacity and drops of the buffer, from any thread.
+     *
+     * @param reset true to clear the drops after reading them.
+     */
+    WritableMap getOverflowStats(boolean reset) {
+        WritableMap map = Arguments.createMap();
+        map.putDouble("depth", mPending);
+        map.putDouble("capacity", mBuffer.length);
+        map.putDouble("dropped", reset ? mDroppedCount.getAndSet(0) : mDroppedCount.get());
+        return map;
+    }
+
+}
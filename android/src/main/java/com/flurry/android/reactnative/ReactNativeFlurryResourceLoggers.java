@@ -0,0 +1,92 @@
+/*
+ * Copyright 2023, Yahoo Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flurry.android.reactnative;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.flurry.android.FlurryPerformance;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Performance resource loggers started from JS, keyed by handle, so that several measurements
+ * can run at once.
+ *
+ * At most MAX_LOGGERS are kept, the least recently used is evicted first. Loggers not used for
+ * STALE_MILLIS are evicted too. Only accessed from the dispatcher thread.
+ */
+class ReactNativeFlurryResourceLoggers {
+    private static final String TAG = "FlurryResourceLoggers";
+
+    static final int MAX_LOGGERS = 32;
+    static final long STALE_MILLIS = 10 * 60 * 1000;
+
+    private static final class Entry {
+        final FlurryPerformance.ResourceLogger logger = new FlurryPerformance.ResourceLogger();
+        long lastUsedRealtime = SystemClock.elapsedRealtime();
+    }
+
+    // Access ordered, so the least recently used logger comes first.
+    private final LinkedHashMap<Integer, Entry> mLoggers =
+            new LinkedHashMap<Integer, Entry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                    return size() > MAX_LOGGERS;
+                }
+            };
+
+    /**
+     * Start a resource logger, replacing the one with the same handle.
+     *
+     * @param handle the handle assigned by JS.
+     */
+    void start(int handle) {
+        evictStale(SystemClock.elapsedRealtime());
+        mLoggers.put(handle, new Entry());
+    }
+
+    /**
+     * Log the resources consumed since the logger started.
+     *
+     * @param handle the logger handle.
+     * @param id     the group ID.
+     */
+    void log(int handle, String id) {
+        Entry entry = mLoggers.get(handle);
+        if (entry == null) {
+            Log.w(TAG, "Resource logger is not started or was evicted: " + handle);
+            return;
+        }
+        entry.lastUsedRealtime = SystemClock.elapsedRealtime();
+        entry.logger.logEvent(id);
+    }
+
+    private void evictStale(long now) {
+        Iterator<Entry> iterator = mLoggers.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().lastUsedRealtime < STALE_MILLIS) {
+                // Ordered by use, the rest are more recent.
+                return;
+            }
+            iterator.remove();
+        }
+    }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2023, Yahoo Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flurry.android.reactnative;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.WritableMap;
+import com.flurry.android.FlurryPublisherSegmentation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Publisher segmentation requests with a single in-flight fetch and a TTL cache.
+ *
+ * Requests made while a fetch is in flight wait for that fetch instead of starting another one.
+ * A fetch that has not completed within FETCH_TIMEOUT_MILLIS rejects its waiters and is dropped,
+ * so the next request starts a new one. Fetched data is kept for CACHE_TTL_MILLIS, and requests
+ * without refresh are resolved from it.
+ *
+ * Only accessed from the dispatcher thread, the fetch listener hops back to it through the executor.
+ */
+class ReactNativeFlurrySegmentation {
+
+    static final long CACHE_TTL_MILLIS = 5 * 60 * 1000;
+    static final long FETCH_TIMEOUT_MILLIS = 30000;
+
+    private final Executor mExecutor;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final List<Promise> mWaiters = new ArrayList<>();
+    private FlurryPublisherSegmentation.FetchListener mFetchListener = null;
+
+    private Map<String, String> mCachedData = null;
+    private long mCachedRealtime = 0;
+
+    ReactNativeFlurrySegmentation(Executor executor) {
+        mExecutor = executor;
+    }
+
+    void get(boolean refresh, Promise promise) {
+        // Cached data is OK.
+        if (!refresh) {
+            if ((mCachedData != null) && (SystemClock.elapsedRealtime() - mCachedRealtime < CACHE_TTL_MILLIS)) {
+                resolve(mCachedData, promise);
+                return;
+            }
+
+            Map<String, String> data = FlurryPublisherSegmentation.getPublisherData();
+            if (data != null) {
+                resolve(cache(data), promise);
+                return;
+            }
+        }
+
+        // Join the fetch in flight.
+        if (mFetchListener != null) {
+            mWaiters.add(promise);
+            return;
+        }
+
+        // Check whether the data is already fetched or not.
+        if (FlurryPublisherSegmentation.isFetchFinished()) {
+            resolve(cache(FlurryPublisherSegmentation.getPublisherData()), promise);
+            return;
+        }
+
+        mWaiters.add(promise);
+        final FlurryPublisherSegmentation.FetchListener listener = new FlurryPublisherSegmentation.FetchListener() {
+            @Override
+            public void onFetched(final Map<String, String> data) {
+                final FlurryPublisherSegmentation.FetchListener self = this;
+                mExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        onFetchComplete(self, data);
+                    }
+                });
+            }
+        };
+        mFetchListener = listener;
+        FlurryPublisherSegmentation.registerFetchListener(listener);
+        FlurryPublisherSegmentation.fetch();
+
+        mHandler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                mExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        onFetchTimeout(listener);
+                    }
+                });
+            }
+        }, FETCH_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Drop the cached data, e.g. when a fetch is requested outside of get.
+     */
+    void invalidate() {
+        mCachedData = null;
+    }
+
+    private void onFetchComplete(FlurryPublisherSegmentation.FetchListener listener, Map<String, String> data) {
+        // Late callback of a fetch that timed out.
+        if (mFetchListener != listener) {
+            return;
+        }
+        FlurryPublisherSegmentation.unregisterFetchListener(listener);
+        mFetchListener = null;
+
+        Map<String, String> cached = cache(data);
+        for (Promise waiter : mWaiters) {
+            resolve(cached, waiter);
+        }
+        mWaiters.clear();
+    }
+
+    private void onFetchTimeout(FlurryPublisherSegmentation.FetchListener listener) {
+        // The fetch already completed, or a newer one is in flight.
+        if (mFetchListener != listener) {
+            return;
+        }
+        FlurryPublisherSegmentation.unregisterFetchListener(listener);
+        mFetchListener = null;
+
+        for (Promise waiter : mWaiters) {
+            waiter.reject("Flurry.getPublisherSegmentation",
+                    "Publisher segmentation fetch did not complete within " + FETCH_TIMEOUT_MILLIS + " ms.");
+        }
+        mWaiters.clear();
+    }
+
+    private Map<String, String> cache(Map<String, String> data) {
+        if (data == null) {
+            // Nothing fetched, do not keep the next request from fetching.
+            return Collections.emptyMap();
+        }
+        mCachedData = Collections.unmodifiableMap(new HashMap<>(data));
+        mCachedRealtime = SystemClock.elapsedRealtime();
+        return mCachedData;
+    }
+
+    private static void resolve(Map<String, String> data, Promise promise) {
+        // A WritableMap is consumed when it is passed to JS, so each promise gets its own.
+        WritableMap map = Arguments.createMap();
+        for (Map.Entry<String, String> entry : data.entrySet()) {
+            map.putString(entry.getKey(), entry.getValue());
+        }
+        promise.resolve(map);
+    }
+
+}
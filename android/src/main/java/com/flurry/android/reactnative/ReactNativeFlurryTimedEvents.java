@@ -0,0 +1,252 @@
+/*
+ * Copyright 2023, Yahoo Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flurry.android.reactnative;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of the timed events started and not yet ended, keyed by event ID and timed ID.
+ *
+ * The registry is capped, the oldest open events are evicted first. Events left open longer
+ * than the timeout, or when the app is destroyed, are ended or reported. A main looper timer is
+ * set for the earliest expiry, so an event is closed even if no other timed event call follows.
+ */
+class ReactNativeFlurryTimedEvents {
+    private static final String TAG = "FlurryTimedEvents";
+
+    static final int MAX_OPEN_EVENTS = 256;
+
+    /**
+     * Ends the timed events that are left open.
+     */
+    interface Ender {
+        void endTimedEvent(String eventId, String timedId);
+    }
+
+    private static final class TimedEvent {
+        final String eventId;
+        final String timedId;
+        final long startTime;
+        final long startRealtime;
+        boolean reported = false;
+
+        TimedEvent(String eventId, String timedId) {
+            this.eventId = eventId;
+            this.timedId = timedId;
+            this.startTime = System.currentTimeMillis();
+            this.startRealtime = SystemClock.elapsedRealtime();
+        }
+    }
+
+    private final Ender mEnder;
+
+    // Insertion ordered, so the oldest open event comes first.
+    private final LinkedHashMap<String, TimedEvent> mOpenEvents =
+            new LinkedHashMap<String, TimedEvent>(16, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, TimedEvent> eldest) {
+                    if (size() > MAX_OPEN_EVENTS) {
+                        Log.w(TAG, "Too many open timed events, no longer tracking " + eldest.getValue().eventId);
+                        return true;
+                    }
+                    return false;
+                }
+            };
+
+    private long mTimeoutMillis = 0;
+    private boolean mAutoEnd = false;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    // The realtime the expiry timer is set for, 0 if it is not set.
+    private long mScheduledRealtime = 0;
+
+    private final Runnable mExpireTask = new Runnable() {
+        @Override
+        public void run() {
+            List<TimedEvent> expired;
+            synchronized (ReactNativeFlurryTimedEvents.this) {
+                mScheduledRealtime = 0;
+                long now = SystemClock.elapsedRealtime();
+                expired = collectExpired(now, false);
+                schedule(now);
+            }
+            endExpired(expired);
+        }
+    };
+
+    ReactNativeFlurryTimedEvents(Ender ender) {
+        mEnder = ender;
+    }
+
+    /**
+     * @param timeoutMillis how long a timed event may stay open, 0 for no timeout.
+     * @param autoEnd       true to end the timed events left open, false to only report them.
+     */
+    synchronized void setTimeout(long timeoutMillis, boolean autoEnd) {
+        mTimeoutMillis = Math.max(0, timeoutMillis);
+        mAutoEnd = autoEnd;
+        schedule(SystemClock.elapsedRealtime());
+    }
+
+    void start(String eventId, String timedId) {
+        List<TimedEvent> expired;
+        synchronized (this) {
+            String key = toKey(eventId, timedId);
+            // Re-insert so that a restarted event moves to the end of the order.
+            mOpenEvents.remove(key);
+            mOpenEvents.put(key, new TimedEvent(eventId, timedId));
+            long now = SystemClock.elapsedRealtime();
+            expired = collectExpired(now, false);
+            schedule(now);
+        }
+        endExpired(expired);
+    }
+
+    void end(String eventId, String timedId) {
+        List<TimedEvent> expired;
+        synchronized (this) {
+            mOpenEvents.remove(toKey(eventId, timedId));
+            long now = SystemClock.elapsedRealtime();
+            expired = collectExpired(now, false);
+            schedule(now);
+        }
+        endExpired(expired);
+    }
+
+    /**
+     * End or report every open timed event, e.g. when the app is destroyed.
+     */
+    void closeAll() {
+        List<TimedEvent> expired;
+        synchronized (this) {
+            long now = SystemClock.elapsedRealtime();
+            expired = collectExpired(now, true);
+            schedule(now);
+        }
+        endExpired(expired);
+    }
+
+    WritableArray getOpenEvents() {
+        List<TimedEvent> expired;
+        WritableArray array = Arguments.createArray();
+        synchronized (this) {
+            long now = SystemClock.elapsedRealtime();
+            expired = collectExpired(now, false);
+            schedule(now);
+            for (TimedEvent event : mOpenEvents.values()) {
+                WritableMap map = Arguments.createMap();
+                map.putString("eventId", event.eventId);
+                map.putString("timedId", event.timedId);
+                map.putDouble("startTime", event.startTime);
+                map.putDouble("durationMillis", now - event.startRealtime);
+                map.putBoolean("expired", event.reported);
+                array.pushMap(map);
+            }
+        }
+        endExpired(expired);
+        return array;
+    }
+
+    /**
+     * Collect the events open longer than the timeout, or all open events. Events to auto-end
+     * are removed, the others are reported once and kept until they end or are evicted.
+     */
+    private List<TimedEvent> collectExpired(long now, boolean all) {
+        if (!all && (mTimeoutMillis <= 0)) {
+            return null;
+        }
+
+        List<TimedEvent> expired = null;
+        Iterator<TimedEvent> iterator = mOpenEvents.values().iterator();
+        while (iterator.hasNext()) {
+            TimedEvent event = iterator.next();
+            if (!all && (now - event.startRealtime < mTimeoutMillis)) {
+                // Ordered by start time, the rest are younger.
+                break;
+            }
+            if (event.reported) {
+                continue;
+            }
+
+            if (mAutoEnd) {
+                iterator.remove();
+                if (expired == null) {
+                    expired = new ArrayList<>();
+                }
+                expired.add(event);
+            } else {
+                event.reported = true;
+                Log.w(TAG, "Timed event is left open: " + event.eventId
+                        + ((event.timedId != null) ? " (" + event.timedId + ")" : ""));
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Set the expiry timer for the oldest open event not yet reported, or cancel it if there is none.
+     */
+    private void schedule(long now) {
+        long deadline = 0;
+        if (mTimeoutMillis > 0) {
+            for (TimedEvent event : mOpenEvents.values()) {
+                if (!event.reported) {
+                    // Ordered by start time, this one expires first.
+                    deadline = event.startRealtime + mTimeoutMillis;
+                    break;
+                }
+            }
+        }
+        if (deadline == mScheduledRealtime) {
+            return;
+        }
+
+        mHandler.removeCallbacks(mExpireTask);
+        mScheduledRealtime = deadline;
+        if (deadline != 0) {
+            mHandler.postDelayed(mExpireTask, Math.max(0, deadline - now));
+        }
+    }
+
+    private void endExpired(List<TimedEvent> expired) {
+        if (expired == null) {
+            return;
+        }
+        for (TimedEvent event : expired) {
+            Log.w(TAG, "Ending timed event left open: " + event.eventId);
+            mEnder.endTimedEvent(event.eventId, event.timedId);
+        }
+    }
+
+    private static String toKey(String eventId, String timedId) {
+        return (timedId != null) ? eventId + '\u0000' + timedId : eventId;
+    }
+
+}
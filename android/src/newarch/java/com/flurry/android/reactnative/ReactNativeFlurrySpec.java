@@ -0,0 +1,31 @@
+/*
+ * Copyright 2023, Yahoo Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flurry.android.reactnative;
+
+import com.facebook.react.bridge.ReactApplicationContext;
+
+/**
+ * Base class of FlurryModule for the new architecture, the TurboModule spec generated by codegen
+ * from src/NativeReactNativeFlurry.js.
+ */
+abstract class ReactNativeFlurrySpec extends NativeReactNativeFlurrySpec {
+
+    ReactNativeFlurrySpec(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2023, Yahoo Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flurry.android.reactnative;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal benchmark runner for the JVM unit tests.
+ *
+ * An operation is warmed up, then timed over a fixed number of iterations in several rounds, and
+ * the average time per operation of the fastest round and the bytes allocated per operation are
+ * reported. Allocations are read from the HotSpot thread
+ * counters, and are NaN on other JVMs. Benchmarks only run with
+ * {@code ./gradlew testDebugUnitTest -PflurryBenchmark=true}, so the regular unit test run does
+ * not depend on the speed of the machine.
+ *
+ * The results of each benchmark class are written to build/reports/benchmarks/{class}.json, and
+ * compared with the baseline checked in as src/test/resources/benchmarks/{class}.json. A result
+ * fails if it is slower than its baseline by more than the tolerance, 50% unless set with
+ * {@code -PflurryBenchmarkTolerance=0.3}, or allocates more by more than 10% and 16 bytes.
+ * Results without a baseline are only reported. To move the baseline, run the benchmarks on the
+ * reference machine and copy the report over it, keeping the slowest of a few runs.
+ */
+final class ReactNativeFlurryBenchmark {
+
+    static final boolean ENABLED = Boolean.getBoolean("flurry.benchmark");
+
+    private static final String REPORT_DIR =
+            System.getProperty("flurry.benchmark.reportDir", "build/reports/benchmarks");
+    private static final double NANOS_TOLERANCE =
+            Double.parseDouble(System.getProperty("flurry.benchmark.tolerance", "0.5"));
+    private static final double BYTES_TOLERANCE = 0.1;
+    // Allocations of a few bytes per operation come and go with the JIT, e.g. of the timing loop.
+    private static final double BYTES_SLACK = 16;
+    private static final int ROUNDS = 5;
+
+    // One result of a report: "name": {"nanosPerOp": 12.3, "bytesPerOp": 45.6}, bytes may be null.
+    private static final Pattern RESULT_PATTERN = Pattern.compile(
+            "\"([^\"]+)\"\\s*:\\s*\\{\\s*\"nanosPerOp\"\\s*:\\s*([-+.0-9eE]+)\\s*,"
+                    + "\\s*\"bytesPerOp\"\\s*:\\s*([-+.0-9eE]+|null)\\s*\\}");
+
+    /**
+     * The operation under test. Its result is kept, so the JIT cannot drop the work.
+     */
+    interface Operation {
+        Object run(int iteration) throws Exception;
+    }
+
+    static final class Result {
+        final String name;
+        final double nanosPerOp;
+        final double bytesPerOp;
+
+        Result(String name, double nanosPerOp, double bytesPerOp) {
+            this.name = name;
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%-40s %12.1f ns/op %12.1f B/op %14.0f ops/s",
+                    name, nanosPerOp, bytesPerOp, 1e9 / nanosPerOp);
+        }
+    }
+
+    /**
+     * The results of one benchmark class, checked against its baseline and written as its report.
+     */
+    static final class Suite {
+        private final String mName;
+        private final Map<String, Result> mBaseline;
+        private final Map<String, Result> mResults = new LinkedHashMap<>();
+
+        Suite(Class<?> benchmark) throws IOException {
+            mName = benchmark.getSimpleName();
+            mBaseline = readBaseline(mName);
+        }
+
+        /**
+         * Record a result, and fail if it regressed from its baseline.
+         */
+        void check(Result result) {
+            mResults.put(result.name, result);
+
+            Result baseline = mBaseline.get(result.name);
+            if (baseline == null) {
+                System.out.println(result.name + " has no baseline in " + mName);
+                return;
+            }
+
+            double maxNanos = baseline.nanosPerOp * (1 + NANOS_TOLERANCE);
+            assertTrue(String.format(Locale.US, "%s takes %.1f ns/op, over %.1f from the baseline of %.1f",
+                            result.name, result.nanosPerOp, maxNanos, baseline.nanosPerOp),
+                    result.nanosPerOp <= maxNanos);
+            if (!Double.isNaN(result.bytesPerOp) && !Double.isNaN(baseline.bytesPerOp)) {
+                double maxBytes = Math.max(baseline.bytesPerOp * (1 + BYTES_TOLERANCE), baseline.bytesPerOp + BYTES_SLACK);
+                assertTrue(String.format(Locale.US, "%s allocates %.1f B/op, over %.1f from the baseline of %.1f",
+                                result.name, result.bytesPerOp, maxBytes, baseline.bytesPerOp),
+                        result.bytesPerOp <= maxBytes);
+            }
+        }
+
+        /**
+         * Write the recorded results, in the format of the baseline.
+         */
+        void writeReport() throws IOException {
+            File directory = new File(REPORT_DIR);
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Benchmark report directory cannot be created: " + directory);
+            }
+
+            StringBuilder json = new StringBuilder("{\n");
+            int index = 0;
+            for (Result result : mResults.values()) {
+                json.append(String.format(Locale.US, "  \"%s\": {\"nanosPerOp\": %.1f, \"bytesPerOp\": %s}",
+                        result.name, result.nanosPerOp,
+                        Double.isNaN(result.bytesPerOp) ? "null" : String.format(Locale.US, "%.1f", result.bytesPerOp)));
+                json.append((++index < mResults.size()) ? ",\n" : "\n");
+            }
+            json.append("}\n");
+
+            File report = new File(directory, mName + ".json");
+            OutputStream out = new FileOutputStream(report);
+            try {
+                out.write(json.toString().getBytes(StandardCharsets.UTF_8));
+            } finally {
+                out.close();
+            }
+            System.out.println("Benchmark report: " + report);
+        }
+
+        private static Map<String, Result> readBaseline(String name) throws IOException {
+            Map<String, Result> baseline = new LinkedHashMap<>();
+            InputStream in = ReactNativeFlurryBenchmark.class.getResourceAsStream("/benchmarks/" + name + ".json");
+            if (in == null) {
+                return baseline;
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try {
+                byte[] buffer = new byte[4096];
+                int count;
+                while ((count = in.read(buffer)) > 0) {
+                    bytes.write(buffer, 0, count);
+                }
+            } finally {
+                in.close();
+            }
+
+            Matcher matcher = RESULT_PATTERN.matcher(new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+            while (matcher.find()) {
+                String bytesPerOp = matcher.group(3);
+                baseline.put(matcher.group(1), new Result(matcher.group(1), Double.parseDouble(matcher.group(2)),
+                        "null".equals(bytesPerOp) ? Double.NaN : Double.parseDouble(bytesPerOp)));
+            }
+            return baseline;
+        }
+    }
+
+    private static volatile Object sSink;
+
+    private ReactNativeFlurryBenchmark() {
+    }
+
+    static Result run(String name, int warmupIterations, int iterations, Operation operation) throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            sSink = operation.run(i);
+        }
+
+        // The fastest round is reported, it is the least disturbed by GC, JIT and the other processes.
+        long bestNanos = Long.MAX_VALUE;
+        long startBytes = allocatedBytes();
+        for (int round = 0; round < ROUNDS; round++) {
+            int offset = warmupIterations + round * iterations;
+            long startNanos = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sSink = operation.run(offset + i);
+            }
+            bestNanos = Math.min(bestNanos, System.nanoTime() - startNanos);
+        }
+        long bytes = allocatedBytes() - startBytes;
+
+        Result result = new Result(name, bestNanos / (double) iterations,
+                (startBytes < 0) ? Double.NaN : bytes / ((double) iterations * ROUNDS));
+        System.out.println(result);
+        return result;
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+}
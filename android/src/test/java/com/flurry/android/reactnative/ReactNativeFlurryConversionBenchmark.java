@@ -0,0 +1,153 @@
+/*
+ * Copyright 2023, Yahoo Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flurry.android.reactnative;
+
+import static org.junit.Assume.assumeTrue;
+
+import com.facebook.react.bridge.JavaOnlyArray;
+import com.facebook.react.bridge.JavaOnlyMap;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Throughput and allocation of the argument converters that run on every event, with maps and
+ * arrays of 1, 10 and 50 entries.
+ *
+ * Each result is compared with the baseline in src/test/resources/benchmarks, see
+ * {@link ReactNativeFlurryBenchmark}.
+ */
+public class ReactNativeFlurryConversionBenchmark {
+
+    private static final int[] SIZES = {1, 10, 50};
+    private static final int WARMUP_ITERATIONS = 20000;
+    private static final int ITERATIONS = 100000;
+
+    private static ReactNativeFlurryBenchmark.Suite sSuite;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        assumeTrue("Run with -PflurryBenchmark=true", ReactNativeFlurryBenchmark.ENABLED);
+        sSuite = new ReactNativeFlurryBenchmark.Suite(ReactNativeFlurryConversionBenchmark.class);
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        if (sSuite != null) {
+            sSuite.writeReport();
+        }
+    }
+
+    @Test
+    public void toMap() throws Exception {
+        for (int s = 0; s < SIZES.length; s++) {
+            final JavaOnlyMap parameters = createParameters(SIZES[s]);
+            sSuite.check(ReactNativeFlurryBenchmark.run("toMap/" + SIZES[s], WARMUP_ITERATIONS, ITERATIONS,
+                    i -> FlurryModule.toMap(parameters)));
+        }
+    }
+
+    @Test
+    public void getStandardEventParams() throws Exception {
+        for (int s = 0; s < SIZES.length; s++) {
+            final JavaOnlyMap parameters = createStandardParameters(SIZES[s]);
+            sSuite.check(ReactNativeFlurryBenchmark.run("getStandardEventParams/" + SIZES[s], WARMUP_ITERATIONS,
+                    ITERATIONS, i -> FlurryModule.getStandardEventParams(parameters)));
+        }
+    }
+
+    @Test
+    public void toList() throws Exception {
+        for (int s = 0; s < SIZES.length; s++) {
+            final JavaOnlyArray keys = new JavaOnlyArray();
+            for (int i = 0; i < SIZES[s]; i++) {
+                keys.pushString("config_key_" + i);
+            }
+            sSuite.check(ReactNativeFlurryBenchmark.run("toList/" + SIZES[s], WARMUP_ITERATIONS, ITERATIONS,
+                    i -> FlurryModule.toList(keys)));
+        }
+    }
+
+    @Test
+    public void toIntegerSet() throws Exception {
+        for (int s = 0; s < SIZES.length; s++) {
+            final JavaOnlyArray values = new JavaOnlyArray();
+            for (int i = 0; i < SIZES[s]; i++) {
+                values.pushInt(i * 7);
+            }
+            sSuite.check(ReactNativeFlurryBenchmark.run("toIntegerSet/" + SIZES[s], WARMUP_ITERATIONS, ITERATIONS,
+                    i -> FlurryModule.toIntegerSet(values)));
+        }
+    }
+
+    /**
+     * Custom event parameters as they arrive from JS: strings, integral and fractional numbers, booleans.
+     */
+    private static JavaOnlyMap createParameters(int size) {
+        JavaOnlyMap map = new JavaOnlyMap();
+        for (int i = 0; i < size; i++) {
+            String key = "param_" + i;
+            switch (i % 4) {
+                case 0:
+                    map.putString(key, "value_" + i);
+                    break;
+                case 1:
+                    map.putDouble(key, i * 100);
+                    break;
+                case 2:
+                    map.putDouble(key, i + 0.25);
+                    break;
+                default:
+                    map.putBoolean(key, (i % 8) == 3);
+                    break;
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Standard event parameters with values of their type, then custom string parameters.
+     */
+    private static JavaOnlyMap createStandardParameters(int size) {
+        JavaOnlyMap map = new JavaOnlyMap();
+        for (int i = 0; i < size; i++) {
+            if (i >= ReactNativeFlurryEvent.PARAMS.length) {
+                map.putString("param_" + i, "value_" + i);
+                continue;
+            }
+
+            String key = ReactNativeFlurryEvent.PARAMS[i].toString();
+            switch (ReactNativeFlurryEvent.PARAM_TYPES[i]) {
+                case ReactNativeFlurryEvent.PARAM_TYPE_INTEGER:
+                    map.putDouble(key, i);
+                    break;
+                case ReactNativeFlurryEvent.PARAM_TYPE_DOUBLE:
+                    map.putDouble(key, i + 0.5);
+                    break;
+                case ReactNativeFlurryEvent.PARAM_TYPE_BOOLEAN:
+                    map.putBoolean(key, true);
+                    break;
+                default:
+                    map.putString(key, "value_" + i);
+                    break;
+            }
+        }
+        return map;
+    }
+
+}
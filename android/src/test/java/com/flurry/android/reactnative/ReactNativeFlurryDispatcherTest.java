@@ -0,0 +1,374 @@
+/*
+ * Copyright 2023, Yahoo Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flurry.android.reactnative;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ReactNativeFlurryDispatcherTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+    // How long a producer is watched to make sure it is still waiting for room.
+    private static final long BLOCKED_MILLIS = 100;
+
+    private final List<String> mRan = Collections.synchronizedList(new ArrayList<String>());
+    private final List<String> mDropped = Collections.synchronizedList(new ArrayList<String>());
+
+    @Test
+    public void ringWrapsAround() {
+        ReactNativeFlurryDispatcher.Ring ring = new ReactNativeFlurryDispatcher.Ring(4);
+        long[] enqueueNanos = new long[1];
+        for (int i = 0; i < 13; i++) {
+            Runnable task = plain("task" + i);
+            assertTrue(ring.offer(task, i));
+            assertSame(task, ring.poll(enqueueNanos));
+            assertEquals(i, enqueueNanos[0]);
+        }
+
+        // Three slots in use across the end of the buffer.
+        for (int i = 0; i < 3; i++) {
+            assertTrue(ring.offer(plain("wrapped" + i), 100 + i));
+        }
+        assertEquals(3, ring.size());
+        for (int i = 0; i < 3; i++) {
+            ring.poll(enqueueNanos).run();
+            assertEquals(100 + i, enqueueNanos[0]);
+        }
+        assertEquals(Arrays.asList("wrapped0", "wrapped1", "wrapped2"), mRan);
+    }
+
+    @Test
+    public void ringFullAndEmpty() {
+        ReactNativeFlurryDispatcher.Ring ring = new ReactNativeFlurryDispatcher.Ring(4);
+        long[] enqueueNanos = new long[1];
+        assertTrue(ring.isEmpty());
+        assertNull(ring.poll(enqueueNanos));
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(plain("task" + i), i));
+        }
+        assertFalse(ring.offer(plain("overflow"), 4));
+        assertEquals(4, ring.size());
+        assertFalse(ring.isEmpty());
+
+        ring.poll(enqueueNanos).run();
+        assertTrue(ring.offer(plain("task4"), 4));
+        assertFalse(ring.offer(plain("overflow"), 5));
+
+        Runnable task;
+        while ((task = ring.poll(enqueueNanos)) != null) {
+            task.run();
+        }
+        assertTrue(ring.isEmpty());
+        assertEquals(0, ring.size());
+        assertEquals(Arrays.asList("task0", "task1", "task2", "task3", "task4"), mRan);
+    }
+
+    @Test
+    public void ringDropsOnlyDroppableOldest() {
+        ReactNativeFlurryDispatcher.Ring ring = new ReactNativeFlurryDispatcher.Ring(4);
+        ring.offer(plain("plain"), 0);
+        ring.offer(droppable("droppable", null), 1);
+        assertNull(ring.pollDroppable());
+        assertEquals(2, ring.size());
+
+        ring.poll(new long[1]);
+        ReactNativeFlurryDispatcher.DroppableTask oldest = ring.pollDroppable();
+        oldest.run();
+        assertEquals(Arrays.asList("droppable"), mRan);
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    public void runsEachLaneInOrder() throws Exception {
+        ReactNativeFlurryDispatcher dispatcher = new ReactNativeFlurryDispatcher(8);
+        final List<String> high = Collections.synchronizedList(new ArrayList<String>());
+        final List<String> normal = Collections.synchronizedList(new ArrayList<String>());
+        final List<String> low = Collections.synchronizedList(new ArrayList<String>());
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            final String name = "task" + i;
+            expected.add(name);
+            // Far more tasks than the capacity, so the producer waits for room many times.
+            dispatcher.execute(ReactNativeFlurryDispatcher.LANE_HIGH, () -> high.add(name));
+            dispatcher.execute(ReactNativeFlurryDispatcher.LANE_NORMAL, () -> normal.add(name));
+            dispatcher.execute(ReactNativeFlurryDispatcher.LANE_LOW, () -> low.add(name));
+        }
+        awaitIdle(dispatcher);
+
+        assertEquals(expected, high);
+        assertEquals(expected, normal);
+        assertEquals(expected, low);
+    }
+
+    @Test
+    public void runsEachProducerInOrder() throws Exception {
+        final ReactNativeFlurryDispatcher dispatcher = new ReactNativeFlurryDispatcher(4);
+        final int producers = 4;
+        final int tasks = 1000;
+        final List<List<Integer>> ran = new ArrayList<>();
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final List<Integer> producerRan = new ArrayList<>();  // Only written by the worker.
+            ran.add(producerRan);
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < tasks; i++) {
+                    final int task = i;
+                    dispatcher.execute(() -> producerRan.add(task));
+                }
+            });
+            threads[p].start();
+        }
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        }
+        awaitIdle(dispatcher);
+
+        for (List<Integer> producerRan : ran) {
+            assertEquals(tasks, producerRan.size());
+            for (int i = 0; i < tasks; i++) {
+                assertEquals(i, (int) producerRan.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void dropNewestDropsTheNewTask() throws Exception {
+        ReactNativeFlurryDispatcher dispatcher = new ReactNativeFlurryDispatcher(2);
+        dispatcher.setOverflowPolicy(ReactNativeFlurryDispatcher.OVERFLOW_DROP_NEWEST, 0);
+        CountDownLatch release = blockWorker(dispatcher);
+
+        dispatcher.execute(droppable("first", null));
+        dispatcher.execute(droppable("second", null));
+        dispatcher.execute(droppable("third", null));
+        assertEquals(Arrays.asList("third"), mDropped);
+
+        release.countDown();
+        awaitIdle(dispatcher);
+        assertEquals(Arrays.asList("first", "second"), mRan);
+    }
+
+    @Test
+    public void dropOldestDropsThePendingTask() throws Exception {
+        ReactNativeFlurryDispatcher dispatcher = new ReactNativeFlurryDispatcher(2);
+        dispatcher.setOverflowPolicy(ReactNativeFlurryDispatcher.OVERFLOW_DROP_OLDEST, 0);
+        CountDownLatch release = blockWorker(dispatcher);
+
+        dispatcher.execute(droppable("first", null));
+        dispatcher.execute(droppable("second", null));
+        dispatcher.execute(droppable("third", null));
+        assertEquals(Arrays.asList("first"), mDropped);
+
+        release.countDown();
+        awaitIdle(dispatcher);
+        assertEquals(Arrays.asList("second", "third"), mRan);
+    }
+
+    @Test
+    public void dropOldestWaitsBehindAPlainTask() throws Exception {
+        ReactNativeFlurryDispatcher dispatcher = new ReactNativeFlurryDispatcher(2);
+        dispatcher.setOverflowPolicy(ReactNativeFlurryDispatcher.OVERFLOW_DROP_OLDEST, 0);
+        CountDownLatch release = blockWorker(dispatcher);
+
+        dispatcher.execute(plain("plain"));
+        dispatcher.execute(droppable("second", null));
+        Thread producer = executeOnThread(dispatcher, droppable("third", null));
+        assertBlocked(producer);
+
+        release.countDown();
+        assertUnblocked(producer);
+        awaitIdle(dispatcher);
+        assertEquals(Arrays.asList("plain", "second", "third"), mRan);
+        assertTrue(mDropped.isEmpty());
+    }
+
+    @Test
+    public void blockWaitsForRoom() throws Exception {
+        ReactNativeFlurryDispatcher dispatcher = new ReactNativeFlurryDispatcher(2);
+        CountDownLatch release = blockWorker(dispatcher);
+
+        dispatcher.execute(droppable("first", null));
+        dispatcher.execute(droppable("second", null));
+        Thread producer = executeOnThread(dispatcher, droppable("third", null));
+        assertBlocked(producer);
+
+        release.countDown();
+        assertUnblocked(producer);
+        awaitIdle(dispatcher);
+        assertEquals(Arrays.asList("first", "second", "third"), mRan);
+        assertTrue(mDropped.isEmpty());
+    }
+
+    @Test
+    public void blockDropsAfterTheTimeout() throws Exception {
+        ReactNativeFlurryDispatcher dispatcher = new ReactNativeFlurryDispatcher(2);
+        dispatcher.setOverflowPolicy(ReactNativeFlurryDispatcher.OVERFLOW_BLOCK, 50);
+        CountDownLatch release = blockWorker(dispatcher);
+
+        dispatcher.execute(droppable("first", null));
+        dispatcher.execute(droppable("second", null));
+        long start = System.nanoTime();
+        dispatcher.execute(droppable("third", null));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(Arrays.asList("third"), mDropped);
+
+        // Tasks that cannot be dropped keep waiting past the timeout.
+        Thread producer = executeOnThread(dispatcher, plain("plain"));
+        assertBlocked(producer);
+
+        release.countDown();
+        assertUnblocked(producer);
+        awaitIdle(dispatcher);
+        assertEquals(Arrays.asList("first", "second", "plain"), mRan);
+    }
+
+    @Test
+    public void coalesceDropsTasksWithAPendingKey() throws Exception {
+        ReactNativeFlurryDispatcher dispatcher = new ReactNativeFlurryDispatcher(2);
+        dispatcher.setOverflowPolicy(ReactNativeFlurryDispatcher.OVERFLOW_COALESCE, 0);
+        CountDownLatch release = blockWorker(dispatcher);
+
+        dispatcher.execute(droppable("a1", "a"));
+        dispatcher.execute(droppable("b1", "b"));
+        dispatcher.execute(droppable("a2", "a"));
+        assertEquals(Arrays.asList("a2"), mDropped);
+
+        // No pending task shares its key, so it waits for room.
+        Thread producer = executeOnThread(dispatcher, droppable("c1", "c"));
+        assertBlocked(producer);
+
+        release.countDown();
+        assertUnblocked(producer);
+        awaitIdle(dispatcher);
+        assertEquals(Arrays.asList("a1", "b1", "c1"), mRan);
+
+        // The keys of the tasks that ran are no longer pending.
+        release = blockWorker(dispatcher);
+        dispatcher.execute(droppable("x1", "x"));
+        dispatcher.execute(droppable("y1", "y"));
+        producer = executeOnThread(dispatcher, droppable("a3", "a"));
+        assertBlocked(producer);
+        release.countDown();
+        assertUnblocked(producer);
+        awaitIdle(dispatcher);
+        assertEquals(Arrays.asList("a1", "b1", "c1", "x1", "y1", "a3"), mRan);
+        assertEquals(Arrays.asList("a2"), mDropped);
+    }
+
+    @Test
+    public void highLaneIsNeverDropped() throws Exception {
+        ReactNativeFlurryDispatcher dispatcher = new ReactNativeFlurryDispatcher(2);
+        dispatcher.setOverflowPolicy(ReactNativeFlurryDispatcher.OVERFLOW_DROP_NEWEST, 0);
+        CountDownLatch release = blockWorker(dispatcher);
+
+        for (int i = 0; i < 10; i++) {
+            dispatcher.execute(ReactNativeFlurryDispatcher.LANE_HIGH, droppable("high" + i, null));
+        }
+        assertTrue(mDropped.isEmpty());
+
+        release.countDown();
+        awaitIdle(dispatcher);
+        assertEquals(10, mRan.size());
+    }
+
+    @Test
+    public void runsInlineOnTheWorker() throws Exception {
+        final ReactNativeFlurryDispatcher dispatcher = new ReactNativeFlurryDispatcher(2);
+        dispatcher.execute(() -> {
+            mRan.add("outer");
+            // Would wait forever for room if it were queued behind the running task.
+            for (int i = 0; i < 4; i++) {
+                dispatcher.execute(plain("inner" + i));
+            }
+        });
+        awaitIdle(dispatcher);
+        assertEquals(Arrays.asList("outer", "inner0", "inner1", "inner2", "inner3"), mRan);
+    }
+
+    private Runnable plain(final String name) {
+        return () -> mRan.add(name);
+    }
+
+    private ReactNativeFlurryDispatcher.DroppableTask droppable(final String name, String coalescingKey) {
+        return new ReactNativeFlurryDispatcher.DroppableTask(coalescingKey) {
+            @Override
+            public void run() {
+                mRan.add(name);
+            }
+
+            @Override
+            void onDropped() {
+                mDropped.add(name);
+            }
+        };
+    }
+
+    /**
+     * Occupy the worker with a task on the normal lane, which leaves the ring empty.
+     *
+     * @return the latch that lets the worker go on.
+     */
+    private static CountDownLatch blockWorker(ReactNativeFlurryDispatcher dispatcher) throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        dispatcher.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue("Worker did not start", started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private static void awaitIdle(ReactNativeFlurryDispatcher dispatcher) throws InterruptedException {
+        CountDownLatch idle = new CountDownLatch(1);
+        dispatcher.executeAfterPending(idle::countDown);
+        assertTrue("Dispatcher did not drain", idle.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private static Thread executeOnThread(final ReactNativeFlurryDispatcher dispatcher, final Runnable task) {
+        Thread thread = new Thread(() -> dispatcher.execute(task));
+        thread.start();
+        return thread;
+    }
+
+    private static void assertBlocked(Thread producer) throws InterruptedException {
+        producer.join(BLOCKED_MILLIS);
+        assertTrue("Producer did not wait for room", producer.isAlive());
+    }
+
+    private static void assertUnblocked(Thread producer) throws InterruptedException {
+        producer.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        assertFalse("Producer is still waiting for room", producer.isAlive());
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2023, Yahoo Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flurry.android.reactnative;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ReactNativeFlurryErrorCollapserTest {
+
+    private final List<String> mMessages = new ArrayList<>();
+    private final List<Map<String, String>> mParameters = new ArrayList<>();
+    private final ReactNativeFlurryErrorCollapser mCollapser =
+            new ReactNativeFlurryErrorCollapser((errorId, message, errorClass, parameters) -> {
+                mMessages.add(errorId + ": " + message);
+                mParameters.add(parameters);
+            });
+
+    @Test
+    public void countsOnlyTheCollapsedRepeats() {
+        long before = System.currentTimeMillis();
+        assertTrue(record("error", "failed", null));
+        assertFalse(record("error", "failed", null));
+        assertFalse(record("error", "failed", null));
+        long after = System.currentTimeMillis();
+        assertTrue(mMessages.isEmpty());
+
+        mCollapser.flush();
+        assertEquals(1, mMessages.size());
+        Map<String, String> parameters = mParameters.get(0);
+        assertEquals("2", parameters.get(ReactNativeFlurryErrorCollapser.PARAM_OCCURRENCES));
+        long firstSeen = Long.parseLong(parameters.get(ReactNativeFlurryErrorCollapser.PARAM_FIRST_SEEN));
+        long lastSeen = Long.parseLong(parameters.get(ReactNativeFlurryErrorCollapser.PARAM_LAST_SEEN));
+        assertTrue((before <= firstSeen) && (firstSeen <= lastSeen) && (lastSeen <= after));
+    }
+
+    @Test
+    public void emitsNothingWithoutRepeats() {
+        assertTrue(record("error", "failed", null));
+        mCollapser.flush();
+        assertTrue(mMessages.isEmpty());
+    }
+
+    @Test
+    public void forwardsTheFirstErrorAfterTheWindowCloses() {
+        record("error", "failed", null);
+        record("error", "failed", null);
+        mCollapser.flush();
+
+        assertTrue(record("error", "failed", null));
+        assertFalse(record("error", "failed", null));
+        mCollapser.flush();
+        assertEquals(2, mMessages.size());
+        assertEquals("1", mParameters.get(1).get(ReactNativeFlurryErrorCollapser.PARAM_OCCURRENCES));
+    }
+
+    @Test
+    public void ignoresDigitsInTheMessage() {
+        assertTrue(record("error", "Item 12 failed", null));
+        assertFalse(record("error", "Item 345 failed", null));
+        assertTrue(record("error", "Item failed", null));
+        assertTrue(record("other", "Item 12 failed", null));
+
+        // The collapsed error carries the last repeat.
+        mCollapser.flush();
+        assertEquals(1, mMessages.size());
+        assertEquals("error: Item 345 failed", mMessages.get(0));
+    }
+
+    @Test
+    public void fingerprintsTheErrorClass() {
+        assertTrue(mCollapser.record("error", "failed", "IOException", null, null));
+        assertTrue(mCollapser.record("error", "failed", "RuntimeException", null, null));
+        assertFalse(mCollapser.record("error", "failed", "IOException", null, null));
+    }
+
+    @Test
+    public void forwardsEveryErrorWithoutAWindow() {
+        record("error", "failed", null);
+        record("error", "failed", null);
+        // Closing the windows emits the repeats collapsed so far.
+        mCollapser.setWindowMillis(0);
+        assertEquals(1, mMessages.size());
+
+        assertTrue(record("error", "failed", null));
+        assertTrue(record("error", "failed", null));
+        mCollapser.flush();
+        assertEquals(1, mMessages.size());
+    }
+
+    @Test
+    public void emitsTheRepeatsOfAnEvictedFingerprint() {
+        record("evicted", "failed", null);
+        record("evicted", "failed", null);
+        for (int i = 0; i < ReactNativeFlurryErrorCollapser.MAX_FINGERPRINTS; i++) {
+            record("error" + i, "failed", null);
+        }
+
+        assertEquals(1, mMessages.size());
+        assertEquals("evicted: failed", mMessages.get(0));
+        assertTrue(record("evicted", "failed", null));
+    }
+
+    @Test
+    public void keepsTheAppParameters() {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("screen", "home");
+        parameters.put(ReactNativeFlurryErrorCollapser.PARAM_OCCURRENCES, "app");
+        record("error", "failed", null);
+        record("error", "failed", parameters);
+        mCollapser.flush();
+
+        Map<String, String> collapsed = mParameters.get(0);
+        assertEquals("home", collapsed.get("screen"));
+        assertEquals("app", collapsed.get(ReactNativeFlurryErrorCollapser.PARAM_OCCURRENCES));
+        assertTrue(collapsed.containsKey(ReactNativeFlurryErrorCollapser.PARAM_FIRST_SEEN));
+        assertTrue(collapsed.containsKey(ReactNativeFlurryErrorCollapser.PARAM_LAST_SEEN));
+    }
+
+    @Test
+    public void fillsTheParameterLimitWithBreadcrumbs() {
+        Map<String, String> parameters = new HashMap<>();
+        for (int i = 0; i < 5; i++) {
+            parameters.put("param" + i, "value");
+        }
+        Map<String, String> breadcrumbs = new LinkedHashMap<>();
+        for (int i = 1; i <= 4; i++) {
+            breadcrumbs.put(ReactNativeFlurryBreadcrumbs.PARAM_PREFIX + i, "crumb" + i);
+        }
+        record("error", "failed", null);
+        mCollapser.record("error", "failed", "Error", parameters, breadcrumbs);
+        mCollapser.flush();
+
+        Map<String, String> collapsed = mParameters.get(0);
+        assertEquals(ReactNativeFlurryBreadcrumbs.MAX_PARAMETERS, collapsed.size());
+        assertEquals("crumb1", collapsed.get(ReactNativeFlurryBreadcrumbs.PARAM_PREFIX + 1));
+        assertEquals("crumb2", collapsed.get(ReactNativeFlurryBreadcrumbs.PARAM_PREFIX + 2));
+        assertNull(collapsed.get(ReactNativeFlurryBreadcrumbs.PARAM_PREFIX + 3));
+    }
+
+    private boolean record(String errorId, String message, Map<String, String> parameters) {
+        return mCollapser.record(errorId, message, "Error", parameters, null);
+    }
+
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2023, Yahoo Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flurry.android.reactnative;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ReactNativeFlurryEventAggregatorTest {
+
+    private static final List<String> SUMMARY_PARAMS = Arrays.asList(
+            ReactNativeFlurryEventAggregator.PARAM_COUNT, ReactNativeFlurryEventAggregator.PARAM_SUM,
+            ReactNativeFlurryEventAggregator.PARAM_MIN, ReactNativeFlurryEventAggregator.PARAM_MAX);
+
+    private final List<String> mEventIds = Collections.synchronizedList(new ArrayList<String>());
+    private final List<Map<String, String>> mParameters =
+            Collections.synchronizedList(new ArrayList<Map<String, String>>());
+    private final ReactNativeFlurryEventAggregator mAggregator =
+            new ReactNativeFlurryEventAggregator((eventId, parameters) -> {
+                mEventIds.add(eventId);
+                mParameters.add(parameters);
+            });
+
+    @Test
+    public void emitsTheSummaryOfTheWindow() {
+        mAggregator.add("latency", null, 3);
+        mAggregator.add("latency", null, 1.5);
+        mAggregator.add("latency", null, 7);
+        assertTrue(mEventIds.isEmpty());
+
+        mAggregator.flush();
+        assertEquals(1, mEventIds.size());
+        assertEquals("latency", mEventIds.get(0));
+        assertEquals(summary(3, "11.5", "1.5", "7"), mParameters.get(0));
+    }
+
+    @Test
+    public void startsANewWindowAfterFlush() {
+        mAggregator.add("latency", null, 3);
+        mAggregator.flush();
+        mAggregator.flush();
+        assertEquals(1, mEventIds.size());
+
+        mAggregator.add("latency", null, 5);
+        mAggregator.flush();
+        assertEquals(summary(1, "5", "5", "5"), mParameters.get(1));
+    }
+
+    @Test
+    public void aggregatesByDimensions() {
+        Map<String, String> ab = new LinkedHashMap<>();
+        ab.put("a", "1");
+        ab.put("b", "2");
+        Map<String, String> ba = new LinkedHashMap<>();
+        ba.put("b", "2");
+        ba.put("a", "1");
+        Map<String, String> other = new HashMap<>();
+        other.put("a", "2");
+
+        mAggregator.add("latency", ab, 1);
+        mAggregator.add("latency", ba, 2);
+        mAggregator.add("latency", other, 4);
+        mAggregator.add("size", ab, 8);
+        mAggregator.flush();
+
+        Map<String, Map<String, String>> emitted = emitted();
+        assertEquals(3, emitted.size());
+        Map<String, String> expected = summary(2, "3", "1", "2");
+        expected.putAll(ab);
+        assertEquals(expected, emitted.get("latency a=1 b=2"));
+        expected = summary(1, "4", "4", "4");
+        expected.putAll(other);
+        assertEquals(expected, emitted.get("latency a=2"));
+        expected = summary(1, "8", "8", "8");
+        expected.putAll(ab);
+        assertEquals(expected, emitted.get("size a=1 b=2"));
+    }
+
+    @Test
+    public void ignoresTooManyDimensions() {
+        Map<String, String> dimensions = new HashMap<>();
+        for (int i = 0; i <= ReactNativeFlurryEventAggregator.MAX_DIMENSIONS; i++) {
+            dimensions.put("dimension" + i, "value");
+        }
+        mAggregator.add("latency", dimensions, 1);
+        mAggregator.flush();
+
+        assertTrue(mEventIds.isEmpty());
+    }
+
+    @Test
+    public void ignoresSummaryDimensionNames() {
+        for (String name : SUMMARY_PARAMS) {
+            Map<String, String> dimensions = new HashMap<>();
+            dimensions.put(name, "value");
+            mAggregator.add("latency", dimensions, 1);
+        }
+        mAggregator.flush();
+
+        assertTrue(mEventIds.isEmpty());
+    }
+
+    @Test
+    public void closesTheWindowEarlyWhenFull() {
+        // More distinct aggregates than all stripes hold, so at least one stripe closes early.
+        int count = 8 * 64 + 1;
+        for (int i = 0; i < count; i++) {
+            mAggregator.add("event" + i, null, i);
+        }
+        assertTrue(mEventIds.size() > 0);
+
+        mAggregator.flush();
+        Map<String, Map<String, String>> emitted = emitted();
+        assertEquals(count, emitted.size());
+        for (int i = 0; i < count; i++) {
+            String value = Integer.toString(i);
+            assertEquals(summary(1, value, value, value), emitted.get("event" + i));
+        }
+    }
+
+    @Test
+    public void countsEveryValueFromConcurrentProducers() throws InterruptedException {
+        final int producers = 4;
+        final int values = 10000;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < values; i++) {
+                    mAggregator.add("event" + (i % 10), null, 1);
+                }
+            });
+            threads[p].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        mAggregator.flush();
+
+        Map<String, Map<String, String>> emitted = emitted();
+        assertEquals(10, emitted.size());
+        String total = Integer.toString(producers * values / 10);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(summary(producers * values / 10, total, "1", "1"), emitted.get("event" + i));
+        }
+    }
+
+    /**
+     * @return the emitted parameters, keyed by the event name followed by the sorted dimensions.
+     */
+    private Map<String, Map<String, String>> emitted() {
+        Map<String, Map<String, String>> emitted = new HashMap<>();
+        for (int i = 0; i < mEventIds.size(); i++) {
+            Map<String, String> parameters = mParameters.get(i);
+            List<String> dimensions = new ArrayList<>();
+            for (Map.Entry<String, String> entry : parameters.entrySet()) {
+                if (!SUMMARY_PARAMS.contains(entry.getKey())) {
+                    dimensions.add(entry.getKey() + "=" + entry.getValue());
+                }
+            }
+            Collections.sort(dimensions);
+            StringBuilder key = new StringBuilder(mEventIds.get(i));
+            for (String dimension : dimensions) {
+                key.append(' ').append(dimension);
+            }
+            assertNull(emitted.put(key.toString(), parameters));
+        }
+        return emitted;
+    }
+
+    private static Map<String, String> summary(long count, String sum, String min, String max) {
+        Map<String, String> summary = new HashMap<>();
+        summary.put(ReactNativeFlurryEventAggregator.PARAM_COUNT, Long.toString(count));
+        summary.put(ReactNativeFlurryEventAggregator.PARAM_SUM, sum);
+        summary.put(ReactNativeFlurryEventAggregator.PARAM_MIN, min);
+        summary.put(ReactNativeFlurryEventAggregator.PARAM_MAX, max);
+        return summary;
+    }
+
+}
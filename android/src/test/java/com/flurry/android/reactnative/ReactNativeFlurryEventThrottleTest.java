@@ -0,0 +1,116 @@
+/*
+ * Copyright 2023, Yahoo Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flurry.android.reactnative;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ReactNativeFlurryEventThrottleTest {
+
+    private final ReactNativeFlurryEventThrottle mThrottle = new ReactNativeFlurryEventThrottle();
+
+    @Test
+    public void passesEventsWithoutARule() {
+        assertTrue(mThrottle.tryAcquire("event"));
+        assertTrue(mThrottle.tryAcquire(null));
+
+        mThrottle.setRule("throttled", 0, 1, 1000);
+        assertTrue(mThrottle.tryAcquire("event"));
+        assertTrue(mThrottle.tryAcquire(null));
+    }
+
+    @Test
+    public void keepsTheFirstOfEverySample() {
+        mThrottle.setRule("event", 0, 1, 3);
+        assertArrayEquals(new Object[]{true, false, false, true, false, false, true}, acquire("event", 7));
+    }
+
+    @Test
+    public void passesABurst() {
+        // Refills one token every 1000 seconds.
+        mThrottle.setRule("event", 0.001, 3, 1);
+        assertArrayEquals(new Object[]{true, true, true, false, false}, acquire("event", 5));
+    }
+
+    @Test
+    public void refillsAtTheRate() throws InterruptedException {
+        mThrottle.setRule("event", 10, 1, 1);
+        assertTrue(mThrottle.tryAcquire("event"));
+        assertFalse(mThrottle.tryAcquire("event"));
+
+        Thread.sleep(150);
+        assertTrue(mThrottle.tryAcquire("event"));
+    }
+
+    @Test
+    public void samplesBeforeTheRateLimit() {
+        mThrottle.setRule("event", 0.001, 2, 2);
+        // Sampled out events do not take a token.
+        assertArrayEquals(new Object[]{true, false, true, false, false, false}, acquire("event", 6));
+    }
+
+    @Test
+    public void replacesAndClearsRules() {
+        mThrottle.setRule("event", 0.001, 1, 1);
+        mThrottle.setRule("other", 0.001, 1, 1);
+        assertTrue(mThrottle.tryAcquire("event"));
+        assertFalse(mThrottle.tryAcquire("event"));
+
+        mThrottle.setRule("event", 0.001, 1, 1);
+        assertTrue(mThrottle.tryAcquire("event"));
+
+        mThrottle.clearRule("event");
+        assertArrayEquals(new Object[]{true, true}, acquire("event", 2));
+        assertArrayEquals(new Object[]{true, false}, acquire("other", 2));
+
+        mThrottle.clearRule(null);
+        assertArrayEquals(new Object[]{true, true}, acquire("other", 2));
+    }
+
+    @Test
+    public void ignoresInvalidRules() {
+        mThrottle.setRule(null, 0.001, 1, 1);
+        mThrottle.setRule("event", -1, 1, 1);
+        mThrottle.setRule("event", 0.001, 1, 0);
+        assertArrayEquals(new Object[]{true, true}, acquire("event", 2));
+    }
+
+    @Test
+    public void limitsTheNumberOfRules() {
+        for (int i = 0; i < ReactNativeFlurryEventThrottle.MAX_RULES; i++) {
+            mThrottle.setRule("event" + i, 0.001, 1, 1);
+        }
+        mThrottle.setRule("extra", 0.001, 1, 1);
+        assertArrayEquals(new Object[]{true, true}, acquire("extra", 2));
+
+        // Existing rules can still be replaced.
+        mThrottle.setRule("event0", 0, 1, 2);
+        assertArrayEquals(new Object[]{true, false, true}, acquire("event0", 3));
+    }
+
+    private Object[] acquire(String eventId, int count) {
+        Object[] passed = new Object[count];
+        for (int i = 0; i < count; i++) {
+            passed[i] = mThrottle.tryAcquire(eventId);
+        }
+        return passed;
+    }
+
+}
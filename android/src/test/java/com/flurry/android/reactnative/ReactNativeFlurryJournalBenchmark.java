@@ -0,0 +1,120 @@
+/*
+ * Copyright 2023, Yahoo Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flurry.android.reactnative;
+
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Append throughput of the event journal, on the page cache of the host file system.
+ *
+ * Appends are measured alone, with each record acknowledged in order as the normal lane does,
+ * and with every other record acknowledged late as when payments overtake events, which writes
+ * ack records. Each result is compared with the baseline in src/test/resources/benchmarks, see
+ * {@link ReactNativeFlurryBenchmark}.
+ */
+public class ReactNativeFlurryJournalBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 20000;
+    private static final int ITERATIONS = 50000;
+
+    private static ReactNativeFlurryBenchmark.Suite sSuite;
+
+    private File mDirectory;
+    private Map<String, String> mParameters;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        assumeTrue("Run with -PflurryBenchmark=true", ReactNativeFlurryBenchmark.ENABLED);
+        sSuite = new ReactNativeFlurryBenchmark.Suite(ReactNativeFlurryJournalBenchmark.class);
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        if (sSuite != null) {
+            sSuite.writeReport();
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        mDirectory = Files.createTempDirectory("flurry_rn_journal").toFile();
+        mParameters = new HashMap<>();
+        mParameters.put("screen", "checkout");
+        mParameters.put("item_count", "3");
+        mParameters.put("total", "42.5");
+    }
+
+    @After
+    public void tearDown() {
+        if (mDirectory == null) {
+            return;
+        }
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+
+    @Test
+    public void append() throws Exception {
+        final ReactNativeFlurryJournal journal = ReactNativeFlurryJournal.open(mDirectory);
+        sSuite.check(ReactNativeFlurryBenchmark.run("journal/append", WARMUP_ITERATIONS, ITERATIONS,
+                i -> journal.appendEvent("Checkout", mParameters)));
+    }
+
+    @Test
+    public void appendAcknowledge() throws Exception {
+        final ReactNativeFlurryJournal journal = ReactNativeFlurryJournal.open(mDirectory);
+        sSuite.check(ReactNativeFlurryBenchmark.run("journal/appendAcknowledge", WARMUP_ITERATIONS, ITERATIONS, i -> {
+            long id = journal.appendEvent("Checkout", mParameters);
+            journal.acknowledge(id);
+            return id;
+        }));
+    }
+
+    @Test
+    public void appendAcknowledgeOutOfOrder() throws Exception {
+        final ReactNativeFlurryJournal journal = ReactNativeFlurryJournal.open(mDirectory);
+        final long[] held = {ReactNativeFlurryJournal.NO_RECORD};
+        sSuite.check(ReactNativeFlurryBenchmark.run("journal/appendAcknowledgeOutOfOrder", WARMUP_ITERATIONS, ITERATIONS, i -> {
+            long id = journal.appendEvent("Checkout", mParameters);
+            if ((i & 1) == 0) {
+                // Held back, the next record is acknowledged before it.
+                held[0] = id;
+            } else {
+                journal.acknowledge(id);
+                journal.acknowledge(held[0]);
+            }
+            return id;
+        }));
+    }
+
+}
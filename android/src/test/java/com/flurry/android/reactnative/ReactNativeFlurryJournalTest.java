@@ -0,0 +1,327 @@
+/*
+ * Copyright 2023, Yahoo Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flurry.android.reactnative;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ReactNativeFlurryJournalTest {
+
+    // Layout of the journal files, see ReactNativeFlurryJournal.
+    private static final int SEGMENT_HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int CHECKPOINT_SLOT_SIZE = 16;
+
+    private File mDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        mDirectory = Files.createTempDirectory("flurry-journal").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+
+    @Test
+    public void recoversUnacknowledgedRecords() throws IOException {
+        ReactNativeFlurryJournal journal = ReactNativeFlurryJournal.open(mDirectory);
+        long first = journal.appendEvent("first", null);
+        long second = journal.appendTimedEvent("second", params("key", "value"), true, null);
+        long third = journal.appendPayment("product", "id", 1, 0.99, "USD", "transaction", null);
+        // Acknowledged out of order, while the first is still pending.
+        journal.acknowledge(second);
+
+        List<ReactNativeFlurryJournal.Record> recovered = reopen();
+        assertArrayEquals(new long[]{first, third}, ids(recovered));
+        assertNull(recovered.get(0).transactionId);
+        assertEquals("transaction", recovered.get(1).transactionId);
+    }
+
+    @Test
+    public void takesRecoveredRecordsOnce() throws IOException {
+        ReactNativeFlurryJournal journal = ReactNativeFlurryJournal.open(mDirectory);
+        journal.appendEvent("event", null);
+
+        journal = ReactNativeFlurryJournal.open(mDirectory);
+        assertEquals(1, journal.takeRecovered().size());
+        assertTrue(journal.takeRecovered().isEmpty());
+    }
+
+    @Test
+    public void recoversReplayedRecordsUntilAcknowledged() throws IOException {
+        ReactNativeFlurryJournal journal = ReactNativeFlurryJournal.open(mDirectory);
+        long first = journal.appendEvent("first", null);
+        long second = journal.appendEvent("second", null);
+
+        journal = ReactNativeFlurryJournal.open(mDirectory);
+        List<ReactNativeFlurryJournal.Record> recovered = journal.takeRecovered();
+        assertArrayEquals(new long[]{first, second}, ids(recovered));
+        journal.acknowledge(second);
+        long third = journal.appendEvent("third", null);
+
+        assertArrayEquals(new long[]{first, third}, ids(reopen()));
+    }
+
+    @Test
+    public void doesNotRecoverAcknowledgedRecords() throws IOException {
+        ReactNativeFlurryJournal journal = ReactNativeFlurryJournal.open(mDirectory);
+        for (int i = 0; i < 10; i++) {
+            journal.acknowledge(journal.appendEvent("event" + i, null));
+        }
+
+        assertTrue(reopen().isEmpty());
+        assertEquals(1, segments().size());
+    }
+
+    @Test
+    public void stopsAtATornRecord() throws IOException {
+        ReactNativeFlurryJournal journal = ReactNativeFlurryJournal.open(mDirectory);
+        long first = journal.appendEvent("first", null);
+        long second = journal.appendEvent("second", params("key", "value"));
+        journal.appendEvent("torn", params("key", "value"));
+
+        // A crash before the length of the last record is written.
+        File segment = segments().get(0);
+        List<Integer> offsets = recordOffsets(segment);
+        writeInt(segment, offsets.get(2), 0);
+
+        assertArrayEquals(new long[]{first, second}, ids(reopen()));
+    }
+
+    @Test
+    public void stopsAtACorruptRecord() throws IOException {
+        ReactNativeFlurryJournal journal = ReactNativeFlurryJournal.open(mDirectory);
+        long first = journal.appendEvent("first", null);
+        long second = journal.appendEvent("second", params("key", "value"));
+        journal.appendEvent("corrupt", params("key", "value"));
+
+        // The last body byte no longer matches the CRC.
+        File segment = segments().get(0);
+        List<Integer> offsets = recordOffsets(segment);
+        int end = offsets.get(2) + RECORD_HEADER_SIZE + readInt(segment, offsets.get(2));
+        writeByte(segment, end - 1, readByte(segment, end - 1) ^ 0xFF);
+
+        assertArrayEquals(new long[]{first, second}, ids(reopen()));
+    }
+
+    @Test
+    public void appendsAfterATornRecord() throws IOException {
+        ReactNativeFlurryJournal journal = ReactNativeFlurryJournal.open(mDirectory);
+        long first = journal.appendEvent("first", null);
+        journal.appendEvent("torn", null);
+        File segment = segments().get(0);
+        writeInt(segment, recordOffsets(segment).get(1), 0);
+
+        journal = ReactNativeFlurryJournal.open(mDirectory);
+        assertArrayEquals(new long[]{first}, ids(journal.takeRecovered()));
+        long next = journal.appendEvent("next", null);
+
+        assertArrayEquals(new long[]{first, next}, ids(reopen()));
+    }
+
+    @Test
+    public void rotatesFullSegments() throws IOException {
+        ReactNativeFlurryJournal journal = ReactNativeFlurryJournal.open(mDirectory);
+        Map<String, String> parameters = params("key", repeat('x', 1000));
+        int count = 3 * ReactNativeFlurryJournal.SEGMENT_SIZE / 1000;
+        long[] expected = new long[count];
+        for (int i = 0; i < count; i++) {
+            expected[i] = journal.appendEvent("event" + i, parameters);
+        }
+        assertTrue(segments().size() >= 3);
+
+        journal = ReactNativeFlurryJournal.open(mDirectory);
+        List<ReactNativeFlurryJournal.Record> recovered = journal.takeRecovered();
+        assertArrayEquals(expected, ids(recovered));
+
+        // Segments are deleted once all their records are acknowledged.
+        for (ReactNativeFlurryJournal.Record record : recovered) {
+            journal.acknowledge(record.id);
+        }
+        assertEquals(1, segments().size());
+        assertTrue(reopen().isEmpty());
+    }
+
+    @Test
+    public void keepsSegmentsWithPendingRecords() throws IOException {
+        ReactNativeFlurryJournal journal = ReactNativeFlurryJournal.open(mDirectory);
+        Map<String, String> parameters = params("key", repeat('x', 1000));
+        long pending = journal.appendEvent("pending", null);
+        for (int i = 0; i < 2 * ReactNativeFlurryJournal.SEGMENT_SIZE / 1000; i++) {
+            journal.acknowledge(journal.appendEvent("event" + i, parameters));
+        }
+        assertTrue(segments().size() >= 2);
+
+        assertArrayEquals(new long[]{pending}, ids(reopen()));
+    }
+
+    @Test
+    public void fallsBackToThePreviousCheckpoint() throws IOException {
+        ReactNativeFlurryJournal journal = ReactNativeFlurryJournal.open(mDirectory);
+        long first = journal.appendEvent("first", null);
+        long second = journal.appendEvent("second", null);
+        long third = journal.appendEvent("third", null);
+        journal.acknowledge(first);
+        journal.acknowledge(second);
+
+        // A crash while the latest checkpoint slot is written.
+        File checkpoint = new File(mDirectory, "checkpoint");
+        int latest = readLong(checkpoint, 0) == second ? 0 : CHECKPOINT_SLOT_SIZE;
+        assertEquals(second, readLong(checkpoint, latest));
+        writeLong(checkpoint, latest + 8, 0);
+
+        assertArrayEquals(new long[]{second, third}, ids(reopen()));
+    }
+
+    @Test
+    public void rejectsRecordsLargerThanASegment() throws IOException {
+        ReactNativeFlurryJournal journal = ReactNativeFlurryJournal.open(mDirectory);
+        long id = journal.appendEvent("event", params("key", repeat('x', ReactNativeFlurryJournal.SEGMENT_SIZE)));
+        assertEquals(ReactNativeFlurryJournal.NO_RECORD, id);
+
+        long next = journal.appendEvent("next", null);
+        assertArrayEquals(new long[]{next}, ids(reopen()));
+    }
+
+    @Test
+    public void existsOnceOpened() throws IOException {
+        File directory = new File(mDirectory, ReactNativeFlurryJournal.DIRECTORY);
+        assertFalse(ReactNativeFlurryJournal.exists(directory));
+        ReactNativeFlurryJournal.open(directory);
+        assertTrue(ReactNativeFlurryJournal.exists(directory));
+
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    private List<ReactNativeFlurryJournal.Record> reopen() throws IOException {
+        return ReactNativeFlurryJournal.open(mDirectory).takeRecovered();
+    }
+
+    private List<File> segments() {
+        List<File> segments = new ArrayList<>();
+        for (File file : mDirectory.listFiles()) {
+            if (file.getName().startsWith("segment-")) {
+                segments.add(file);
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static List<Integer> recordOffsets(File segment) throws IOException {
+        List<Integer> offsets = new ArrayList<>();
+        int position = SEGMENT_HEADER_SIZE;
+        int length;
+        while ((length = readInt(segment, position)) > 0) {
+            offsets.add(position);
+            position += RECORD_HEADER_SIZE + length;
+        }
+        return offsets;
+    }
+
+    private static long[] ids(List<ReactNativeFlurryJournal.Record> records) {
+        long[] ids = new long[records.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = records.get(i).id;
+        }
+        return ids;
+    }
+
+    private static Map<String, String> params(String key, String value) {
+        Map<String, String> params = new HashMap<>();
+        params.put(key, value);
+        return params;
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    private static int readInt(File file, long offset) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            randomAccessFile.seek(offset);
+            return randomAccessFile.readInt();
+        }
+    }
+
+    private static long readLong(File file, long offset) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            randomAccessFile.seek(offset);
+            return randomAccessFile.readLong();
+        }
+    }
+
+    private static int readByte(File file, long offset) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            randomAccessFile.seek(offset);
+            return randomAccessFile.read();
+        }
+    }
+
+    private static void writeInt(File file, long offset, int value) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.seek(offset);
+            randomAccessFile.writeInt(value);
+        }
+    }
+
+    private static void writeLong(File file, long offset, long value) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.seek(offset);
+            randomAccessFile.writeLong(value);
+        }
+    }
+
+    private static void writeByte(File file, long offset, int value) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.seek(offset);
+            randomAccessFile.write(value);
+        }
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2023, Yahoo Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flurry.android.reactnative;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+public class ReactNativeFlurryPaymentDedupTest {
+
+    // Layout of the dedup file, see ReactNativeFlurryPaymentDedup.
+    private static final int HEADER_SIZE = 16;
+
+    private File mDirectory;
+    private File mFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mDirectory = Files.createTempDirectory("flurry-dedup").toFile();
+        mFile = new File(mDirectory, ReactNativeFlurryPaymentDedup.FILE_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+        mDirectory.delete();
+    }
+
+    @Test
+    public void dropsForwardedTransactions() {
+        ReactNativeFlurryPaymentDedup dedup = new ReactNativeFlurryPaymentDedup();
+        assertFalse(dedup.isDuplicate("transaction"));
+        dedup.forwarded("transaction");
+
+        assertTrue(dedup.isDuplicate("transaction"));
+        assertFalse(dedup.isDuplicate("other"));
+    }
+
+    @Test
+    public void dropsTransactionsInFlight() {
+        ReactNativeFlurryPaymentDedup dedup = new ReactNativeFlurryPaymentDedup();
+        assertFalse(dedup.isDuplicate("transaction"));
+        assertTrue(dedup.isDuplicate("transaction"));
+    }
+
+    @Test
+    public void acceptsRetriesOfReleasedTransactions() {
+        ReactNativeFlurryPaymentDedup dedup = new ReactNativeFlurryPaymentDedup();
+        assertFalse(dedup.isDuplicate("transaction"));
+        dedup.release("transaction");
+
+        assertFalse(dedup.isDuplicate("transaction"));
+    }
+
+    @Test
+    public void keepsTransactionsAcrossRestarts() {
+        ReactNativeFlurryPaymentDedup dedup = new ReactNativeFlurryPaymentDedup();
+        dedup.open(mFile);
+        dedup.isDuplicate("transaction");
+        dedup.forwarded("transaction");
+        // In flight only, a payment dropped by the crash is accepted after the restart.
+        dedup.isDuplicate("in flight");
+
+        ReactNativeFlurryPaymentDedup restarted = new ReactNativeFlurryPaymentDedup();
+        restarted.open(mFile);
+        assertTrue(restarted.isDuplicate("transaction"));
+        assertFalse(restarted.isDuplicate("in flight"));
+    }
+
+    @Test
+    public void savesTransactionsSeenBeforeOpen() {
+        ReactNativeFlurryPaymentDedup dedup = new ReactNativeFlurryPaymentDedup();
+        dedup.isDuplicate("transaction");
+        dedup.forwarded("transaction");
+        dedup.open(mFile);
+        assertTrue(dedup.isDuplicate("transaction"));
+
+        ReactNativeFlurryPaymentDedup restarted = new ReactNativeFlurryPaymentDedup();
+        restarted.open(mFile);
+        assertTrue(restarted.isDuplicate("transaction"));
+    }
+
+    @Test
+    public void evictsTheOldestTransactions() {
+        ReactNativeFlurryPaymentDedup dedup = new ReactNativeFlurryPaymentDedup();
+        dedup.open(mFile);
+        // Wraps around the file ring.
+        int count = ReactNativeFlurryPaymentDedup.CAPACITY + 10;
+        for (int i = 0; i < count; i++) {
+            dedup.isDuplicate("transaction" + i);
+            dedup.forwarded("transaction" + i);
+        }
+
+        ReactNativeFlurryPaymentDedup restarted = new ReactNativeFlurryPaymentDedup();
+        restarted.open(mFile);
+        for (ReactNativeFlurryPaymentDedup instance : new ReactNativeFlurryPaymentDedup[]{dedup, restarted}) {
+            assertTrue(instance.isDuplicate("transaction10"));
+            assertTrue(instance.isDuplicate("transaction" + (count - 1)));
+        }
+        assertFalse(dedup.isDuplicate("transaction9"));
+        assertFalse(restarted.isDuplicate("transaction0"));
+    }
+
+    @Test
+    public void expiresTransactionsOutsideTheWindow() throws IOException {
+        ReactNativeFlurryPaymentDedup dedup = new ReactNativeFlurryPaymentDedup();
+        dedup.open(mFile);
+        dedup.isDuplicate("expired");
+        dedup.forwarded("expired");
+        dedup.isDuplicate("recent");
+        dedup.forwarded("recent");
+
+        // Move the first slot back past the window.
+        long time = System.currentTimeMillis() - ReactNativeFlurryPaymentDedup.WINDOW_MILLIS - 1;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(mFile, "rw")) {
+            randomAccessFile.seek(HEADER_SIZE + 8);
+            randomAccessFile.writeLong(time);
+        }
+
+        ReactNativeFlurryPaymentDedup restarted = new ReactNativeFlurryPaymentDedup();
+        restarted.open(mFile);
+        assertFalse(restarted.isDuplicate("expired"));
+        assertTrue(restarted.isDuplicate("recent"));
+    }
+
+    @Test
+    public void resetsAnUnknownFile() throws IOException {
+        ReactNativeFlurryPaymentDedup dedup = new ReactNativeFlurryPaymentDedup();
+        dedup.open(mFile);
+        dedup.isDuplicate("transaction");
+        dedup.forwarded("transaction");
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(mFile, "rw")) {
+            randomAccessFile.writeInt(0);
+        }
+
+        ReactNativeFlurryPaymentDedup restarted = new ReactNativeFlurryPaymentDedup();
+        restarted.open(mFile);
+        assertFalse(restarted.isDuplicate("transaction"));
+        restarted.forwarded("transaction");
+
+        ReactNativeFlurryPaymentDedup again = new ReactNativeFlurryPaymentDedup();
+        again.open(mFile);
+        assertTrue(again.isDuplicate("transaction"));
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2023, Yahoo Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flurry.android.reactnative;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ReactNativeFlurryPreInitBufferTest {
+
+    private final List<String> mRan = new ArrayList<>();
+    private final List<String> mDropped = new ArrayList<>();
+
+    @Test
+    public void replaysInOrderOnceStarted() {
+        ReactNativeFlurryPreInitBuffer buffer = new ReactNativeFlurryPreInitBuffer(4);
+        buffer.runOrBuffer(ReactNativeFlurryDispatcher.LANE_NORMAL, task("first"), null);
+        buffer.runOrBuffer(ReactNativeFlurryDispatcher.LANE_LOW, task("second"), null);
+        buffer.runOrBuffer(ReactNativeFlurryDispatcher.LANE_NORMAL, task("third"), null);
+        assertTrue(mRan.isEmpty());
+
+        buffer.start();
+        assertEquals(Arrays.asList("first", "second", "third"), mRan);
+    }
+
+    @Test
+    public void runsAtOnceAfterStart() {
+        ReactNativeFlurryPreInitBuffer buffer = new ReactNativeFlurryPreInitBuffer(4);
+        buffer.runOrBuffer(ReactNativeFlurryDispatcher.LANE_NORMAL, task("buffered"), null);
+        buffer.start();
+        buffer.runOrBuffer(ReactNativeFlurryDispatcher.LANE_NORMAL, task("direct"), null);
+        // A second start has nothing left to replay.
+        buffer.start();
+
+        assertEquals(Arrays.asList("buffered", "direct"), mRan);
+    }
+
+    @Test
+    public void replaysTheHighLaneFirst() {
+        ReactNativeFlurryPreInitBuffer buffer = new ReactNativeFlurryPreInitBuffer(4);
+        buffer.runOrBuffer(ReactNativeFlurryDispatcher.LANE_NORMAL, task("event"), null);
+        buffer.runOrBuffer(ReactNativeFlurryDispatcher.LANE_HIGH, task("payment"), null);
+        buffer.runOrBuffer(ReactNativeFlurryDispatcher.LANE_LOW, task("breadcrumb"), null);
+        buffer.runOrBuffer(ReactNativeFlurryDispatcher.LANE_HIGH, task("error"), null);
+
+        buffer.start();
+        assertEquals(Arrays.asList("payment", "error", "event", "breadcrumb"), mRan);
+    }
+
+    @Test
+    public void dropsTheOldestWhenFull() {
+        ReactNativeFlurryPreInitBuffer buffer = new ReactNativeFlurryPreInitBuffer(3);
+        // Wraps around the ring twice.
+        for (int i = 0; i < 8; i++) {
+            buffer.runOrBuffer(ReactNativeFlurryDispatcher.LANE_NORMAL, task("event" + i), dropped("event" + i));
+        }
+        assertEquals(Arrays.asList("event0", "event1", "event2", "event3", "event4"), mDropped);
+
+        buffer.start();
+        assertEquals(Arrays.asList("event5", "event6", "event7"), mRan);
+    }
+
+    @Test
+    public void neverDropsTheHighLane() {
+        ReactNativeFlurryPreInitBuffer buffer = new ReactNativeFlurryPreInitBuffer(2);
+        for (int i = 0; i < 5; i++) {
+            buffer.runOrBuffer(ReactNativeFlurryDispatcher.LANE_HIGH, task("payment" + i), dropped("payment" + i));
+        }
+        buffer.runOrBuffer(ReactNativeFlurryDispatcher.LANE_NORMAL, task("event0"), dropped("event0"));
+        buffer.runOrBuffer(ReactNativeFlurryDispatcher.LANE_NORMAL, task("event1"), dropped("event1"));
+        buffer.runOrBuffer(ReactNativeFlurryDispatcher.LANE_NORMAL, task("event2"), dropped("event2"));
+        assertEquals(Arrays.asList("event0"), mDropped);
+
+        buffer.start();
+        assertEquals(Arrays.asList("payment0", "payment1", "payment2", "payment3", "payment4", "event1", "event2"),
+                mRan);
+    }
+
+    @Test
+    public void keepsReplayingAfterAFailedCall() {
+        ReactNativeFlurryPreInitBuffer buffer = new ReactNativeFlurryPreInitBuffer(4);
+        buffer.runOrBuffer(ReactNativeFlurryDispatcher.LANE_NORMAL, task("first"), null);
+        buffer.runOrBuffer(ReactNativeFlurryDispatcher.LANE_NORMAL, () -> {
+            throw new IllegalStateException();
+        }, null);
+        buffer.runOrBuffer(ReactNativeFlurryDispatcher.LANE_NORMAL, task("third"), null);
+
+        buffer.start();
+        assertEquals(Arrays.asList("first", "third"), mRan);
+    }
+
+    @Test
+    public void keepsBufferingAfterAFailedDropCallback() {
+        ReactNativeFlurryPreInitBuffer buffer = new ReactNativeFlurryPreInitBuffer(1);
+        buffer.runOrBuffer(ReactNativeFlurryDispatcher.LANE_NORMAL, task("first"), () -> {
+            throw new IllegalStateException();
+        });
+        buffer.runOrBuffer(ReactNativeFlurryDispatcher.LANE_NORMAL, task("second"), null);
+
+        buffer.start();
+        assertEquals(Arrays.asList("second"), mRan);
+    }
+
+    private Runnable task(final String name) {
+        return () -> mRan.add(name);
+    }
+
+    private Runnable dropped(final String name) {
+        return () -> mDropped.add(name);
+    }
+
+}
@@ -50,6 +50,16 @@ declare module 'react-native-flurry-sdk' {
             ACTIVATED: string
         }
 
+        /**
+         * Constants for the overflow policies of the native dispatch lanes (Android only).
+         */
+        static OverflowPolicy: {
+            BLOCK:       number,
+            DROP_NEWEST: number,
+            DROP_OLDEST: number,
+            COALESCE:    number
+        }
+
         /**
          * Constants for message types in Flurry Push.
          */
@@ -303,6 +313,18 @@ declare module 'react-native-flurry-sdk' {
                            successCallback?: (agentVersion: number, releaseVersion: string, sessionId: string) => void):
                            Promise<{ agentVersion: number; releaseVersion: string; sessionId: string; }>;
 
+        /**
+         * Get the version of the Flurry SDK and the current session id synchronously.
+         * Cheap over JSI when the new architecture is enabled. (Android only)
+         *
+         * ```javascript
+         * e.g., const versions = Flurry.getVersionsSync();
+         * ```
+         *
+         * @return the versions, or null if not supported on this platform.
+         */
+        static getVersionsSync(): { agentVersion: number; releaseVersion: string; sessionId: string; } | null;
+
         /**
          * Get the Publisher Segmentation data.
          *
@@ -328,6 +350,9 @@ declare module 'react-native-flurry-sdk' {
          * );
          * ```
          *
+         * Requests made while a fetch is in flight wait for that fetch. If it has not completed
+         * within 30 seconds, they are rejected, and the next request starts a new fetch.
+         *
          * @param refresh false to get cached data if available, otherwise fetch and wait.
          * @return the Promise object.
          */
@@ -343,6 +368,67 @@ declare module 'react-native-flurry-sdk' {
          */
          static fetchPublisherSegmentation(): void;
 
+        /**
+         * Wait until all Flurry calls made so far have been handed to the Flurry SDK.
+         * On Android, calls are queued and forwarded to the SDK on a background thread.
+         *
+         * Before the Flurry session starts, calls are held in the native pre-init buffer instead,
+         * and the Promise resolves without waiting for them. When that buffer is full, the oldest
+         * normal and low priority calls are dropped; see Flurry.getPreInitBufferStats().
+         *
+         * ```javascript
+         * e.g., await Flurry.flush();
+         * ```
+         *
+         * @return the Promise object resolved when the queued calls are processed.
+         */
+        static flush(): Promise<void>;
+
+        /**
+         * Get the counters of the pre-initialization buffer (Android only).
+         * Events, user properties and breadcrumbs logged before the Flurry session starts are
+         * buffered, and replayed in order once it does. Payments, errors and breadcrumbs are replayed
+         * first and never dropped; when the buffer is full, the oldest of the other calls are dropped.
+         *
+         * @return the Promise object.
+         */
+        static getPreInitBufferStats(): Promise<{ started: boolean; pending: number; buffered: number;
+                                                  replayed: number; dropped: number; }>;
+
+        /**
+         * Get the call count and latency percentiles of each native Flurry method called so far (Android only).
+         * Latencies are the time spent in the native method on the bridge, rounded up to a power of two microseconds.
+         *
+         * ```javascript
+         * e.g., Flurry.getBridgeMetrics(true).then(metrics => console.log(metrics.logEventParams.p99Millis));
+         * ```
+         *
+         * @param reset true to clear the counters after reading them.
+         * @return the Promise object, keyed by native method name.
+         */
+        static getBridgeMetrics(reset?: boolean): Promise<{ [method: string]: { count: number; meanMillis: number;
+                                                            p50Millis: number; p90Millis: number; p99Millis: number; }; }>;
+
+        /**
+         * Get the depth, high-water mark, drops and timing percentiles of each native dispatch lane (Android only).
+         * Payments, errors and breadcrumbs go through the high lane, events and most other calls
+         * through the normal lane, user properties through the low lane. Drops are counted by
+         * reason, see Builder.withOverflowPolicy. Enqueue times are spent by the caller, including
+         * waiting for room; wait times are from the call to its hand-off to the Flurry SDK. Times
+         * are rounded up to a power of two microseconds. The capacity of the high lane is -1, unbounded.
+         * preInit is the buffer of calls made before the session starts; when it is full its oldest
+         * event or user property call is dropped, high lane calls are never dropped.
+         *
+         * @param reset true to clear the high-water marks, drops and times after reading them.
+         * @return the Promise object, keyed by lane name.
+         */
+        static getQueueStats(reset?: boolean): Promise<{ [lane in 'high' | 'normal' | 'low']: {
+            depth: number; highWater: number; capacity: number;
+            drops: { newest: number; oldest: number; timeout: number; coalesced: number; };
+            enqueue: { count: number; meanMillis: number; p50Millis: number; p90Millis: number; p99Millis: number; };
+            wait: { count: number; meanMillis: number; p50Millis: number; p90Millis: number; p99Millis: number; };
+        }; } & { preInit: { depth: number; capacity: number; dropped: number; }; }>;
+
          /**
          * Logs the breadcrumb.
          * 
@@ -354,6 +440,28 @@ declare module 'react-native-flurry-sdk' {
          */
         static logBreadcrumb(crashBreadcrumb: string): void;
 
+        /**
+         * Logs several breadcrumbs in one call.
+         * On Android, the last breadcrumbs are also kept natively and attached to each error
+         * reported by onError, as parameters breadcrumb1 (most recent) to breadcrumbN.
+         *
+         * ```javascript
+         * e.g., Flurry.logBreadcrumbs(['open cart', 'tap checkout']);
+         * ```
+         *
+         * @param crashBreadcrumbs crash breadcrumbs, oldest first
+         */
+        static logBreadcrumbs(crashBreadcrumbs: string[]): void;
+
+        /**
+         * Set how many of the last breadcrumbs are attached to each error reported by onError (Android only).
+         * Parameters passed to onError with the same names are kept, and fewer breadcrumbs are
+         * attached when they would exceed the Flurry limit of 10 parameters per error. Defaults to 5.
+         *
+         * @param count the number of breadcrumbs, 0 to 10, 0 to attach none.
+         */
+        static setErrorBreadcrumbCount(count: number): void;
+
         /**
          * Log an event.
          * 
@@ -415,6 +523,24 @@ declare module 'react-native-flurry-sdk' {
         static logEvent(eventId: string, parameters: { [key: string]: string; }, timed?: boolean, timedId?: string): void;
         static logEvent(eventId: string, parameters: Map<string, string>,        timed?: boolean, timedId?: string): void;
 
+        /**
+         * Set how long a timed event may stay open (Android only). Timed events left open longer,
+         * or when the app is destroyed, are ended if autoEnd is true, otherwise reported in the log.
+         * At most 256 open timed events are tracked, the oldest are no longer tracked beyond that.
+         *
+         * @param timeoutMillis The timeout in milliseconds, 0 for no timeout (default).
+         * @param autoEnd       True to end the timed events left open, false to only report them.
+         */
+        static setTimedEventTimeout(timeoutMillis: number, autoEnd?: boolean): void;
+
+        /**
+         * Get the timed events started and not yet ended, oldest first (Android only).
+         *
+         * @return the Promise object.
+         */
+        static getOpenTimedEvents(): Promise<{ eventId: string; timedId: string | null; startTime: number;
+                                               durationMillis: number; expired: boolean; }[]>;
+
         /**
          * Log a standard event with parameters.
          *
@@ -435,6 +561,89 @@ declare module 'react-native-flurry-sdk' {
         static logStandardEvent(eventId: number, parameters?: { [key: string]: string|number|boolean; }): void;
         static logStandardEvent(eventId: number, parameters?: Map<string, string|number|boolean>       ): void;
 
+        /**
+         * Aggregate a value of a high-frequency event instead of logging it each time.
+         * Values with the same event and dimensions are accumulated for the aggregation window,
+         * then logged as one event with the dimensions and count, sum, min and max parameters.
+         * At most 6 dimensions are allowed, and they cannot be named count, sum, min or max;
+         * otherwise the value is ignored.
+         * The window is also closed when the app goes to the background, and by Flurry.flush().
+         * On iOS, each value is logged right away as a window of one.
+         *
+         * ```javascript
+         * e.g., Flurry.logAggregatedEvent('PlayerProgress', { videoId: 'v1' }, positionSeconds);
+         * ```
+         *
+         * @param eventId    The name/id of the event.
+         * @param dimensions The parameters that identify the aggregate, up to 6.
+         * @param value      The value to aggregate, defaults to 1.
+         */
+        static logAggregatedEvent(eventId: string, dimensions?: { [key: string]: string; } | Map<string, string> | null,
+                                  value?: number): void;
+
+        /**
+         * Set the window of Flurry.logAggregatedEvent. Defaults to 10 seconds. (Android only)
+         *
+         * @param windowMillis The window duration in milliseconds.
+         */
+        static setAggregationWindow(windowMillis?: number): void;
+
+        /**
+         * Sample and rate limit an event before it is logged (Android only).
+         * 1 in sampleEvery events is kept, then at most burst events are let through at once,
+         * refilled at maxPerSecond. Applies to logEvent, logStandardEvent and logEventBySchema.
+         *
+         * ```javascript
+         * e.g., Flurry.setEventThrottle('ScrollDepth', { maxPerSecond: 1, burst: 5 });
+         *       Flurry.setEventThrottle(Flurry.Event.CONTENT_VIEWED, { sampleEvery: 10 });
+         * ```
+         *
+         * @param eventId The name/id of the event, or a Flurry.Event.
+         * @param options maxPerSecond (0 for no rate limit, default), burst (default 1) and sampleEvery (default 1).
+         */
+        static setEventThrottle(eventId: string|number,
+                                options?: { maxPerSecond?: number; burst?: number; sampleEvery?: number; }): void;
+
+        /**
+         * Remove the throttle of an event, or of all events if no event is given (Android only).
+         *
+         * @param eventId The name/id of the event, or a Flurry.Event.
+         */
+        static clearEventThrottle(eventId?: string|number): void;
+
+        /**
+         * Get the counts of events passed, sampled out and throttled, per throttled event (Android only).
+         *
+         * @param reset true to clear the counts after reading them.
+         * @return the Promise object.
+         */
+        static getEventThrottleStats(reset?: boolean): Promise<{ [eventId: string]: { passed: number;
+                                                                 sampledOut: number; throttled: number; }; }>;
+
+        /**
+         * Register an event with a fixed set of parameter keys, to log it by schema.
+         * Registering the same event and keys again returns the same handle.
+         *
+         * ```javascript
+         * e.g., const ADD_TO_CART = Flurry.registerEventSchema('AddToCart', ['itemId', 'price', 'quantity']);
+         *       Flurry.logEventBySchema(ADD_TO_CART, ['sku-42', 9.99, 2]);
+         * ```
+         *
+         * @param eventId The name/id of the event.
+         * @param keys    The parameter keys, in the order of the values passed to logEventBySchema.
+         * @return the schema handle, or -1 if the schema cannot be registered.
+         */
+        static registerEventSchema(eventId: string, keys: string[]): number;
+
+        /**
+         * Log a registered event. Only the parameter values are sent to the native side,
+         * in the order of the registered keys. Null or missing values are left out.
+         *
+         * @param handle The handle returned by registerEventSchema.
+         * @param values The parameter values, in key order.
+         */
+        static logEventBySchema(handle: number, values: (string|number|boolean|null)[]): void;
+
         /**
          * End a timed event.
          *
@@ -459,6 +668,8 @@ declare module 'react-native-flurry-sdk' {
 
         /**
          * Log a payment.
+         * On Android, a payment whose transactionId was already logged in the last 24 hours,
+         * including by an earlier launch, is dropped as a retry.
          * 
          * ```javascript
          * e.g., Flurry.logPayment('productName', 'productId', 6, 36, 'currency', 'transactionId', {param: 'true'});
@@ -477,6 +688,17 @@ declare module 'react-native-flurry-sdk' {
                    currency: string, transactionId: string, parameters: { [key: string]: string; }): void;
         static logPayment(productName: string, productId: string, quantity: number, price: number,
                     currency: string, transactionId: string, parameters: Map<string, string>      ): void;
+
+        /**
+         * Get the counters of the payment transaction ID dedup (Android only).
+         * Hits are the payments dropped as duplicates, misses the payments let through. Evictions
+         * are IDs forgotten before their 24 hours because the capacity was full.
+         *
+         * @param reset true to clear the hit, miss and eviction counts after reading them.
+         * @return the Promise object.
+         */
+        static getPaymentDedupStats(reset?: boolean): Promise<{ hits: number; misses: number; evictions: number;
+                                                                 size: number; capacity: number; }>;
  
         /**
          * Report errors that your app catches.
@@ -497,6 +719,20 @@ declare module 'react-native-flurry-sdk' {
         static onError(errorId: string, message: string, errorClass: string, errorParams?: { [key: string]: string; }): void;
         static onError(errorId: string, message: string, errorClass: string, errorParams?: Map<string, string>       ): void;
 
+        /**
+         * Set how long repeats of the same error are collapsed (Android only).
+         * Errors with the same errorId, errorClass and message, digits aside, are reported once
+         * when they first occur. Their repeats within the window are reported as one error when
+         * the window closes, with the occurrences parameter counting the repeats only, and the
+         * firstSeen and lastSeen (epoch millis) times of the first and last repeat.
+         * Within the limit of 10 parameters, the errorParams of the last repeat win, then these
+         * fields unless errorParams set the same names, then its breadcrumbs, the oldest dropped first.
+         * Defaults to 10 seconds.
+         *
+         * @param windowMillis the window in milliseconds, 0 to report every error.
+         */
+        static setErrorCollapseWindow(windowMillis: number): void;
+
         /**
          * Log a page view.
          * 
@@ -655,17 +891,20 @@ declare module 'react-native-flurry-sdk' {
             /**
              * Provide a Resource logger that users can start before profiled codes start,
              * then log event after finished. Flurry will compute the time.
+             * Several resource loggers can run at once, each identified by its handle.
+             * Loggers unused for 10 minutes, or beyond the 32 most recently used, are dropped.
              *
              * e.g.,
              * ```javascript
-             * Flurry.Performance.startResourceLogger;
+             * const handle = Flurry.Performance.startResourceLogger();
              * {
              *     // profiled codes ...
              * }
-             * Flurry.Performance.logResourceLogger;
+             * Flurry.Performance.logResourceLogger('groupId', handle);
              * ```
+             * @return the resource logger handle.
              */
-            startResourceLogger(): void,
+            startResourceLogger(): number,
 
             /**
              * Log Flurry Resources Consuming events.
@@ -678,9 +917,43 @@ declare module 'react-native-flurry-sdk' {
              * }
              * Flurry.Performance.logResourceLogger;
              * ```
-             * @param id The group ID
+             * @param id     The group ID
+             * @param handle The handle returned by startResourceLogger, defaults to the last started logger.
              */
-            logResourceLogger(id: string): void
+            logResourceLogger(id: string, handle?: number): void
+        }
+
+        /**
+         * Methods to coalesce Flurry.logEvent calls into batched native calls (Android only).
+         * Queued events are sent when the count or estimated byte size limit is reached,
+         * when the flush interval elapses, or when the app leaves the foreground. They are also
+         * sent before any other Flurry call, so events keep their order with payments, errors,
+         * breadcrumbs and user properties.
+         *
+         * e.g.,
+         * ```javascript
+         * Flurry.EventBatch.enable({ maxCount: 50, maxBytes: 16384, flushIntervalMillis: 1000 });
+         * ```
+         */
+        static EventBatch: {
+            /**
+             * Start queueing Flurry.logEvent calls.
+             *
+             * @param options maxCount: maximum number of queued events (default 50),
+             *                maxBytes: maximum estimated payload size in bytes (default 16384),
+             *                flushIntervalMillis: maximum time an event stays queued (default 1000).
+             */
+            enable(options?: { maxCount?: number; maxBytes?: number; flushIntervalMillis?: number; }): void,
+
+            /**
+             * Flush the queued events and stop queueing.
+             */
+            disable(): void,
+
+            /**
+             * Send all queued events now.
+             */
+            flush(): void
         }
 
         /**
@@ -727,7 +1000,8 @@ declare module 'react-native-flurry-sdk' {
          * @param callback Callback listener to be registered.
          */
         static addConfigListener(
-            callback: (event: { Type: string; isCache?: boolean; isRetrying?: boolean; }) => void): void;
+            callback: (event: { Type: string; isCache?: boolean; isRetrying?: boolean;
+                                Changed?: { [key: string]: string | null; }; }) => void): void;
 
         /**
          * Unregister a callback listener
@@ -735,7 +1009,8 @@ declare module 'react-native-flurry-sdk' {
          * @param callback Callback listener to be removed.
          */
         static removeConfigListener(
-            callback: (event: { Type: string; isCache?: boolean; isRetrying?: boolean; }) => void): void;
+            callback: (event: { Type: string; isCache?: boolean; isRetrying?: boolean;
+                                Changed?: { [key: string]: string | null; }; }) => void): void;
 
         /**
          * Fetch Config will trigger an async call to the server. Server has a throttle where when
@@ -790,6 +1065,68 @@ declare module 'react-native-flurry-sdk' {
         static getConfigString(keysAndDefaults: { [key: string]: string; }): 
                                Promise<{ [key: string]: string; }>;
 
+        /**
+         * Retrieves a String value from the configuration synchronously.
+         * Cheap over JSI when the new architecture is enabled. (Android only)
+         *
+         * ```javascript
+         * e.g., const message = Flurry.getConfigStringSync('welcome_message', 'Welcome!');
+         * ```
+         *
+         * @param key           The name of the configuration to retrieve.
+         * @param defaultValue  Value to return if this configuration does not exist.
+         * @returns The configuration value if it exists, or defaultValue.
+         */
+        static getConfigStringSync(key: string, defaultValue: string): string;
+
+        /**
+         * Keep the values of these config keys in the native config cache, so they can be read without
+         * calling Flurry Config again. Keys read by getConfigString are watched automatically. (Android only)
+         * The last activated values of the watched keys are persisted, and answer reads at the next
+         * cold start until Flurry Config activates again.
+         *
+         * ```javascript
+         * e.g., Flurry.watchConfigKeys(['welcome_message', 'welcome_font_size']);
+         * ```
+         *
+         * @param keys The names of the configurations to watch.
+         */
+        static watchConfigKeys(keys: string[]): void;
+
+        /**
+         * Subscribe to the changes of watched config keys that start with one of the prefixes (Android only).
+         * When Flurry Config activates, the native side diffs the keys passed to watchConfigKeys,
+         * and the callback receives only the changed keys with their new value, null if no longer defined.
+         * The ActivateComplete event of addConfigListener carries all changed keys in its Changed field.
+         *
+         * ```javascript
+         * e.g., Flurry.watchConfigKeys(['welcome_message', 'welcome_font_size']);
+         *       const subscription = Flurry.subscribeConfigChanges('welcome_', changes => render(changes));
+         *       subscription.remove();
+         * ```
+         *
+         * @param prefixes The key prefix, or key prefixes, to subscribe to.
+         * @param callback The callback receiving the changed keys.
+         * @return the subscription, remove it to unsubscribe.
+         */
+        static subscribeConfigChanges(prefixes: string | string[],
+                                      callback: (changes: { [key: string]: string | null; }) => void): { remove(): void; };
+
+        /**
+         * Get the snapshot of all watched config keys synchronously. The snapshot is replaced when
+         * Flurry Config activates or new keys are watched, and its version increases each time.
+         * The same object is returned while the version is unchanged. (Android only)
+         *
+         * ```javascript
+         * e.g., const snapshot = Flurry.getConfigSnapshot();
+         *       console.log(snapshot.version + ': ' + snapshot.values.welcome_message);
+         * ```
+         *
+         * @returns The snapshot, with null values for keys not defined in Flurry Config,
+         *          or null if not supported on this platform.
+         */
+        static getConfigSnapshot(): { version: number; values: { [key: string]: string | null; }; } | null;
+
         /**
          * Add a listener to receive messaging events, and handle the notification.
          * ```
@@ -802,6 +1139,7 @@ declare module 'react-native-flurry-sdk' {
          * Message.Data:        message data (Map)
          * Message.ClickAction: click action (Android only)
          * Message.Token:       refreshed token
+         * Message.MessageId:   ID to pass back to Flurry.willHandleMessage (Android only)
          * ```
          *
          * Please call required Flurry.willHandleMessage(boolean) when received event types of
@@ -814,9 +1152,9 @@ declare module 'react-native-flurry-sdk' {
          * ```javascript
          * Flurry.addMessagingListener((message) => {
          *     if (message.Type === Flurry.MessageType.RECEIVED) {
-         *         Flurry.willHandleMessage(false);
+         *         Flurry.willHandleMessage(false, message.MessageId);
          *     } else if (message.Type === Flurry.MessageType.CLICKED) {
-         *         Flurry.willHandleMessage(false);
+         *         Flurry.willHandleMessage(false, message.MessageId);
          *     }
          *
          *     Flurry.printMessage(message);
@@ -827,7 +1165,7 @@ declare module 'react-native-flurry-sdk' {
          */
         static addMessagingListener(callback: (message: { Type: string;
                     Title?: string; Body?: string; Data?: { [key: string]: string; }; ClickAction?: string;
-                    Token?: string; }) => void): void;
+                    Token?: string; MessageId?: number; }) => void): void;
 
         /**
          * Remove a messaging events listener.
@@ -836,7 +1174,7 @@ declare module 'react-native-flurry-sdk' {
          */
         static removeMessagingListener(callback: (message: { Type: string;
                     Title?: string; Body?: string; Data?: { [key: string]: string; }; ClickAction?: string;
-                    Token?: string; }) => void): void;
+                    Token?: string; MessageId?: number; }) => void): void;
 
         /**
          * If you would like to handle the notification yourself, return true to notify Flurry
@@ -846,14 +1184,35 @@ declare module 'react-native-flurry-sdk' {
          * Required: Even it is supported by Android only, it is required to notify Flurry
          *           when received event types of MessageType.RECEIVED or MessageType.CLICKED.
          *
+         * Pass the message's MessageId so the answer is paired with the right notification when
+         * several arrive at once. Without it, the answer goes to the oldest waiting notification.
+         * Flurry waits at most 300 ms for each answer.
+         *
          * ```javascript
-         * e.g., Flurry.willHandleMessage(true);
+         * e.g., Flurry.willHandleMessage(true, message.MessageId);
+         * ```
+         *
+         * @param handled   True if you've handled the notification.
+         *                  False if you haven't and want Flurry to handle it.
+         * @param messageId The MessageId of the received message. (Android only)
+         */
+        static willHandleMessage(handled: boolean, messageId?: number): void;
+
+        /**
+         * Get statistics of the willHandleMessage handshake. (Android only)
+         *
+         * ```
+         * answered:             number of messages answered in time
+         * timeouts:             number of messages not answered within 300 ms
+         * pending:              number of messages currently waiting for an answer
+         * averageLatencyMillis: average time to answer
+         * maxLatencyMillis:     longest time to answer
          * ```
          *
-         * @param handled True if you've handled the notification.
-         *                False if you haven't and want Flurry to handle it.
+         * @return the Promise object.
          */
-        static willHandleMessage(handled: boolean): void;
+        static getMessagingMetrics(): Promise<{ answered: number; timeouts: number; pending: number;
+                                                averageLatencyMillis: number; maxLatencyMillis: number; }>;
 
         /**
          * A helper function to print the message.
@@ -862,7 +1221,7 @@ declare module 'react-native-flurry-sdk' {
          */
         static printMessage(message: { Type: string;
                     Title?: string; Body?: string; Data?: { [key: string]: string; }; ClickAction?: string;
-                    Token?: string; }): void;
+                    Token?: string; MessageId?: number; }): void;
 
         /**
          * Constants for Standard Event Types.
@@ -1544,6 +1903,26 @@ declare module 'react-native-flurry-sdk' {
              */
             build(apiKey1: string, apiKey2?: string): void;
 
+            /**
+             * Initialize the Flurry SDK like build, and wait for the Flurry session to start.
+             * On Android, the Promise resolves with the startup timings in milliseconds:
+             * builder creation, the SDK build call, session start after build, and the total
+             * from builder creation to session start. A timing not measured is -1.
+             * If the session has not started within 30 seconds, e.g. with a bad API key or no
+             * network, the Promise is rejected; the SDK keeps starting the session in the background.
+             * On iOS, the Promise resolves with null once build is called.
+             *
+             * ```javascript
+             * e.g., const timings = await new Flurry.Builder().buildAsync('FLURRY_ANDROID_API_KEY', 'FLURRY_IOS_API_KEY');
+             * ```
+             *
+             * @param apiKey1 Android User API Key.
+             * @param apiKey2 iOS User API Key.
+             * @return the Promise object resolved when the session starts, rejected after 30 seconds.
+             */
+            buildAsync(apiKey1: string, apiKey2?: string): Promise<{ builderMillis: number; buildMillis: number;
+                                                                     sessionStartMillis: number; totalMillis: number; } | null>;
+
             /**
              * Set the version name of the app.
              * 
@@ -1624,6 +2003,46 @@ declare module 'react-native-flurry-sdk' {
              */
             withPerformanceMetrics(performanceMetrics?: number): Builder;
 
+            /**
+             * Set the capacity of the normal and the low priority lanes between the React Native bridge
+             * and the Flurry SDK. Calls are blocked when their lane is full, payments, errors and
+             * breadcrumbs never are. Default is 1024.
+             * Takes effect only before the first Flurry call is made. (Android only)
+             *
+             * @param capacity the maximum number of pending calls of each lane.
+             * @return The Builder instance.
+             */
+            withDispatchQueueCapacity(capacity?: number): Builder;
+
+            /**
+             * Set how events and user property changes are handled when their dispatch lane is full.
+             * Payments, errors, breadcrumbs and calls returning a Promise are never dropped. (Android only)
+             *
+             * OverflowPolicy.BLOCK:       wait for room, and drop the call after blockTimeoutMillis. (default)
+             * OverflowPolicy.DROP_NEWEST: drop the call.
+             * OverflowPolicy.DROP_OLDEST: drop the oldest pending call of the lane to make room.
+             * OverflowPolicy.COALESCE:    drop the event if an event of the same name is still pending,
+             *                             otherwise wait as BLOCK.
+             *
+             * @param policy             the overflow policy.
+             * @param blockTimeoutMillis how long to wait for room before dropping the call,
+             *                           0 to wait until there is room (default).
+             * @return The Builder instance.
+             */
+            withOverflowPolicy(policy: number, blockTimeoutMillis?: number): Builder;
+
+            /**
+             * True to write events and payments to an on-disk journal before they are handed to the
+             * Flurry SDK. If the app is killed first, they are replayed on the next launch. Defaults to false.
+             * Custom, timed, standard, schema, aggregated and batched events are journaled. A replayed
+             * timed event is started again, and ends with the session.
+             * (Android only)
+             *
+             * @param enableJournal true to enable the event journal.
+             * @return The Builder instance.
+             */
+            withEventJournal(enableJournal?: boolean): Builder;
+
             /**
              * True to enable or  false to disable SSL Pinning for Flurry Analytics connection. Defaults to false.
              *
@@ -1,11 +1,214 @@
 import {
+    AppState,
     DeviceEventEmitter,
     NativeAppEventEmitter,
     NativeModules,
     Platform,
  } from 'react-native';
 
-const { ReactNativeFlurry } = NativeModules;
+import NativeReactNativeFlurry from './src/NativeReactNativeFlurry';
+
+// The TurboModule when the new architecture is enabled, otherwise the classic bridge module.
+const NativeFlurry = NativeReactNativeFlurry || NativeModules.ReactNativeFlurry;
+
+// Native methods wrapped to send the events queued by Flurry.EventBatch first, by method name.
+const orderedMethods = new Map();
+
+// Every native call goes through this view of the module, so that no call, e.g. a payment, an
+// error or a breadcrumb, overtakes the events logged before it and still queued in the batch.
+const ReactNativeFlurry = (NativeFlurry == null) ? NativeFlurry : new Proxy(NativeFlurry, {
+    get(target, name) {
+        const method = target[name];
+        if (typeof method !== 'function' || name === 'logEventsBatch') {
+            return method;
+        }
+
+        let ordered = orderedMethods.get(name);
+        if (ordered === undefined) {
+            ordered = (...args) => {
+                if (eventBatch.entries.length > 0) {
+                    flushEventBatch();
+                }
+                return method.apply(target, args);
+            };
+            orderedMethods.set(name, ordered);
+        }
+        return ordered;
+    }
+});
+
+// Synchronous getters are only used by default over JSI, where they do not block on the bridge.
+const isTurboModuleEnabled = global.__turboModuleProxy != null;
+
+function hasSyncMethod(name) {
+    return typeof ReactNativeFlurry[name] === 'function';
+}
+
+// Last config snapshot read from the native side, re-read only when the native version changes.
+let configSnapshot = null;
+
+/**
+ * JS-side queue used by Flurry.EventBatch to coalesce logEvent calls (Android only).
+ */
+const eventBatch = {
+    enabled:             false,
+    maxCount:            50,
+    maxBytes:            16 * 1024,
+    flushIntervalMillis: 1000,
+    entries:             [],
+    bytes:               0,
+    timer:               null,
+    appStateSubscription: null
+};
+
+function estimateEventBytes(eventId, parameters, timedId) {
+    let bytes = eventId.length;
+    if (parameters) {
+        for (const key in parameters) {
+            bytes += key.length + String(parameters[key]).length;
+        }
+    }
+    if (typeof timedId === 'string') {
+        bytes += timedId.length;
+    }
+    return bytes;
+}
+
+function flushEventBatch() {
+    if (eventBatch.timer !== null) {
+        clearTimeout(eventBatch.timer);
+        eventBatch.timer = null;
+    }
+    if (eventBatch.entries.length === 0) {
+        return;
+    }
+
+    const entries = eventBatch.entries;
+    eventBatch.entries = [];
+    eventBatch.bytes = 0;
+    NativeFlurry.logEventsBatch(entries);
+}
+
+// Registered event schemas, indexed by handle. On Android the native side keeps a copy of the keys.
+const MAX_EVENT_SCHEMAS = 256;
+const eventSchemas = [];
+const eventSchemaHandles = new Map();
+
+// Subscriptions to changed config keys by prefix (Android only), fed by one internal config listener.
+const configSubscriptions = [];
+
+function notifyConfigSubscriptions(event) {
+    if (event.Type !== Flurry.ConfigStatus.ACTIVATED || !event.Changed) {
+        return;
+    }
+
+    const keys = Object.keys(event.Changed);
+    if (keys.length === 0) {
+        return;
+    }
+
+    configSubscriptions.slice().forEach(subscription => {
+        let changes = null;
+        keys.forEach(key => {
+            if (subscription.prefixes.some(prefix => key.startsWith(prefix))) {
+                if (changes === null) {
+                    changes = {};
+                }
+                changes[key] = event.Changed[key];
+            }
+        });
+        if (changes !== null) {
+            subscription.callback(changes);
+        }
+    });
+}
+
+// Handles of the performance resource loggers. logResourceLogger without a handle uses the last started one.
+const resourceLoggers = {
+    nextHandle: 0,
+    lastHandle: -1
+};
+
+let eventParamOrdinals = null;
+
+/**
+ * Ordinal of a standard event parameter key, in Flurry.EventParam order. -1 if not a standard parameter.
+ */
+function getEventParamOrdinal(key) {
+    if (eventParamOrdinals === null) {
+        eventParamOrdinals = new Map();
+        Object.values(Flurry.EventParam).forEach((param, ordinal) => eventParamOrdinals.set(param, ordinal));
+    }
+
+    const ordinal = eventParamOrdinals.get(key);
+    return (ordinal === undefined) ? -1 : ordinal;
+}
+
+/**
+ * Send a standard event with its standard parameters as ordinals, so the native side skips the key lookups.
+ */
+function logStandardEventOrdinals(eventId, parameters) {
+    const ordinals = [];
+    const values = [];
+    let customParameters = null;
+    for (const key in parameters) {
+        const ordinal = getEventParamOrdinal(key);
+        if (ordinal >= 0) {
+            ordinals.push(ordinal);
+            values.push(parameters[key]);
+        } else {
+            if (customParameters === null) {
+                customParameters = {};
+            }
+            customParameters[key] = parameters[key];
+        }
+    }
+
+    ReactNativeFlurry.logStandardEventOrdinals(eventId, ordinals, values, customParameters);
+}
+
+/**
+ * Dispatch a normalized logEvent call, either to the batch queue or directly to the native module.
+ */
+function dispatchEvent(eventId, parameters, timed, timedId) {
+    if (eventBatch.enabled) {
+        const entry = { eventId: eventId };
+        if (parameters) {
+            entry.parameters = parameters;
+        }
+        if (typeof timed === 'boolean') {
+            entry.timed = timed;
+        }
+        if (typeof timedId === 'string') {
+            entry.timedId = timedId;
+        }
+
+        eventBatch.entries.push(entry);
+        eventBatch.bytes += estimateEventBytes(eventId, parameters, timedId);
+        if (eventBatch.entries.length >= eventBatch.maxCount || eventBatch.bytes >= eventBatch.maxBytes) {
+            flushEventBatch();
+        } else if (eventBatch.timer === null) {
+            eventBatch.timer = setTimeout(flushEventBatch, eventBatch.flushIntervalMillis);
+        }
+        return;
+    }
+
+    if (parameters) {
+        if (typeof timed === 'boolean') {
+            ReactNativeFlurry.logEventParamsTimed(eventId, parameters, timed);
+        } else if (typeof timedId === 'string') {
+            ReactNativeFlurry.logEventParamsTimedId(eventId, parameters, timedId);
+        } else {
+            ReactNativeFlurry.logEventParams(eventId, parameters);
+        }
+    } else if (typeof timed === 'boolean') {
+        ReactNativeFlurry.logEventTimed(eventId, timed);
+    } else if (typeof timedId === 'string') {
+        ReactNativeFlurry.logEventTimedId(eventId, timedId);
+    } else {
+        ReactNativeFlurry.logEvent(eventId);
+    }
+}
 
 export default class Flurry {
 
@@ -41,6 +244,13 @@ export default class Flurry {
         ACTIVATED: 'ActivateComplete'
     });
 
+    static OverflowPolicy = Object.freeze({
+        BLOCK:       0,
+        DROP_NEWEST: 1,
+        DROP_OLDEST: 2,
+        COALESCE:    3
+    });
+
     static MessageType = Object.freeze({
         RECEIVED:  'NotificationReceived',
         CLICKED:   'NotificationClicked',
@@ -80,6 +290,20 @@ export default class Flurry {
             }
         }
 
+        buildAsync(...apiKeys) {
+            const apiKey = (apiKeys.length === 2 && Platform.OS === 'ios') ? apiKeys[1] : apiKeys[0];
+            if (typeof apiKey !== 'string') {
+                console.error('Flurry.Builder.buildAsync: apiKey(string) is required');
+                return Promise.reject(new Error('Flurry.Builder.buildAsync: apiKey(string) is required'));
+            }
+
+            if (Platform.OS === 'android') {
+                return ReactNativeFlurry.buildAsync(apiKey);
+            }
+            ReactNativeFlurry.build(apiKey);
+            return Promise.resolve(null);
+        }
+
         withAppVersion(versionName = '1.0') {
             if (Platform.OS === 'ios') {
                 if (typeof versionName !== 'string') {
@@ -215,6 +439,46 @@ export default class Flurry {
             return this;
         }
 
+        withDispatchQueueCapacity(capacity = 1024) {
+            if (Platform.OS === 'android') {
+                if (typeof capacity !== 'number' || capacity < 1) {
+                    console.error(`Flurry.Builder.withDispatchQueueCapacity: capacity must be a positive number. Got ${capacity}`);
+                    return this;
+                }
+
+                ReactNativeFlurry.withDispatchQueueCapacity(capacity);
+            }
+            return this;
+        }
+
+        withOverflowPolicy(policy = Flurry.OverflowPolicy.BLOCK, blockTimeoutMillis = 0) {
+            if (Platform.OS === 'android') {
+                if (!Object.values(Flurry.OverflowPolicy).includes(policy)) {
+                    console.error(`Flurry.Builder.withOverflowPolicy: policy must be one of Flurry.OverflowPolicy. Got ${policy}`);
+                    return this;
+                }
+                if (typeof blockTimeoutMillis !== 'number' || blockTimeoutMillis < 0) {
+                    console.error(`Flurry.Builder.withOverflowPolicy: blockTimeoutMillis must be a non-negative number. Got ${blockTimeoutMillis}`);
+                    return this;
+                }
+
+                ReactNativeFlurry.withOverflowPolicy(policy, blockTimeoutMillis);
+            }
+            return this;
+        }
+
+        withEventJournal(enableJournal = true) {
+            if (Platform.OS === 'android') {
+                if (typeof enableJournal !== 'boolean') {
+                    console.error(`Flurry.Builder.withEventJournal: enableJournal must be one of [true, false]. Got ${enableJournal}`);
+                    return this;
+                }
+
+                ReactNativeFlurry.withEventJournal(enableJournal);
+            }
+            return this;
+        }
+
         withMessaging(enableMessaging = true) {
             if (typeof enableMessaging !== 'boolean') {
                 console.error(`Flurry.Builder.withMessaging: enableMessaging must be one of [true, false]. Got ${enableMessaging}`);
@@ -313,6 +577,10 @@ export default class Flurry {
         _LAST:                    57
     });
 
+    /**
+     * Standard event parameters. The order must match ReactNativeFlurryEvent.PARAMS on Android,
+     * since parameters are sent to the native side by ordinal.
+     */
     static EventParam = Object.freeze({
         AD_TYPE:                'fl.ad.type',
         LEVEL_NAME:             'fl.level.name',
@@ -429,23 +697,84 @@ export default class Flurry {
         },
 
         startResourceLogger() {
+            const handle = resourceLoggers.nextHandle++;
+            resourceLoggers.lastHandle = handle;
             if (Platform.OS === 'android') {
-                ReactNativeFlurry.startPerformanceResourceLogger();
+                ReactNativeFlurry.startPerformanceResourceLogger(handle);
             }
+            return handle;
         },
 
-        logResourceLogger(id) {
+        logResourceLogger(id, handle = resourceLoggers.lastHandle) {
             if (Platform.OS === 'android') {
                 if (typeof id !== 'string') {
                     console.error(`Flurry.Performance.logResourceLogger: id must be string. Got ${id}`);
                     return;
                 }
+                if (typeof handle !== 'number' || handle < 0) {
+                    console.error(`Flurry.Performance.logResourceLogger: handle must be returned by startResourceLogger. Got ${handle}`);
+                    return;
+                }
 
-                ReactNativeFlurry.logPerformanceResourceLogger(id);
+                ReactNativeFlurry.logPerformanceResourceLogger(handle, id);
             }
         }
     });
 
+    /**
+     * Opt-in coalescing of logEvent calls into batched bridge calls (Android only).
+     */
+    static EventBatch = Object.freeze({
+        enable(options = {}) {
+            if (Platform.OS !== 'android') {
+                return;
+            }
+
+            const { maxCount = 50, maxBytes = 16 * 1024, flushIntervalMillis = 1000 } = options;
+            if (typeof maxCount !== 'number' || maxCount < 1) {
+                console.error(`Flurry.EventBatch.enable: maxCount must be a positive number. Got ${maxCount}`);
+                return;
+            }
+            if (typeof maxBytes !== 'number' || maxBytes < 1) {
+                console.error(`Flurry.EventBatch.enable: maxBytes must be a positive number. Got ${maxBytes}`);
+                return;
+            }
+            if (typeof flushIntervalMillis !== 'number' || flushIntervalMillis < 0) {
+                console.error(`Flurry.EventBatch.enable: flushIntervalMillis must be a non-negative number. Got ${flushIntervalMillis}`);
+                return;
+            }
+
+            eventBatch.maxCount = maxCount;
+            eventBatch.maxBytes = maxBytes;
+            eventBatch.flushIntervalMillis = flushIntervalMillis;
+            eventBatch.enabled = true;
+
+            if (eventBatch.appStateSubscription === null) {
+                eventBatch.appStateSubscription = AppState.addEventListener('change', (state) => {
+                    if (state !== 'active') {
+                        flushEventBatch();
+                    }
+                });
+            }
+        },
+
+        disable() {
+            flushEventBatch();
+            eventBatch.enabled = false;
+
+            if (eventBatch.appStateSubscription) {
+                if (typeof eventBatch.appStateSubscription.remove === 'function') {
+                    eventBatch.appStateSubscription.remove();
+                }
+            }
+            eventBatch.appStateSubscription = null;
+        },
+
+        flush() {
+            flushEventBatch();
+        }
+    });
+
     static setContinueSessionMillis(sessionMillis = 10000) {
         if (typeof sessionMillis !== 'number' || sessionMillis < 5000) {
             console.error('Flurry.setContinueSessionMillis: the minimum timeout for a session is 5,000 ms.');
@@ -650,11 +979,22 @@ export default class Flurry {
 
     static getVersions(errorCallback, successCallback) {
         if (arguments.length === 0) {
+            if (isTurboModuleEnabled && hasSyncMethod('getVersionsSync')) {
+                return Promise.resolve(ReactNativeFlurry.getVersionsSync());
+            }
             return ReactNativeFlurry.getVersionsPromise();
         }
         ReactNativeFlurry.getVersions(errorCallback, successCallback);
     }
 
+    static getVersionsSync() {
+        if (!hasSyncMethod('getVersionsSync')) {
+            console.error('Flurry.getVersionsSync: not supported on this platform. Use Flurry.getVersions instead.');
+            return null;
+        }
+        return ReactNativeFlurry.getVersionsSync();
+    }
+
     static getPublisherSegmentation(refresh) {
         if (arguments.length === 0) {
             return ReactNativeFlurry.getPublisherSegmentation(false);
@@ -671,6 +1011,39 @@ export default class Flurry {
         ReactNativeFlurry.fetchPublisherSegmentation();
     }
 
+    static flush() {
+        if (Platform.OS === 'android') {
+            return ReactNativeFlurry.flush();
+        }
+        return Promise.resolve();
+    }
+
+    static getPreInitBufferStats() {
+        if (Platform.OS === 'android') {
+            return ReactNativeFlurry.getPreInitBufferStats();
+        }
+        return Promise.resolve({ started: true, pending: 0, buffered: 0, replayed: 0, dropped: 0 });
+    }
+
+    static getBridgeMetrics(reset = false) {
+        if (typeof reset !== 'boolean') {
+            console.error(`Flurry.getBridgeMetrics: reset must be one of [true, false]. Got ${reset}`);
+            reset = false;
+        }
+
+        if (Platform.OS === 'android') {
+            return ReactNativeFlurry.getBridgeMetrics(reset);
+        }
+        return Promise.resolve({});
+    }
+
+    static getQueueStats(reset = false) {
+        if (Platform.OS === 'android') {
+            return ReactNativeFlurry.getQueueStats(reset === true);
+        }
+        return Promise.resolve({});
+    }
+
     static logBreadcrumb(crashBreadcrumb) {
         if (typeof crashBreadcrumb !== 'string') {
             console.error(`Flurry.logBreadcrumb: crashBreadcrumb must be a string. Got ${crashBreadcrumb}`);
@@ -680,6 +1053,33 @@ export default class Flurry {
         ReactNativeFlurry.logBreadcrumb(crashBreadcrumb);
     }
 
+    static logBreadcrumbs(crashBreadcrumbs) {
+        if (!Array.isArray(crashBreadcrumbs) || !crashBreadcrumbs.every(crumb => typeof crumb === 'string')) {
+            console.error(`Flurry.logBreadcrumbs: crashBreadcrumbs must be an array of strings. Got ${crashBreadcrumbs}`);
+            return;
+        }
+        if (crashBreadcrumbs.length === 0) {
+            return;
+        }
+
+        if (Platform.OS === 'android') {
+            ReactNativeFlurry.logBreadcrumbs(crashBreadcrumbs);
+        } else {
+            crashBreadcrumbs.forEach(crumb => ReactNativeFlurry.logBreadcrumb(crumb));
+        }
+    }
+
+    static setErrorBreadcrumbCount(count = 5) {
+        if (!Number.isInteger(count) || count < 0 || count > 10) {
+            console.error(`Flurry.setErrorBreadcrumbCount: count must be an integer from 0 to 10. Got ${count}`);
+            return;
+        }
+
+        if (Platform.OS === 'android') {
+            ReactNativeFlurry.setErrorBreadcrumbCount(count);
+        }
+    }
+
     /**
      * There are four overloads
      * - logEvent(eventId)
@@ -696,34 +1096,187 @@ export default class Flurry {
         }
 
         if (arguments.length === 1) {
-            ReactNativeFlurry.logEvent(eventId);
+            dispatchEvent(eventId);
         } else if (arguments.length === 2) {
             if (typeof timedOrParameters === 'boolean') {
-                ReactNativeFlurry.logEventTimed(eventId, timedOrParameters);
+                dispatchEvent(eventId, null, timedOrParameters);
             } else if (typeof timedOrParameters === 'string') {
-                ReactNativeFlurry.logEventTimedId(eventId, timedOrParameters);
+                dispatchEvent(eventId, null, undefined, timedOrParameters);
             } else if (Object.prototype.toString.call(timedOrParameters).includes('Object')) {
-                ReactNativeFlurry.logEventParams(eventId, timedOrParameters);
+                dispatchEvent(eventId, timedOrParameters);
             } else if (Object.prototype.toString.call(timedOrParameters).includes('Map')) {
-                ReactNativeFlurry.logEventParams(eventId, Object.fromEntries(timedOrParameters));
+                dispatchEvent(eventId, Object.fromEntries(timedOrParameters));
             }
         } else if (arguments.length === 3) {
+            let parameters = null;
             if (Object.prototype.toString.call(timedOrParameters).includes('Object')) {
-                if (typeof timed === 'boolean') {
-                    ReactNativeFlurry.logEventParamsTimed(eventId, timedOrParameters, timed);
-                } else if (typeof timed === 'string') {
-                    ReactNativeFlurry.logEventParamsTimedId(eventId, timedOrParameters, timed);
-                }
+                parameters = timedOrParameters;
             } else if (Object.prototype.toString.call(timedOrParameters).includes('Map')) {
-                if (typeof timed === 'boolean') {
-                    ReactNativeFlurry.logEventParamsTimed(eventId, Object.fromEntries(timedOrParameters), timed);
-                } else if (typeof timed === 'string') {
-                    ReactNativeFlurry.logEventParamsTimedId(eventId, Object.fromEntries(timedOrParameters), timed);
-                }
+                parameters = Object.fromEntries(timedOrParameters);
+            } else {
+                return;
+            }
+
+            if (typeof timed === 'boolean') {
+                dispatchEvent(eventId, parameters, timed);
+            } else if (typeof timed === 'string') {
+                dispatchEvent(eventId, parameters, undefined, timed);
             }
         }
     }
 
+    static logAggregatedEvent(eventId, dimensions = null, value = 1) {
+        if (typeof eventId !== 'string') {
+            console.error(`Flurry.logAggregatedEvent: eventId must be a string. Got ${eventId}`);
+            return;
+        }
+        if (Object.prototype.toString.call(dimensions).includes('Map')) {
+            dimensions = Object.fromEntries(dimensions);
+        } else if (dimensions !== null && !Object.prototype.toString.call(dimensions).includes('Object')) {
+            console.error(`Flurry.logAggregatedEvent: dimensions must be an object. Got ${dimensions}`);
+            return;
+        }
+        if (dimensions !== null) {
+            const names = Object.keys(dimensions);
+            if (names.length > 6) {
+                console.error(`Flurry.logAggregatedEvent: at most 6 dimensions are allowed. Got ${names.length}`);
+                return;
+            }
+            const reserved = names.filter((name) => ['count', 'sum', 'min', 'max'].includes(name));
+            if (reserved.length > 0) {
+                console.error(`Flurry.logAggregatedEvent: dimension names count, sum, min and max are reserved. Got ${reserved}`);
+                return;
+            }
+        }
+        if (typeof value !== 'number') {
+            console.error(`Flurry.logAggregatedEvent: value must be a number. Got ${value}`);
+            return;
+        }
+
+        if (Platform.OS === 'android') {
+            ReactNativeFlurry.logAggregatedEvent(eventId, dimensions, value);
+        } else {
+            // No native aggregation, log each value as a window of one.
+            const parameters = Object.assign({}, dimensions,
+                { count: '1', sum: String(value), min: String(value), max: String(value) });
+            dispatchEvent(eventId, parameters);
+        }
+    }
+
+    static setAggregationWindow(windowMillis = 10000) {
+        if (typeof windowMillis !== 'number' || windowMillis <= 0) {
+            console.error(`Flurry.setAggregationWindow: windowMillis must be a positive number. Got ${windowMillis}`);
+            return;
+        }
+
+        if (Platform.OS === 'android') {
+            ReactNativeFlurry.setAggregationWindow(windowMillis);
+        }
+    }
+
+    /**
+     * Standard events are throttled by their Flurry.Event name, e.g. 'PURCHASED'.
+     */
+    static setEventThrottle(eventId, { maxPerSecond = 0, burst = 1, sampleEvery = 1 } = {}) {
+        if (typeof eventId === 'number') {
+            eventId = Object.keys(Flurry.Event).find(name => Flurry.Event[name] === eventId);
+        }
+        if (typeof eventId !== 'string') {
+            console.error(`Flurry.setEventThrottle: eventId must be a string or a Flurry.Event. Got ${eventId}`);
+            return;
+        }
+        if (typeof maxPerSecond !== 'number' || maxPerSecond < 0) {
+            console.error(`Flurry.setEventThrottle: maxPerSecond must be a non-negative number. Got ${maxPerSecond}`);
+            return;
+        }
+        if (typeof burst !== 'number' || burst < 1) {
+            console.error(`Flurry.setEventThrottle: burst must be a number of at least 1. Got ${burst}`);
+            return;
+        }
+        if (!Number.isInteger(sampleEvery) || sampleEvery < 1) {
+            console.error(`Flurry.setEventThrottle: sampleEvery must be a positive integer. Got ${sampleEvery}`);
+            return;
+        }
+
+        if (Platform.OS === 'android') {
+            ReactNativeFlurry.setEventThrottle(eventId, maxPerSecond, burst, sampleEvery);
+        }
+    }
+
+    static clearEventThrottle(eventId = null) {
+        if (typeof eventId === 'number') {
+            eventId = Object.keys(Flurry.Event).find(name => Flurry.Event[name] === eventId);
+        }
+        if (eventId !== null && typeof eventId !== 'string') {
+            console.error(`Flurry.clearEventThrottle: eventId must be a string or a Flurry.Event. Got ${eventId}`);
+            return;
+        }
+
+        if (Platform.OS === 'android') {
+            ReactNativeFlurry.clearEventThrottle(eventId);
+        }
+    }
+
+    static getEventThrottleStats(reset = false) {
+        if (Platform.OS === 'android') {
+            return ReactNativeFlurry.getEventThrottleStats(reset === true);
+        }
+        return Promise.resolve({});
+    }
+
+    static registerEventSchema(eventId, keys) {
+        if (typeof eventId !== 'string') {
+            console.error(`Flurry.registerEventSchema: eventId must be a string. Got ${eventId}`);
+            return -1;
+        }
+        if (!Array.isArray(keys) || !keys.every(key => typeof key === 'string')) {
+            console.error(`Flurry.registerEventSchema: keys must be an array of strings. Got ${keys}`);
+            return -1;
+        }
+
+        const signature = eventId + '\u0000' + keys.join('\u0000');
+        let handle = eventSchemaHandles.get(signature);
+        if (handle !== undefined) {
+            return handle;
+        }
+        if (eventSchemas.length >= MAX_EVENT_SCHEMAS) {
+            console.error(`Flurry.registerEventSchema: at most ${MAX_EVENT_SCHEMAS} schemas can be registered.`);
+            return -1;
+        }
+
+        handle = eventSchemas.length;
+        eventSchemas.push({ eventId: eventId, keys: keys.slice() });
+        eventSchemaHandles.set(signature, handle);
+        if (Platform.OS === 'android') {
+            ReactNativeFlurry.registerEventSchema(handle, eventId, keys);
+        }
+        return handle;
+    }
+
+    static logEventBySchema(handle, values) {
+        const schema = (typeof handle === 'number') ? eventSchemas[handle] : undefined;
+        if (schema === undefined) {
+            console.error(`Flurry.logEventBySchema: handle is not registered. Got ${handle}`);
+            return;
+        }
+        if (!Array.isArray(values)) {
+            console.error(`Flurry.logEventBySchema: values must be an array. Got ${values}`);
+            return;
+        }
+
+        if (Platform.OS === 'android') {
+            ReactNativeFlurry.logEventBySchema(handle, values);
+        } else {
+            const parameters = {};
+            schema.keys.forEach((key, index) => {
+                if (values[index] !== undefined && values[index] !== null) {
+                    parameters[key] = String(values[index]);
+                }
+            });
+            dispatchEvent(schema.eventId, parameters);
+        }
+    }
+
     /**
      * There are two overloads
      * - endTimedEvent(eventId)
@@ -758,6 +1311,28 @@ export default class Flurry {
         }
     }
 
+    static setTimedEventTimeout(timeoutMillis, autoEnd = false) {
+        if (typeof timeoutMillis !== 'number' || timeoutMillis < 0) {
+            console.error(`Flurry.setTimedEventTimeout: timeoutMillis must be a non-negative number. Got ${timeoutMillis}`);
+            return;
+        }
+        if (typeof autoEnd !== 'boolean') {
+            console.error(`Flurry.setTimedEventTimeout: autoEnd must be one of [true, false]. Got ${autoEnd}`);
+            return;
+        }
+
+        if (Platform.OS === 'android') {
+            ReactNativeFlurry.setTimedEventTimeout(timeoutMillis, autoEnd);
+        }
+    }
+
+    static getOpenTimedEvents() {
+        if (Platform.OS === 'android') {
+            return ReactNativeFlurry.getOpenTimedEvents();
+        }
+        return Promise.resolve([]);
+    }
+
     static logStandardEvent(eventId, parameters) {
         if (typeof eventId !== 'number') {
             console.error(`Flurry.logStandardEvent: eventId must be a number. Got ${eventId}`);
@@ -771,10 +1346,19 @@ export default class Flurry {
         if (arguments.length === 1) {
             ReactNativeFlurry.logStandardEvent(eventId, null);
         } else if (arguments.length === 2) {
+            let params = null;
             if (Object.prototype.toString.call(parameters).includes('Object')) {
-                ReactNativeFlurry.logStandardEvent(eventId, parameters);
+                params = parameters;
             } else if (Object.prototype.toString.call(parameters).includes('Map')) {
-                ReactNativeFlurry.logStandardEvent(eventId, Object.fromEntries(parameters));
+                params = Object.fromEntries(parameters);
+            } else {
+                return;
+            }
+
+            if (Platform.OS === 'android') {
+                logStandardEventOrdinals(eventId, params);
+            } else {
+                ReactNativeFlurry.logStandardEvent(eventId, params);
             }
         }
     }
@@ -817,6 +1401,13 @@ export default class Flurry {
         }
     }
 
+    static getPaymentDedupStats(reset = false) {
+        if (Platform.OS === 'android') {
+            return ReactNativeFlurry.getPaymentDedupStats(reset === true);
+        }
+        return Promise.resolve({ hits: 0, misses: 0, evictions: 0, size: 0, capacity: 0 });
+    }
+
     /**
      * There are two overloads
      * - onError(errorId, message, errorClass)
@@ -849,6 +1440,17 @@ export default class Flurry {
         }
     }
 
+    static setErrorCollapseWindow(windowMillis = 10000) {
+        if (typeof windowMillis !== 'number' || windowMillis < 0) {
+            console.error(`Flurry.setErrorCollapseWindow: windowMillis must be a non-negative number. Got ${windowMillis}`);
+            return;
+        }
+
+        if (Platform.OS === 'android') {
+            ReactNativeFlurry.setErrorCollapseWindow(windowMillis);
+        }
+    }
+
     static onPageView() {
         console.warn(`Flurry.onPageView method is deprecated. API removed, no longer supported by Flurry.`);
 
@@ -923,10 +1525,91 @@ export default class Flurry {
                 return;
             }
 
+            if (isTurboModuleEnabled && hasSyncMethod('getConfigStringSync')) {
+                return Promise.resolve({ [keyOrDefaults]: ReactNativeFlurry.getConfigStringSync(keyOrDefaults, defaultValue) });
+            }
             return ReactNativeFlurry.getConfigString(keyOrDefaults, defaultValue);
         }
     }
 
+    static getConfigStringSync(key, defaultValue) {
+        if (typeof key !== 'string') {
+            console.error(`Flurry.getConfigStringSync: key must be a string. Got ${key}`);
+            return defaultValue;
+        }
+
+        if (typeof defaultValue !== 'string') {
+            console.error(`Flurry.getConfigStringSync: defaultValue must be a string. Got ${defaultValue}`);
+            return defaultValue;
+        }
+
+        if (!hasSyncMethod('getConfigStringSync')) {
+            console.error('Flurry.getConfigStringSync: not supported on this platform. Use Flurry.getConfigString instead.');
+            return defaultValue;
+        }
+        return ReactNativeFlurry.getConfigStringSync(key, defaultValue);
+    }
+
+    static watchConfigKeys(keys) {
+        if (Platform.OS === 'android') {
+            if (!Array.isArray(keys)) {
+                console.error(`Flurry.watchConfigKeys: keys must be array. Got ${keys}`);
+                return;
+            }
+
+            ReactNativeFlurry.watchConfigKeys(keys);
+        }
+    }
+
+    static subscribeConfigChanges(prefixes, callback) {
+        const noSubscription = { remove() {} };
+        if (typeof prefixes === 'string') {
+            prefixes = [prefixes];
+        }
+        if (!Array.isArray(prefixes) || !prefixes.every(prefix => typeof prefix === 'string')) {
+            console.error(`Flurry.subscribeConfigChanges: prefixes must be a string or an array of strings. Got ${prefixes}`);
+            return noSubscription;
+        }
+        if (typeof callback !== 'function') {
+            console.error(`Flurry.subscribeConfigChanges: callback must be a function. Got ${callback}`);
+            return noSubscription;
+        }
+        if (Platform.OS !== 'android') {
+            return noSubscription;
+        }
+
+        const subscription = { prefixes: prefixes.slice(), callback: callback };
+        if (configSubscriptions.length === 0) {
+            Flurry.addConfigListener(notifyConfigSubscriptions);
+        }
+        configSubscriptions.push(subscription);
+
+        return {
+            remove() {
+                const index = configSubscriptions.indexOf(subscription);
+                if (index < 0) {
+                    return;
+                }
+                configSubscriptions.splice(index, 1);
+                if (configSubscriptions.length === 0) {
+                    Flurry.removeConfigListener(notifyConfigSubscriptions);
+                }
+            }
+        };
+    }
+
+    static getConfigSnapshot() {
+        if (!hasSyncMethod('getConfigSnapshot')) {
+            return null;
+        }
+
+        const version = ReactNativeFlurry.getConfigSnapshotVersion();
+        if (configSnapshot === null || configSnapshot.version !== version) {
+            configSnapshot = Object.freeze(ReactNativeFlurry.getConfigSnapshot());
+        }
+        return configSnapshot;
+    }
+
     static addMessagingListener(callback) {
         if (typeof callback !== 'function') {
             console.error(`Flurry.addMessagingListener: callback must be a function. Got ${callback}`);
@@ -949,10 +1632,22 @@ export default class Flurry {
         Emitter.removeListener('FlurryMessagingEvent', callback);
     }
 
-    static willHandleMessage(handled) {
+    static willHandleMessage(handled, messageId) {
+        if (Platform.OS === 'android' && typeof messageId === 'number') {
+            ReactNativeFlurry.willHandleMessageId(messageId, handled);
+            return;
+        }
+
         ReactNativeFlurry.willHandleMessage(handled);
     }
 
+    static getMessagingMetrics() {
+        if (Platform.OS === 'android') {
+            return ReactNativeFlurry.getMessagingMetrics();
+        }
+        return Promise.resolve({ answered: 0, timeouts: 0, pending: 0, averageLatencyMillis: 0, maxLatencyMillis: 0 });
+    }
+
     static printMessage(message) {
         if (message.Type === Flurry.MessageType.REFRESH) {
             console.log('Flurry Messaging Type: ' + message.Type +
@@ -0,0 +1,143 @@
+/**
+ * Codegen spec of the ReactNativeFlurry native module for the React Native new architecture.
+ * Keep in sync with the @ReactMethod methods of FlurryModule (Android).
+ *
+ * @flow strict-local
+ * @format
+ */
+
+import type { TurboModule } from 'react-native/Libraries/TurboModule/RCTExport';
+import { TurboModuleRegistry } from 'react-native';
+
+export interface Spec extends TurboModule {
+    // Builder
+    +initBuilder: () => void;
+    +build: (apiKey: string) => void;
+    +buildAsync: (apiKey: string) => Promise<Object>;
+    +withAppVersion: (versionName: string) => void;
+    +withCrashReporting: (crashReporting: boolean) => void;
+    +withContinueSessionMillis: (sessionMillis: number) => void;
+    +withGppConsent: (gppString: string, gppSectionIds: Array<number>) => void;
+    +withDataSaleOptOut: (isOptOut: boolean) => void;
+    +withIAPReportingEnabled: (enableIAP: boolean) => void;
+    +withIncludeBackgroundSessionsInMetrics: (includeBackgroundSessionsInMetrics: boolean) => void;
+    +withLogEnabled: (enableLog: boolean) => void;
+    +withLogLevel: (logLevel: number) => void;
+    +withReportLocation: (reportLocation: boolean) => void;
+    +withPerformanceMetrics: (performanceMetrics: number) => void;
+    +withSslPinningEnabled: (sslPinningEnabled: boolean) => void;
+    +withDispatchQueueCapacity: (capacity: number) => void;
+    +withOverflowPolicy: (policy: number, blockTimeoutMillis: number) => void;
+    +withEventJournal: (enableJournal: boolean) => void;
+    +withMessaging: (enableMessaging: boolean) => void;
+    +withTVSessionReportingInterval: (interval: number) => void;
+    +withTVEventCountThreshold: (threshold: number) => void;
+
+    // Preferences
+    +setContinueSessionMillis: (sessionMillis: number) => void;
+    +setCrashReporting: (crashReporting: boolean) => void;
+    +setIncludeBackgroundSessionsInMetrics: (includeBackgroundSessionsInMetrics: boolean) => void;
+    +setLogEnabled: (enableLog: boolean) => void;
+    +setLogLevel: (logLevel: number) => void;
+    +setSslPinningEnabled: (sslPinningEnabled: boolean) => void;
+    +setAge: (age: number) => void;
+    +setGender: (gender: string) => void;
+    +setReportLocation: (reportLocation: boolean) => void;
+    +setSessionOrigin: (originName: string, deepLink: string) => void;
+    +setUserId: (userId: string) => void;
+    +setVersionName: (versionName: string) => void;
+    +setIAPReportingEnabled: (enableIAP: boolean) => void;
+    +setGppConsent: (gppString: string, gppSectionIds: Array<number>) => void;
+    +setDataSaleOptOut: (isOptOut: boolean) => void;
+    +deleteData: () => void;
+    +openPrivacyDashboard: () => void;
+    +addOrigin: (originName: string, originVersion: string) => void;
+    +addOriginParams: (originName: string, originVersion: string, originParameters: Object) => void;
+    +addSessionProperty: (name: string, value: string) => void;
+
+    // Versions and publisher segmentation
+    +getVersions: (errorCallback: (errorMessage: string) => void,
+                   successCallback: (agentVersion: number, releaseVersion: string, sessionId: string) => void) => void;
+    +getVersionsPromise: () => Promise<Object>;
+    +getVersionsSync: () => Object;
+    +getPublisherSegmentation: (refresh: boolean) => Promise<Object>;
+    +fetchPublisherSegmentation: () => void;
+
+    // Events
+    +logBreadcrumb: (crashBreadcrumb: string) => void;
+    +logBreadcrumbs: (crashBreadcrumbs: Array<string>) => void;
+    +setErrorBreadcrumbCount: (count: number) => void;
+    +logEvent: (eventId: string) => void;
+    +logEventTimed: (eventId: string, timed: boolean) => void;
+    +logEventParams: (eventId: string, parameters: Object) => void;
+    +logEventParamsTimed: (eventId: string, parameters: Object, timed: boolean) => void;
+    +logEventTimedId: (eventId: string, timedId: string) => void;
+    +logEventParamsTimedId: (eventId: string, parameters: Object, timedId: string) => void;
+    +registerEventSchema: (handle: number, eventId: string, keys: Array<string>) => void;
+    +logEventBySchema: (handle: number, values: Array<mixed>) => void;
+    +logAggregatedEvent: (eventId: string, dimensions: ?Object, value: number) => void;
+    +setAggregationWindow: (windowMillis: number) => void;
+    +setEventThrottle: (eventId: string, maxPerSecond: number, burst: number, sampleEvery: number) => void;
+    +clearEventThrottle: (eventId: ?string) => void;
+    +getEventThrottleStats: (reset: boolean) => Promise<Object>;
+    +logEventsBatch: (events: Array<Object>) => void;
+    +logStandardEvent: (eventId: number, parameters: ?Object) => void;
+    +logStandardEventOrdinals: (eventId: number, paramOrdinals: Array<number>, paramValues: Array<mixed>,
+                                customParameters: ?Object) => void;
+    +endTimedEvent: (eventId: string) => void;
+    +endTimedEventParams: (eventId: string, parameters: Object) => void;
+    +endTimedEventId: (eventId: string, timedId: string) => void;
+    +endTimedEventParamsId: (eventId: string, parameters: Object, timedId: string) => void;
+    +setTimedEventTimeout: (timeoutMillis: number, autoEnd: boolean) => void;
+    +getOpenTimedEvents: () => Promise<Array<Object>>;
+    +logPayment: (productName: string, productId: string, quantity: number, price: number,
+                  currency: string, transactionId: string, parameters: Object) => void;
+    +getPaymentDedupStats: (reset: boolean) => Promise<Object>;
+    +onError: (errorId: string, message: string, errorClass: string) => void;
+    +onErrorParams: (errorId: string, message: string, errorClass: string, errorParams: Object) => void;
+    +setErrorCollapseWindow: (windowMillis: number) => void;
+    +onPageView: () => void;
+    +flush: () => Promise<void>;
+    +getPreInitBufferStats: () => Promise<Object>;
+    +getBridgeMetrics: (reset: boolean) => Promise<Object>;
+    +getQueueStats: (reset: boolean) => Promise<Object>;
+
+    // User properties
+    +UserPropertiesSet: (propertyName: string, propertyValue: string) => void;
+    +UserPropertiesSetList: (propertyName: string, propertyValues: Array<string>) => void;
+    +UserPropertiesAdd: (propertyName: string, propertyValue: string) => void;
+    +UserPropertiesAddList: (propertyName: string, propertyValues: Array<string>) => void;
+    +UserPropertiesRemove: (propertyName: string, propertyValue: string) => void;
+    +UserPropertiesRemoveList: (propertyName: string, propertyValues: Array<string>) => void;
+    +UserPropertiesRemoveAll: (propertyName: string) => void;
+    +UserPropertiesFlag: (propertyName: string) => void;
+
+    // Performance
+    +reportFullyDrawn: () => void;
+    +startPerformanceResourceLogger: (handle: number) => void;
+    +logPerformanceResourceLogger: (handle: number, id: string) => void;
+
+    // SKAdNetwork (iOS)
+    +updateConversionValue: (conversionValue: number) => void;
+    +updateConversionValueWithEvent: (flurryEvent: number) => void;
+
+    // Messaging
+    +enableMessagingListener: (enable: boolean) => void;
+    +willHandleMessage: (handled: boolean) => void;
+    +willHandleMessageId: (messageId: number, handled: boolean) => void;
+    +getMessagingMetrics: () => Promise<Object>;
+
+    // Config
+    +registerConfigListener: () => void;
+    +unregisterConfigListener: () => void;
+    +fetchConfig: () => void;
+    +activateConfig: () => void;
+    +getConfigString: (key: string, defaultValue: string) => Promise<Object>;
+    +getConfigStringMap: (keyAndDefault: Object) => Promise<Object>;
+    +getConfigStringSync: (key: string, defaultValue: string) => string;
+    +watchConfigKeys: (keys: Array<string>) => void;
+    +getConfigSnapshot: () => Object;
+    +getConfigSnapshotVersion: () => number;
+}
+
+export default (TurboModuleRegistry.get<Spec>('ReactNativeFlurry'): ?Spec);